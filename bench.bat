@@ -0,0 +1,26 @@
+@echo off
+rem Compiles the application and the benchmarks, then runs one benchmark in a
+rem scratch directory, so the data files it creates never touch data\.
+rem Usage: bench.bat ^<BenchmarkName^> [arguments...]
+
+if "%~1"=="" (
+    echo Usage: bench.bat ^<BenchmarkName^> [arguments...]
+    exit /b 1
+)
+
+call compile.bat >nul || exit /b 1
+
+if not exist bench-bin mkdir bench-bin
+javac -encoding UTF-8 --release 8 -cp bin -d bench-bin bench\edu\ntu\ccds\sc2002\control\*.java || exit /b 1
+
+set ROOT=%CD%
+set SCRATCH=%TEMP%\ipms-bench-%RANDOM%
+mkdir "%SCRATCH%\data"
+copy data\users.txt "%SCRATCH%\data\" >nul
+
+pushd "%SCRATCH%"
+java -cp "%ROOT%\bin;%ROOT%\bench-bin" edu.ntu.ccds.sc2002.control.%*
+set RESULT=%ERRORLEVEL%
+popd
+rmdir /s /q "%SCRATCH%"
+exit /b %RESULT%
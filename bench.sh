@@ -0,0 +1,24 @@
+#!/bin/bash
+# Compiles the application and the benchmarks, then runs one benchmark in a
+# scratch directory, so the data files it creates never touch data/.
+# Usage: ./bench.sh <BenchmarkName> [arguments...]
+
+if [ $# -lt 1 ]; then
+    echo "Usage: ./bench.sh <BenchmarkName> [arguments...]"
+    echo "Benchmarks:"
+    ls bench/edu/ntu/ccds/sc2002/control | sed -n 's/\.java$//p' | sed 's/^/  /'
+    exit 1
+fi
+
+bash compile.sh > /dev/null || exit 1
+
+mkdir -p bench-bin
+javac -encoding UTF-8 --release 8 -cp bin -d bench-bin bench/edu/ntu/ccds/sc2002/control/*.java || exit 1
+
+ROOT=$(pwd)
+SCRATCH=$(mktemp -d)
+trap 'rm -rf "$SCRATCH"' EXIT
+mkdir -p "$SCRATCH/data"
+cp data/users.txt "$SCRATCH/data/"
+
+cd "$SCRATCH" && java -cp "$ROOT/bin:$ROOT/bench-bin" edu.ntu.ccds.sc2002.control."$@"
@@ -0,0 +1,100 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Compares the binary entity codec with Java serialization, which the data
+ * files used before it.
+ * <p>
+ * Writes and reads back a map of internships and a map of applications in
+ * both formats, and reports the time and file size of each. The decoded
+ * records are checked against the originals.
+ * <p>
+ * Usage: {@code ./bench.sh CodecBenchmark [records]}
+ */
+public class CodecBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        Map<String, Internship> internships = new LinkedHashMap<>();
+        Map<String, Application> applications = new LinkedHashMap<>();
+        for (int i = 0; i < records; i++) {
+            String internshipId = IdAllocator.format("INT", i + 1);
+            Internship internship = new Internship(internshipId, "Software Engineering Intern " + i,
+                "Work on backend services for team " + (i % 50), InternshipLevel.values()[i % 3], "CSC",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 6, 30), "Company " + (i % 200), "rep" + (i % 200), 1 + i % 10);
+            internship.addApplication(IdAllocator.format("APP", i + 1));
+            internships.put(internshipId, internship);
+
+            String applicationId = IdAllocator.format("APP", i + 1);
+            applications.put(applicationId, new Application(applicationId, "U" + (i % 20000), internshipId));
+        }
+
+        File codecFile = new File("codec.dat");
+        File javaFile = new File("serialized.dat");
+        System.out.printf("%d internships and %d applications, best of %d rounds%n", records, records, ROUNDS);
+
+        long codecWrite = Long.MAX_VALUE, codecRead = Long.MAX_VALUE, codecBytes = 0;
+        long javaWrite = Long.MAX_VALUE, javaRead = Long.MAX_VALUE, javaBytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            EntityCodec.writeFile(codecFile, internships.values(), EntityCodec::writeInternship);
+            codecBytes = codecFile.length();
+            EntityCodec.writeFile(codecFile, applications.values(), EntityCodec::writeApplication);
+            codecBytes += codecFile.length();
+            codecWrite = Math.min(codecWrite, System.nanoTime() - start);
+
+            EntityCodec.writeFile(codecFile, internships.values(), EntityCodec::writeInternship);
+            start = System.nanoTime();
+            List<Internship> decodedInternships = EntityCodec.readFile(codecFile, EntityCodec::readInternship);
+            codecRead = Math.min(codecRead, System.nanoTime() - start);
+            check(decodedInternships.size() == records
+                  && decodedInternships.get(records - 1).getTitle().equals(internships.get(IdAllocator.format("INT", records)).getTitle()),
+                  "codec round trip");
+
+            start = System.nanoTime();
+            writeSerialized(javaFile, internships);
+            javaBytes = javaFile.length();
+            writeSerialized(javaFile, applications);
+            javaBytes += javaFile.length();
+            javaWrite = Math.min(javaWrite, System.nanoTime() - start);
+
+            writeSerialized(javaFile, internships);
+            start = System.nanoTime();
+            Map<?, ?> decoded = readSerialized(javaFile);
+            javaRead = Math.min(javaRead, System.nanoTime() - start);
+            check(decoded.size() == records, "serialization round trip");
+        }
+
+        System.out.printf("codec          write %6.1f ms  read internships %6.1f ms  %,d bytes%n",
+                          codecWrite / 1e6, codecRead / 1e6, codecBytes);
+        System.out.printf("serialization  write %6.1f ms  read internships %6.1f ms  %,d bytes%n",
+                          javaWrite / 1e6, javaRead / 1e6, javaBytes);
+    }
+
+    private static void writeSerialized(File file, Object value) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            out.writeObject(value);
+        }
+    }
+
+    private static Map<?, ?> readSerialized(File file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            return (Map<?, ?>) in.readObject();
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Compares the student apply path and the company representative view path
+ * over the set-backed ID collections of the entities with the list-backed
+ * copies they replaced.
+ * <p>
+ * Spreads applications over the internships of one representative, adding
+ * each one to its student and internship, once through the entities and
+ * once through lists that check for duplicates with {@code List.contains}.
+ * The representative's view then reads the application and confirmed
+ * student IDs of every internship, through the read-only views and by
+ * copying the lists. Both sides are checked to hold the same IDs in the
+ * same order.
+ * <p>
+ * Usage: {@code ./bench.sh EntityIdBenchmark [applications]}
+ */
+public class EntityIdBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int INTERNSHIPS = 5;
+    private static final int SLOTS = 10;
+    private static final int VIEWS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        System.out.printf("%d applications over %d internships, %d rep views, best of %d rounds%n",
+                          count, INTERNSHIPS, VIEWS, ROUNDS);
+
+        long setApply = Long.MAX_VALUE, listApply = Long.MAX_VALUE;
+        long setView = Long.MAX_VALUE, listView = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Internship> internships = new ArrayList<>();
+            for (int k = 0; k < INTERNSHIPS; k++) {
+                Internship internship = new Internship(IdAllocator.format("INT", k + 1), "Intern " + k, "d",
+                    InternshipLevel.BASIC, "CSC", LocalDate.now(), LocalDate.now().plusDays(30),
+                    "Company", "rep", SLOTS);
+                internship.setStatus(InternshipStatus.APPROVED);
+                internships.add(internship);
+            }
+            List<Student> students = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                students.add(new Student("S" + i, "Student " + i, "password", 3, "CSC"));
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                String applicationId = IdAllocator.format("APP", i + 1);
+                if (students.get(i).addApplication(applicationId)) {
+                    internships.get(i % INTERNSHIPS).addApplication(applicationId);
+                }
+            }
+            for (int i = 0; i < INTERNSHIPS * SLOTS; i++) {
+                internships.get(i % INTERNSHIPS).confirmStudent("S" + i);
+            }
+            setApply = Math.min(setApply, System.nanoTime() - start);
+
+            List<List<String>> studentLists = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                studentLists.add(new ArrayList<>());
+            }
+            List<List<String>> applicationLists = new ArrayList<>();
+            List<List<String>> confirmedLists = new ArrayList<>();
+            for (int k = 0; k < INTERNSHIPS; k++) {
+                applicationLists.add(new ArrayList<>());
+                confirmedLists.add(new ArrayList<>());
+            }
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                String applicationId = IdAllocator.format("APP", i + 1);
+                List<String> studentIds = studentLists.get(i);
+                if (studentIds.size() < 3 && !studentIds.contains(applicationId)) {
+                    studentIds.add(applicationId);
+                    addIfAbsent(applicationLists.get(i % INTERNSHIPS), applicationId);
+                }
+            }
+            for (int i = 0; i < INTERNSHIPS * SLOTS; i++) {
+                addIfAbsent(confirmedLists.get(i % INTERNSHIPS), "S" + i);
+            }
+            listApply = Math.min(listApply, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int view = 0; view < VIEWS; view++) {
+                for (Internship internship : internships) {
+                    sink += internship.getApplicationIds().size() + internship.getConfirmedStudentIds().size();
+                }
+            }
+            setView = Math.min(setView, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int view = 0; view < VIEWS; view++) {
+                for (int k = 0; k < INTERNSHIPS; k++) {
+                    sink += new ArrayList<>(applicationLists.get(k)).size()
+                          + new ArrayList<>(confirmedLists.get(k)).size();
+                }
+            }
+            listView = Math.min(listView, System.nanoTime() - start);
+
+            for (int k = 0; k < INTERNSHIPS; k++) {
+                check(new ArrayList<>(internships.get(k).getApplicationIds()).equals(applicationLists.get(k)),
+                      "same applications for internship " + k);
+                check(new ArrayList<>(internships.get(k).getConfirmedStudentIds()).equals(confirmedLists.get(k)),
+                      "same confirmed students for internship " + k);
+            }
+        }
+        check(sink > 0, "views read the IDs");
+
+        System.out.printf("sets   apply %8.2f us per application  view %8.2f us per rep view%n",
+                          setApply / 1e3 / count, setView / 1e3 / VIEWS);
+        System.out.printf("lists  apply %8.2f us per application  view %8.2f us per rep view%n",
+                          listApply / 1e3 / count, listView / 1e3 / VIEWS);
+    }
+
+    private static void addIfAbsent(List<String> ids, String id) {
+        if (!ids.contains(id)) {
+            ids.add(id);
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+}
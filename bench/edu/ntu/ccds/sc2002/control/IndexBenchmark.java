@@ -0,0 +1,83 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the application lookups by student and by internship with a
+ * full scan of all applications, which is how they were answered before
+ * the secondary indexes.
+ * <p>
+ * Adds applications spread over students and internships, then looks up
+ * a sample of both through the indexes and by scanning. The two results
+ * are checked against each other.
+ * <p>
+ * Usage: {@code ./bench.sh IndexBenchmark [applications]}
+ */
+public class IndexBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int LOOKUPS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int students = Math.max(1, count / 3);
+        int internships = Math.max(1, count / 50);
+
+        DataController dataController = DataController.getInstance();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            dataController.addApplication(new Application(IdAllocator.format("APP", i + 1), "S" + (i % students),
+                                                          "INT" + (i % internships), ApplicationStatus.PENDING,
+                                                          now, false));
+        }
+        System.out.printf("%d applications, %d students, %d internships, best of %d rounds%n",
+                          count, students, internships, ROUNDS);
+
+        long indexTime = Long.MAX_VALUE, scanTime = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<List<Application>> indexed = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                indexed.add(dataController.getApplicationsByStudentId("S" + (i * 31 % students)));
+                indexed.add(dataController.getApplicationsByInternshipId("INT" + (i % internships)));
+            }
+            indexTime = Math.min(indexTime, System.nanoTime() - start);
+
+            List<List<Application>> scanned = new ArrayList<>();
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                String studentId = "S" + (i * 31 % students);
+                String internshipId = "INT" + (i % internships);
+                scanned.add(dataController.getAllApplications().stream()
+                    .filter(a -> a.getStudentId().equals(studentId)).collect(Collectors.toList()));
+                scanned.add(dataController.getAllApplications().stream()
+                    .filter(a -> a.getInternshipId().equals(internshipId)).collect(Collectors.toList()));
+            }
+            scanTime = Math.min(scanTime, System.nanoTime() - start);
+
+            for (int i = 0; i < indexed.size(); i++) {
+                check(ids(indexed.get(i)).equals(ids(scanned.get(i))), "same applications for lookup " + i);
+            }
+        }
+
+        System.out.printf("index  %10.1f us per lookup%n", indexTime / 1e3 / (2 * LOOKUPS));
+        System.out.printf("scan   %10.1f us per lookup%n", scanTime / 1e3 / (2 * LOOKUPS));
+    }
+
+    private static Set<String> ids(List<Application> applications) {
+        Set<String> ids = new TreeSet<>();
+        for (Application application : applications) {
+            ids.add(application.getApplicationId());
+        }
+        return ids;
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+}
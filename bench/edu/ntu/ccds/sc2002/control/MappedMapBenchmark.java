@@ -0,0 +1,127 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uses one memory-mapped internship map from many threads at once and
+ * checks that it stays consistent.
+ * <p>
+ * Writes an indexed snapshot and maps it, then has every thread look up
+ * mapped records, add and remove records of its own, and iterate over the
+ * keys and entries while the others change the map. Afterwards the benchmark
+ * checks that no iterator failed, that every mapped record was materialized
+ * as exactly one instance, and that the size and the keys match the records
+ * each thread left behind.
+ * <p>
+ * Usage: {@code ./bench.sh MappedMapBenchmark [threads] [records] [operations per thread]}
+ */
+public class MappedMapBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int records = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+
+        Map<String, Internship> source = new HashMap<>();
+        for (int i = 0; i < records; i++) {
+            String internshipId = IdAllocator.format("INT", i + 1);
+            source.put(internshipId, internship(internshipId));
+        }
+        File file = new File("internships.idx");
+        MappedInternshipMap.capture(source).write(file);
+        MappedInternshipMap map = MappedInternshipMap.open(file);
+
+        Map<String, Internship> instances = new ConcurrentHashMap<>();
+        AtomicInteger otherInstances = new AtomicInteger();
+        List<Set<String>> added = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "NEW" + t + "-";
+            Set<String> own = new HashSet<>();
+            added.add(own);
+            Random random = new Random(t);
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int k = 0; k < operations; k++) {
+                    int operation = random.nextInt(100);
+                    if (operation < 50) {
+                        String internshipId = IdAllocator.format("INT", random.nextInt(records) + 1);
+                        Internship internship = map.get(internshipId);
+                        if (instances.computeIfAbsent(internshipId, id -> internship) != internship) {
+                            otherInstances.incrementAndGet();
+                        }
+                    } else if (operation < 80) {
+                        String internshipId = prefix + random.nextInt(100);
+                        if (own.remove(internshipId)) {
+                            map.remove(internshipId);
+                        } else {
+                            own.add(internshipId);
+                            map.put(internshipId, internship(internshipId));
+                        }
+                    } else if (operation < 81) {
+                        int keys = 0;
+                        for (String internshipId : map.keySet()) {
+                            keys += internshipId.isEmpty() ? 0 : 1;
+                        }
+                        check(keys >= records, "key iteration reaches every mapped record");
+                    } else if (operation < 82) {
+                        int step = 0;
+                        for (Map.Entry<String, Internship> entry : map.entrySet()) {
+                            if (++step % 97 == 0 && !entry.getKey().startsWith("NEW")) {
+                                Internship internship = entry.getValue();
+                                if (instances.computeIfAbsent(entry.getKey(), id -> internship) != internship) {
+                                    otherInstances.incrementAndGet();
+                                }
+                            }
+                        }
+                    } else {
+                        check(map.containsKey(IdAllocator.format("INT", random.nextInt(records) + 1)),
+                              "mapped record present");
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+
+        check(otherInstances.get() == 0, "one instance per mapped record");
+        for (Map.Entry<String, Internship> entry : instances.entrySet()) {
+            check(map.get(entry.getKey()) == entry.getValue(), "lookups return the materialized instance");
+        }
+        Set<String> expected = new HashSet<>(source.keySet());
+        for (Set<String> own : added) {
+            expected.addAll(own);
+        }
+        check(map.size() == expected.size(), "size matches the records left behind");
+        check(new HashSet<>(map.keySet()).equals(expected), "keys match the records left behind");
+
+        System.out.printf("%d threads, %d mapped records, %d operations each%n", threads, records, operations);
+        System.out.printf("%d records materialized, %,.0f operations/s%n",
+                          map.getMaterializedCount(), threads * operations / (elapsed / 1e9));
+    }
+
+    private static Internship internship(String internshipId) {
+        return new Internship(internshipId, "Intern " + internshipId, "d", InternshipLevel.BASIC, "CSC",
+                              LocalDate.of(2025, 1, 1), LocalDate.of(2025, 6, 30), "Company", "rep", 3);
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+}
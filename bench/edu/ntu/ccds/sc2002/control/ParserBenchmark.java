@@ -0,0 +1,130 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compares the user file parser with the line-splitting loop it replaced.
+ * <p>
+ * Generates a users file that mixes regular rows with the edge cases the
+ * old loop handled in its own way (year 0, trailing empty fields, padding,
+ * CRLF line ends, redefined IDs and short rows), parses it both ways and
+ * checks that both accept the same users. Rows with a non-numeric year,
+ * which aborted the old loop, are left out.
+ * <p>
+ * Usage: {@code ./bench.sh ParserBenchmark [rows]}
+ */
+public class ParserBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private static final String[] EDGE_ROWS = {
+        "E0001|Zero Year|pw|STUDENT|0|CSC",
+        "E0002|Trailing|pw|CAREER_STAFF|",
+        "E0003|Trailing Rep|pw|COMPANY_REP|Acme|Sales||",
+        "E0004|Padded|pw| STUDENT | 2 | EEE \r",
+        "E0005|Blank Major|pw|STUDENT|3| ",
+        "E0006|Short|pw",
+        "E0007|Unknown|pw|VISITOR|x",
+        "E0001|Zero Year Again|pw|STUDENT|4|MAE",
+        "   ",
+        "",
+        "|Empty Id|pw|CAREER_STAFF|Admin",
+    };
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 300000;
+        File file = new File("users.txt");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < rows; i++) {
+                if (i % 1000 == 0) {
+                    out.write(EDGE_ROWS[(i / 1000) % EDGE_ROWS.length]);
+                } else if (i % 3 == 0) {
+                    out.write("R" + i + "|Rep " + i + "|password|COMPANY_REP|Company " + (i % 500)
+                              + "|Engineering|Manager");
+                } else if (i % 3 == 1) {
+                    out.write("U" + i + "|Student " + i + "|password|STUDENT|" + (1 + i % 4) + "|CSC");
+                } else {
+                    out.write("S" + i + "|Staff " + i + "|password|CAREER_STAFF|Career Services");
+                }
+                out.write('\n');
+            }
+        }
+        System.out.printf("%d rows, %,d bytes, best of %d rounds%n", rows, file.length(), ROUNDS);
+
+        long parserTime = Long.MAX_VALUE, splitTime = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            UserFileParser.Result result = UserFileParser.parse(file);
+            parserTime = Math.min(parserTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            Map<String, User> expected = splitLoop(file);
+            splitTime = Math.min(splitTime, System.nanoTime() - start);
+
+            check(result.getUsers().size() == expected.size(), "same number of users");
+            for (User user : result.getUsers()) {
+                check(describe(user).equals(describe(expected.get(user.getUserId()))),
+                      "same user " + user.getUserId());
+            }
+        }
+
+        System.out.printf("parser      %6.1f ms  %,.0f rows/s%n", parserTime / 1e6, rows / (parserTime / 1e9));
+        System.out.printf("split loop  %6.1f ms  %,.0f rows/s%n", splitTime / 1e6, rows / (splitTime / 1e9));
+    }
+
+    /**
+     * The loader loop used before the parser was introduced.
+     */
+    private static Map<String, User> splitLoop(File file) throws IOException {
+        Map<String, User> users = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                if (parts.length < 4) continue;
+
+                String userId = parts[0].trim();
+                String name = parts[1].trim();
+                String password = parts[2].trim();
+                String type = parts[3].trim();
+
+                if (type.equals("STUDENT") && parts.length >= 6) {
+                    int year = Integer.parseInt(parts[4].trim());
+                    users.put(userId, new Student(userId, name, password, year, parts[5].trim()));
+                } else if (type.equals("COMPANY_REP") && parts.length >= 7) {
+                    users.put(userId, new CompanyRepresentative(userId, name, password, parts[4].trim(),
+                                                                parts[5].trim(), parts[6].trim()));
+                } else if (type.equals("CAREER_STAFF") && parts.length >= 5) {
+                    users.put(userId, new CareerCenterStaff(userId, name, password, parts[4].trim()));
+                }
+            }
+        }
+        return users;
+    }
+
+    private static String describe(User user) {
+        if (user == null) {
+            return "missing";
+        }
+        String common = user.getUserId() + "|" + user.getName() + "|" + user.getPassword() + "|";
+        if (user instanceof Student) {
+            Student student = (Student) user;
+            return common + student.getYearOfStudy() + "|" + student.getMajor();
+        } else if (user instanceof CompanyRepresentative) {
+            CompanyRepresentative rep = (CompanyRepresentative) user;
+            return common + rep.getCompanyName() + "|" + rep.getDepartment() + "|" + rep.getPosition();
+        }
+        return common + ((CareerCenterStaff) user).getStaffDepartment();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Has many threads take and give back the slots of one internship at once
+ * and checks that the slots, the confirmed students and the status agree.
+ * <p>
+ * First every thread confirms and releases students on the same internship
+ * while the internship is rejected halfway through; no student may be
+ * confirmed once the rejection has returned. Then many students accept a
+ * place on one internship through {@link DataController#confirmPlacement}
+ * at the same time; exactly as many as there are slots may get one, and the
+ * internship must end up FILLED. Accepting a place on a rejected internship
+ * must always fail.
+ * <p>
+ * Usage: {@code ./bench.sh SlotContentionBenchmark [threads] [students]}
+ */
+public class SlotContentionBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int SLOTS = 10;
+    private static final int OPERATIONS = 200000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int students = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        System.out.printf("%d threads, %d slots, %d students, best of %d rounds%n", threads, SLOTS, students, ROUNDS);
+
+        long confirmTime = Long.MAX_VALUE;
+        long acceptTime = Long.MAX_VALUE;
+        DataController dataController = DataController.getInstance();
+        dataController.loadAllData();
+        for (int round = 0; round < ROUNDS; round++) {
+            confirmTime = Math.min(confirmTime, confirmAndRelease(threads, round));
+            acceptTime = Math.min(acceptTime, acceptPlaces(dataController, threads, students, round));
+        }
+
+        System.out.printf("confirm/release  %,12.0f attempts/s%n", threads * OPERATIONS / (confirmTime / 1e9));
+        System.out.printf("accept place     %,12.0f attempts/s%n", students / (acceptTime / 1e9));
+    }
+
+    /**
+     * Confirms and releases students from every thread, rejecting the
+     * internship halfway through.
+     * @return the elapsed time in nanoseconds
+     */
+    private static long confirmAndRelease(int threads, int round) throws Exception {
+        Internship internship = internship("INT" + round);
+        internship.setStatus(InternshipStatus.APPROVED);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch halfway = new CountDownLatch(threads);
+        AtomicInteger afterRejection = new AtomicInteger();
+        AtomicInteger confirmed = new AtomicInteger();
+        boolean[] rejected = new boolean[1];
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "S" + t + "-";
+            workers.add(pool.submit(() -> {
+                start.await();
+                Deque<String> own = new ArrayDeque<>();
+                for (int k = 0; k < OPERATIONS; k++) {
+                    if (k == OPERATIONS / 2) {
+                        halfway.countDown();
+                    }
+                    boolean wasRejected;
+                    synchronized (rejected) {
+                        wasRejected = rejected[0];
+                    }
+                    String studentId = prefix + k;
+                    if (internship.confirmStudent(studentId)) {
+                        own.add(studentId);
+                        confirmed.incrementAndGet();
+                        if (wasRejected) {
+                            afterRejection.incrementAndGet();
+                        }
+                    }
+                    if (!own.isEmpty() && k % 2 == 0 && internship.removeConfirmedStudent(own.poll())) {
+                        confirmed.decrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        workers.add(pool.submit(() -> {
+            halfway.await();
+            internship.setStatus(InternshipStatus.REJECTED);
+            synchronized (rejected) {
+                rejected[0] = true;
+            }
+            return null;
+        }));
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+
+        check(afterRejection.get() == 0, "no student confirmed after the internship was rejected");
+        int students = internship.getConfirmedStudentIds().size();
+        check(students == confirmed.get(), "confirmed students match the confirmations");
+        check(internship.getAvailableSlots() == SLOTS - students, "slots match the confirmed students");
+        check(internship.getStatus() == InternshipStatus.REJECTED, "internship stays rejected");
+        return elapsed;
+    }
+
+    /**
+     * Has every student accept a place on one internship at once.
+     * @return the elapsed time in nanoseconds
+     */
+    private static long acceptPlaces(DataController dataController, int threads, int count, int round)
+            throws Exception {
+        Internship open = internship(dataController.generateInternshipId());
+        Internship rejected = internship(dataController.generateInternshipId());
+        dataController.addInternship(open);
+        dataController.addInternship(rejected);
+        open.setStatus(InternshipStatus.APPROVED);
+        rejected.setStatus(InternshipStatus.APPROVED);
+
+        List<Student> students = new ArrayList<>();
+        List<Application> accepted = new ArrayList<>();
+        List<Application> refused = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Student student = new Student("R" + round + "-" + i, "Student " + i, "password", 3, "CSC");
+            dataController.addUser(student);
+            students.add(student);
+            accepted.add(apply(dataController, student, open));
+            refused.add(apply(dataController, student, rejected));
+        }
+        rejected.setStatus(InternshipStatus.REJECTED);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers.add(pool.submit(() -> {
+                start.await();
+                int placed = 0;
+                for (int i = first; i < count; i += threads) {
+                    check(!dataController.confirmPlacement(students.get(i), refused.get(i)),
+                          "no place accepted on a rejected internship");
+                    if (dataController.confirmPlacement(students.get(i), accepted.get(i))) {
+                        placed++;
+                    }
+                }
+                return placed;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        int placed = 0;
+        for (Future<Integer> worker : workers) {
+            placed += worker.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+
+        int confirmedStudents = 0;
+        for (Student student : students) {
+            confirmedStudents += student.hasConfirmedInternship() ? 1 : 0;
+        }
+        check(placed == SLOTS, "exactly as many places accepted as slots");
+        check(confirmedStudents == SLOTS, "one confirmed internship per accepted place");
+        check(open.getConfirmedStudentIds().size() == SLOTS, "every slot taken once");
+        check(open.getAvailableSlots() == 0 && open.getStatus() == InternshipStatus.FILLED, "internship FILLED");
+        check(rejected.getConfirmedStudentIds().isEmpty() && rejected.getAvailableSlots() == SLOTS,
+              "rejected internship untouched");
+        return elapsed;
+    }
+
+    private static Application apply(DataController dataController, Student student, Internship internship) {
+        Application application = new Application(dataController.generateApplicationId(), student.getUserId(),
+                                                  internship.getInternshipId());
+        check(dataController.processNewApplication(application), "application accepted");
+        application.setStatus(ApplicationStatus.SUCCESSFUL);
+        return application;
+    }
+
+    private static Internship internship(String internshipId) {
+        return new Internship(internshipId, "Intern " + internshipId, "d", InternshipLevel.BASIC, "ANY",
+                              LocalDate.now().minusDays(1), LocalDate.now().plusDays(9), "Company", "rep", SLOTS);
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many sessions against one controller at once and checks that the
+ * invariants of the stored data still hold afterwards.
+ * <p>
+ * Creates internships and students, saves them and loads them back, so the
+ * internships are served lazily from the memory-mapped snapshot. Each thread
+ * then applies, marks applications successful, confirms and releases
+ * placements and browses the internship list, at random. Afterwards the
+ * benchmark checks that no ID was handed out twice, that slots, confirmed
+ * students and FILLED statuses agree, that no student applied twice to the
+ * same internship or holds more than three applications, that every
+ * accepted application was stored, and that every lookup of an internship
+ * returned the same instance.
+ * <p>
+ * Usage: {@code ./bench.sh StressBenchmark [threads] [operations per thread]}
+ */
+public class StressBenchmark {
+
+    private static final int INTERNSHIPS = 200;
+    private static final int STUDENTS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        DataController dataController = DataController.getInstance();
+        dataController.loadAllData();
+        for (int i = 0; i < INTERNSHIPS; i++) {
+            Internship internship = new Internship(dataController.generateInternshipId(), "Intern " + i, "d",
+                InternshipLevel.BASIC, "ANY", LocalDate.now().minusDays(1), LocalDate.now().plusDays(9),
+                "Company " + (i % 7), "rep", 1 + i % 3);
+            dataController.addInternship(internship);
+            internship.setStatus(InternshipStatus.APPROVED);
+        }
+        for (int i = 0; i < STUDENTS; i++) {
+            dataController.addUser(new Student("ST" + i, "Student " + i, "password", 3, "CSC"));
+        }
+        dataController.saveAllData();
+        dataController.loadAllData();
+
+        List<String> internshipIds = new ArrayList<>();
+        for (Internship internship : dataController.getAllInternships()) {
+            internshipIds.add(internship.getInternshipId());
+        }
+        check(internshipIds.size() == INTERNSHIPS, "internships loaded back");
+
+        Set<String> applicationIds = ConcurrentHashMap.newKeySet();
+        Map<String, Internship> instances = new ConcurrentHashMap<>();
+        AtomicInteger duplicateIds = new AtomicInteger();
+        AtomicInteger otherInstances = new AtomicInteger();
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> sessions = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            sessions.add(pool.submit(() -> {
+                start.await();
+                for (int k = 0; k < operations; k++) {
+                    Student student = (Student) dataController.getUserById("ST" + random.nextInt(STUDENTS));
+                    String internshipId = internshipIds.get(random.nextInt(INTERNSHIPS));
+                    Internship seen = dataController.getInternshipById(internshipId);
+                    if (instances.computeIfAbsent(internshipId, id -> seen) != seen) {
+                        otherInstances.incrementAndGet();
+                    }
+
+                    int operation = random.nextInt(10);
+                    if (operation < 4) {
+                        String applicationId = dataController.generateApplicationId();
+                        if (!applicationIds.add(applicationId)) {
+                            duplicateIds.incrementAndGet();
+                        }
+                        if (dataController.processNewApplication(
+                                new Application(applicationId, student.getUserId(), internshipId))) {
+                            applied.incrementAndGet();
+                        }
+                    } else if (operation < 6) {
+                        List<Application> own = dataController.getApplicationsByStudentId(student.getUserId());
+                        if (!own.isEmpty()) {
+                            own.get(random.nextInt(own.size())).setStatus(ApplicationStatus.SUCCESSFUL);
+                        }
+                    } else if (operation < 8) {
+                        for (Application application : dataController.getApplicationsByStudentId(student.getUserId())) {
+                            if (application.getStatus() == ApplicationStatus.SUCCESSFUL) {
+                                if (dataController.confirmPlacement(student, application)) {
+                                    placed.incrementAndGet();
+                                }
+                                break;
+                            }
+                        }
+                    } else if (operation < 9) {
+                        String confirmed = student.getConfirmedInternshipId();
+                        if (confirmed != null && dataController.getInternshipById(confirmed)
+                                                               .removeConfirmedStudent(student.getUserId())) {
+                            released.incrementAndGet();
+                        }
+                    } else {
+                        for (Internship internship : dataController.getAllInternships()) {
+                            if (instances.computeIfAbsent(internship.getInternshipId(), id -> internship) != internship) {
+                                otherInstances.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> session : sessions) {
+            session.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+
+        check(duplicateIds.get() == 0, "no application ID handed out twice");
+        check(otherInstances.get() == 0, "one instance per internship");
+        int confirmedTotal = 0;
+        for (Internship internship : dataController.getAllInternships()) {
+            int confirmed = internship.getConfirmedStudentIds().size();
+            confirmedTotal += confirmed;
+            check(internship.getAvailableSlots() == internship.getTotalSlots() - confirmed,
+                  "slots match confirmed students of " + internship.getInternshipId());
+            check((internship.getAvailableSlots() == 0) == (internship.getStatus() == InternshipStatus.FILLED),
+                  "FILLED status matches slots of " + internship.getInternshipId());
+        }
+        check(confirmedTotal == placed.get() - released.get(), "confirmed students match placements");
+
+        Set<String> pairs = new HashSet<>();
+        for (Application application : dataController.getAllApplications()) {
+            check(pairs.add(application.getStudentId() + "|" + application.getInternshipId()),
+                  "one application per student and internship");
+        }
+        check(pairs.size() == applied.get(), "every accepted application stored");
+        for (Student student : dataController.getAllStudents()) {
+            check(student.getApplicationIds().size() <= 3, "at most 3 applications for " + student.getUserId());
+        }
+
+        System.out.printf("%d threads, %d operations each%n", threads, operations);
+        System.out.printf("applied %d  placed %d  released %d%n", applied.get(), placed.get(), released.get());
+        System.out.printf("%,.0f operations/s%n", threads * operations / (elapsed / 1e9));
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+}
@@ -3,7 +3,8 @@ echo "Compiling Internship Placement Management System..."
 
 mkdir -p bin
 
-javac -d bin -sourcepath src \
+# --release 8 builds against the Java 8 API, so the classes run on Java 8 and later
+javac -encoding UTF-8 --release 8 -d bin -sourcepath src \
     src/edu/ntu/ccds/sc2002/*.java \
     src/edu/ntu/ccds/sc2002/entity/*.java \
     src/edu/ntu/ccds/sc2002/control/*.java \
@@ -1,15 +1,23 @@
 package edu.ntu.ccds.sc2002;
 
 import edu.ntu.ccds.sc2002.boundary.LoginUI;
+import edu.ntu.ccds.sc2002.boundary.TerminalServer;
 import edu.ntu.ccds.sc2002.control.AuthenticationController;
 import edu.ntu.ccds.sc2002.control.DataController;
 
 /**
  * Main entry point for the Internship Placement Management System.
  * Initializes the system and starts the login process.
+ * <p>
+ * If the system property {@code ipms.server.port} is set, the system runs as
+ * a server instead, serving a separate login session to each connection on
+ * that local port.
  */
 public class Main {
     
+    /** System property holding the port to serve sessions on. */
+    public static final String SERVER_PORT_PROPERTY = "ipms.server.port";
+    
     /**
      * Main method to start the application.
      * Loads initial data and displays login screen.
@@ -41,20 +49,56 @@ public class Main {
         DataController dataController = DataController.getInstance();
         try {
             dataController.loadAllData();
+            dataController.startCheckpointer();
             System.out.println("System initialized successfully!\n");
         } catch (Exception e) {
             System.out.println("Warning: Could not load data files. Starting with empty system.");
             System.out.println("Error: " + e.getMessage() + "\n");
         }
         
+        Integer port = Integer.getInteger(SERVER_PORT_PROPERTY);
+        if (port != null) {
+            runServer(port);
+            return;
+        }
+        
         // Start authentication process
         AuthenticationController authController = new AuthenticationController();
         LoginUI loginUI = new LoginUI(authController);
         loginUI.displayLoginMenu();
         
         // Save data before exit
+        saveData();
+    }
+    
+    /**
+     * Serves login sessions on a local port until the process is stopped.
+     * Data is saved when the server shuts down.
+     * 
+     * @param port the port to listen on
+     */
+    private static void runServer(int port) {
+        TerminalServer server = new TerminalServer(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            saveData();
+        }, "shutdown"));
+        
+        try {
+            System.out.println("Serving sessions on localhost port " + port + ". Press Ctrl+C to stop.");
+            server.run();
+        } catch (Exception e) {
+            System.out.println("Error: Could not start server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Saves all data and reports the outcome.
+     */
+    private static void saveData() {
         try {
-            dataController.saveAllData();
+            DataController.getInstance().saveAllData();
             System.out.println("\nData saved successfully. Goodbye!");
         } catch (Exception e) {
             System.out.println("\nWarning: Could not save data: " + e.getMessage());
@@ -2,6 +2,9 @@ package edu.ntu.ccds.sc2002.boundary;
 
 import edu.ntu.ccds.sc2002.control.*;
 import edu.ntu.ccds.sc2002.entity.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -14,16 +17,28 @@ public class CareerStaffUI {
     private DataController dataController;
     private AuthenticationController authController;
     private Scanner scanner;
+    private PrintStream out;
     
     /**
      * Constructs a CareerStaffUI for the specified staff member.
      * @param staff the staff
      */
     public CareerStaffUI(CareerCenterStaff staff) {
+        this(staff, new Scanner(System.in), System.out);
+    }
+    
+    /**
+     * Constructs a CareerStaffUI for the specified staff member.
+     * @param staff the staff
+     * @param scanner the scanner reading the user's input
+     * @param out the stream the interface is printed to
+     */
+    public CareerStaffUI(CareerCenterStaff staff, Scanner scanner, PrintStream out) {
         this.staff = staff;
         this.dataController = DataController.getInstance();
         this.authController = new AuthenticationController();
-        this.scanner = new Scanner(System.in);
+        this.scanner = scanner;
+        this.out = out;
     }
     
     /**
@@ -33,8 +48,8 @@ public class CareerStaffUI {
         boolean running = true;
         
         while (running) {
-            staff.displayMenu();
-            System.out.print("Enter choice: ");
+            staff.displayMenu(out);
+            out.print("Enter choice: ");
             String choice = scanner.nextLine().trim();
             
             switch (choice) {
@@ -60,11 +75,17 @@ public class CareerStaffUI {
                     changePassword();
                     break;
                 case "8":
-                    System.out.println("Logging out...");
+                    bulkImport();
+                    break;
+                case "9":
+                    archiveInternships();
+                    break;
+                case "10":
+                    out.println("Logging out...");
                     running = false;
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -74,49 +95,121 @@ public class CareerStaffUI {
      */
     private void generateStatisticalReport() {
         String report = dataController.generateStatisticsReport();
-        System.out.println(report);
+        out.println(report);
+    }
+    
+    /**
+     * Imports internships or applications from a CSV or JSONL file.
+     */
+    private void bulkImport() {
+        out.println("\n=== BULK IMPORT ===");
+        out.println("1. Import Internships");
+        out.println("2. Import Applications");
+        out.print("Enter choice: ");
+        String choice = scanner.nextLine().trim();
+        
+        if (!choice.equals("1") && !choice.equals("2")) {
+            out.println("Invalid choice.");
+            return;
+        }
+        
+        out.print("Enter file path (.csv or .jsonl): ");
+        File file = new File(scanner.nextLine().trim());
+        if (!file.isFile()) {
+            out.println("File not found.");
+            return;
+        }
+        
+        BulkImporter importer = new BulkImporter(dataController);
+        BulkImporter.ImportResult result;
+        try {
+            result = choice.equals("1") ? importer.importInternships(file) : importer.importApplications(file);
+        } catch (IOException e) {
+            out.println("Import failed: " + e.getMessage());
+            return;
+        }
+        
+        out.println("\nImported " + result.getImported() + " record(s).");
+        List<String> errors = result.getErrors();
+        if (!errors.isEmpty()) {
+            out.println(errors.size() + " record(s) rejected:");
+            for (int i = 0; i < Math.min(errors.size(), 20); i++) {
+                out.println("  " + errors.get(i));
+            }
+            if (errors.size() > 20) {
+                out.println("  ... and " + (errors.size() - 20) + " more");
+            }
+        }
+    }
+    
+    /**
+     * Moves closed internships and their applications into the cold archive.
+     */
+    private void archiveInternships() {
+        out.println("\n=== ARCHIVE CLOSED INTERNSHIPS ===");
+        out.print("Keep internships for how many days after closing? (default 30): ");
+        String input = scanner.nextLine().trim();
+        
+        int retentionDays = 30;
+        if (!input.isEmpty()) {
+            try {
+                retentionDays = Integer.parseInt(input);
+            } catch (NumberFormatException e) {
+                out.println("Invalid number of days.");
+                return;
+            }
+            if (retentionDays < 0) {
+                out.println("Number of days cannot be negative.");
+                return;
+            }
+        }
+        
+        try {
+            int archived = dataController.archiveInternships(retentionDays);
+            out.println("Archived " + archived + " internship(s).");
+        } catch (IOException e) {
+            out.println("Archiving failed: " + e.getMessage());
+        }
     }
     
     /**
      * Handles authorization of company representatives.
      */
     private void authorizeCompanyReps() {
-        System.out.println("\n=== AUTHORIZE COMPANY REPRESENTATIVES ===");
+        out.println("\n=== AUTHORIZE COMPANY REPRESENTATIVES ===");
         
-        List<CompanyRepresentative> unapprovedReps = dataController.getAllCompanyReps().stream()
-            .filter(rep -> !rep.isApproved())
-            .collect(Collectors.toList());
+        List<CompanyRepresentative> unapprovedReps = dataController.getPendingCompanyReps();
         
         if (unapprovedReps.isEmpty()) {
-            System.out.println("No pending company representative accounts.");
+            out.println("No pending company representative accounts.");
             return;
         }
         
-        System.out.println("\nPending Accounts:");
+        out.println("\nPending Accounts:");
         for (int i = 0; i < unapprovedReps.size(); i++) {
             CompanyRepresentative rep = unapprovedReps.get(i);
-            System.out.println("\n" + (i + 1) + ".");
-            System.out.println("   Email: " + rep.getUserId());
-            System.out.println("   Name: " + rep.getName());
-            System.out.println("   Company: " + rep.getCompanyName());
-            System.out.println("   Department: " + rep.getDepartment());
-            System.out.println("   Position: " + rep.getPosition());
+            out.println("\n" + (i + 1) + ".");
+            out.println("   Email: " + rep.getUserId());
+            out.println("   Name: " + rep.getName());
+            out.println("   Company: " + rep.getCompanyName());
+            out.println("   Department: " + rep.getDepartment());
+            out.println("   Position: " + rep.getPosition());
         }
         
         // Input with retry
         boolean validChoice = false;
         while (!validChoice) {
-            System.out.print("\nEnter account number to process (0 to cancel): ");
+            out.print("\nEnter account number to process (0 to cancel): ");
             try {
                 int choice = Integer.parseInt(scanner.nextLine().trim());
                 
                 if (choice == 0) {
-                    System.out.println("Cancelled.");
+                    out.println("Cancelled.");
                     return;
                 }
                 
                 if (choice < 1 || choice > unapprovedReps.size()) {
-                    System.out.println("Invalid choice. Please enter a number between 0 and " + unapprovedReps.size());
+                    out.println("Invalid choice. Please enter a number between 0 and " + unapprovedReps.size());
                     continue;
                 }
                 
@@ -127,26 +220,26 @@ public class CareerStaffUI {
                 // Action selection with retry
                 boolean validAction = false;
                 while (!validAction) {
-                    System.out.println("\n1. Approve");
-                    System.out.println("2. Reject");
-                    System.out.print("Enter choice: ");
+                    out.println("\n1. Approve");
+                    out.println("2. Reject");
+                    out.print("Enter choice: ");
                     String action = scanner.nextLine().trim();
                     
                     if (action.equals("1")) {
                         selectedRep.setApproved(true);
-                        System.out.println("\nAccount approved! Representative can now log in.");
+                        out.println("\nAccount approved! Representative can now log in.");
                         validAction = true;
                     } else if (action.equals("2")) {
-                        dataController.getAllUsers().remove(selectedRep);
-                        System.out.println("\nAccount rejected and removed from system.");
+                        dataController.removeUser(selectedRep.getUserId());
+                        out.println("\nAccount rejected and removed from system.");
                         validAction = true;
                     } else {
-                        System.out.println("Invalid choice. Please enter 1 or 2.");
+                        out.println("Invalid choice. Please enter 1 or 2.");
                     }
                 }
                 
             } catch (NumberFormatException e) {
-                System.out.println("Invalid input. Please enter a number.");
+                out.println("Invalid input. Please enter a number.");
             }
         }
     }
@@ -155,60 +248,60 @@ public class CareerStaffUI {
      * Handles approval/rejection of internship opportunities.
      */
     private void approveInternships() {
-        System.out.println("\n=== APPROVE INTERNSHIP OPPORTUNITIES ===");
+        out.println("\n=== APPROVE INTERNSHIP OPPORTUNITIES ===");
         
-        List<Internship> pendingInternships = dataController.getAllInternships().stream()
-            .filter(i -> i.getStatus() == InternshipStatus.PENDING)
-            .collect(Collectors.toList());
+        List<Internship> pendingInternships = dataController.queryInternships()
+            .status(InternshipStatus.PENDING)
+            .list();
         
         if (pendingInternships.isEmpty()) {
-            System.out.println("No pending internships to review.");
+            out.println("No pending internships to review.");
             return;
         }
         
-        System.out.println("\nPending Internships:");
+        out.println("\nPending Internships:");
         for (int i = 0; i < pendingInternships.size(); i++) {
             Internship internship = pendingInternships.get(i);
-            System.out.println("\n" + (i + 1) + ". " + internship.getTitle());
-            System.out.println("   ID: " + internship.getInternshipId());
-            System.out.println("   Company: " + internship.getCompanyName());
-            System.out.println("   Level: " + internship.getLevel());
-            System.out.println("   Major: " + internship.getPreferredMajor());
-            System.out.println("   Slots: " + internship.getTotalSlots());
-            System.out.println("   Opening: " + internship.getOpeningDate());
-            System.out.println("   Closing: " + internship.getClosingDate());
-            System.out.println("   Description: " + internship.getDescription());
-        }
-        
-        System.out.print("\nEnter internship number to process (0 to cancel): ");
+            out.println("\n" + (i + 1) + ". " + internship.getTitle());
+            out.println("   ID: " + internship.getInternshipId());
+            out.println("   Company: " + internship.getCompanyName());
+            out.println("   Level: " + internship.getLevel());
+            out.println("   Major: " + internship.getPreferredMajor());
+            out.println("   Slots: " + internship.getTotalSlots());
+            out.println("   Opening: " + internship.getOpeningDate());
+            out.println("   Closing: " + internship.getClosingDate());
+            out.println("   Description: " + internship.getDescription());
+        }
+        
+        out.print("\nEnter internship number to process (0 to cancel): ");
         try {
             int choice = Integer.parseInt(scanner.nextLine().trim());
             if (choice == 0) return;
             
             if (choice < 1 || choice > pendingInternships.size()) {
-                System.out.println("Invalid choice.");
+                out.println("Invalid choice.");
                 return;
             }
             
             Internship selectedInternship = pendingInternships.get(choice - 1);
             
-            System.out.println("\n1. Approve");
-            System.out.println("2. Reject");
-            System.out.print("Enter choice: ");
+            out.println("\n1. Approve");
+            out.println("2. Reject");
+            out.print("Enter choice: ");
             String action = scanner.nextLine().trim();
             
             if (action.equals("1")) {
                 selectedInternship.setStatus(InternshipStatus.APPROVED);
-                System.out.println("\nInternship approved! Now visible to eligible students.");
+                out.println("\nInternship approved! Now visible to eligible students.");
             } else if (action.equals("2")) {
                 selectedInternship.setStatus(InternshipStatus.REJECTED);
-                System.out.println("\nInternship rejected.");
+                out.println("\nInternship rejected.");
             } else {
-                System.out.println("Invalid choice.");
+                out.println("Invalid choice.");
             }
             
         } catch (NumberFormatException e) {
-            System.out.println("Invalid input.");
+            out.println("Invalid input.");
         }
     }
     
@@ -216,18 +309,19 @@ public class CareerStaffUI {
      * Handles processing of withdrawal requests.
      */
     private void processWithdrawalRequests() {
-        System.out.println("\n=== PROCESS WITHDRAWAL REQUESTS ===");
+        out.println("\n=== PROCESS WITHDRAWAL REQUESTS ===");
         
-        List<WithdrawalRequest> pendingRequests = dataController.getAllWithdrawalRequests().stream()
-            .filter(r -> r.getStatus() == WithdrawalStatus.PENDING)
-            .collect(Collectors.toList());
+        List<WithdrawalRequest> pendingRequests = dataController.queryWithdrawalRequests()
+            .status(WithdrawalStatus.PENDING)
+            .orderBy(WithdrawalQuery.BY_DATE)
+            .list();
         
         if (pendingRequests.isEmpty()) {
-            System.out.println("No pending withdrawal requests.");
+            out.println("No pending withdrawal requests.");
             return;
         }
         
-        System.out.println("\nPending Withdrawal Requests:");
+        out.println("\nPending Withdrawal Requests:");
         for (int i = 0; i < pendingRequests.size(); i++) {
             WithdrawalRequest request = pendingRequests.get(i);
             Application application = dataController.getApplicationById(request.getApplicationId());
@@ -238,69 +332,50 @@ public class CareerStaffUI {
                 internship = dataController.getInternshipById(application.getInternshipId());
             }
             
-            System.out.println("\n" + (i + 1) + ". Request ID: " + request.getRequestId());
-            System.out.println("   Student: " + (student != null ? student.getName() : "N/A"));
-            System.out.println("   Internship: " + (internship != null ? internship.getTitle() : "N/A"));
-            System.out.println("   After Confirmation: " + (request.isAfterConfirmation() ? "YES" : "NO"));
-            System.out.println("   Reason: " + request.getReason());
-            System.out.println("   Requested: " + request.getRequestDate());
+            out.println("\n" + (i + 1) + ". Request ID: " + request.getRequestId());
+            out.println("   Student: " + (student != null ? student.getName() : "N/A"));
+            out.println("   Internship: " + (internship != null ? internship.getTitle() : "N/A"));
+            out.println("   After Confirmation: " + (request.isAfterConfirmation() ? "YES" : "NO"));
+            out.println("   Reason: " + request.getReason());
+            out.println("   Requested: " + request.getRequestDate());
         }
         
-        System.out.print("\nEnter request number to process (0 to cancel): ");
+        out.print("\nEnter request number to process (0 to cancel): ");
         try {
             int choice = Integer.parseInt(scanner.nextLine().trim());
             if (choice == 0) return;
             
             if (choice < 1 || choice > pendingRequests.size()) {
-                System.out.println("Invalid choice.");
+                out.println("Invalid choice.");
                 return;
             }
             
             WithdrawalRequest selectedRequest = pendingRequests.get(choice - 1);
-            Application application = dataController.getApplicationById(selectedRequest.getApplicationId());
             
-            System.out.println("\n1. Approve");
-            System.out.println("2. Reject");
-            System.out.print("Enter choice: ");
+            out.println("\n1. Approve");
+            out.println("2. Reject");
+            out.print("Enter choice: ");
             String action = scanner.nextLine().trim();
             
             if (action.equals("1")) {
-                selectedRequest.setStatus(WithdrawalStatus.APPROVED);
-                
-                if (application != null) {
-                    application.setStatus(ApplicationStatus.WITHDRAWN);
-                    
-                    // If placement was confirmed, free up the slot
-                    if (application.isPlacementConfirmed()) {
-                        Internship internship = dataController.getInternshipById(application.getInternshipId());
-                        if (internship != null) {
-                            internship.removeConfirmedStudent(selectedRequest.getStudentId());
-                            
-                            Student student = (Student) dataController.getUserById(selectedRequest.getStudentId());
-                            if (student != null) {
-                                student.setConfirmedInternshipId(null);
-                            }
-                        }
-                        application.setPlacementConfirmed(false);
-                    }
-                    
-                    Student student = (Student) dataController.getUserById(selectedRequest.getStudentId());
-                    if (student != null) {
-                        student.removeApplication(application.getApplicationId());
-                    }
+                if (dataController.approveWithdrawal(selectedRequest)) {
+                    out.println("\nWithdrawal request approved!");
+                } else {
+                    out.println("\nThis request has already been processed.");
                 }
                 
-                System.out.println("\nWithdrawal request approved!");
-                
             } else if (action.equals("2")) {
-                selectedRequest.setStatus(WithdrawalStatus.REJECTED);
-                System.out.println("\nWithdrawal request rejected.");
+                if (dataController.rejectWithdrawal(selectedRequest)) {
+                    out.println("\nWithdrawal request rejected.");
+                } else {
+                    out.println("\nThis request has already been processed.");
+                }
             } else {
-                System.out.println("Invalid choice.");
+                out.println("Invalid choice.");
             }
             
         } catch (NumberFormatException e) {
-            System.out.println("Invalid input.");
+            out.println("Invalid input.");
         }
     }
     
@@ -308,45 +383,232 @@ public class CareerStaffUI {
      * Generates comprehensive reports on internship opportunities.
      */
     private void generateReports() {
-        System.out.println("\n=== GENERATE REPORTS ===");
-        System.out.println("1. All Internships Report");
-        System.out.println("2. Filter by Status");
-        System.out.println("3. Filter by Major");
-        System.out.println("4. Filter by Level");
-        System.out.println("5. Filter by Company");
-        System.out.print("Enter choice: ");
+        out.println("\n=== GENERATE REPORTS ===");
+        out.println("1. All Internships Report");
+        out.println("2. Filter by Status");
+        out.println("3. Filter by Major");
+        out.println("4. Filter by Level");
+        out.println("5. Filter by Company");
+        out.println("6. Export to File");
+        out.println("7. Search by Keyword");
+        out.println("8. Compound Report");
+        out.print("Enter choice: ");
         
         String choice = scanner.nextLine().trim();
-        List<Internship> internships = dataController.getAllInternships();
         
         switch (choice) {
             case "1":
-                displayInternshipReport(internships, "All Internships");
+                allInternshipsReport();
                 break;
             case "2":
-                filterByStatus(internships);
+                filterByStatus();
                 break;
             case "3":
-                filterByMajor(internships);
+                filterByMajor();
                 break;
             case "4":
-                filterByLevel(internships);
+                filterByLevel();
                 break;
             case "5":
-                filterByCompany(internships);
+                filterByCompany();
+                break;
+            case "6":
+                exportReport();
                 break;
+            case "7":
+                searchInternships();
+                break;
+            case "8":
+                compoundReport();
+                break;
+            default:
+                out.println("Invalid choice.");
+        }
+    }
+    
+    /**
+     * Runs a report combining several internship filters, with sorting and a limit.
+     */
+    private void compoundReport() {
+        out.println("\n=== COMPOUND REPORT ===");
+        out.println("Leave a filter blank to skip it.");
+        InternshipQuery query = dataController.queryInternships();
+        
+        try {
+            out.print("Status (PENDING/APPROVED/REJECTED/FILLED): ");
+            String status = scanner.nextLine().trim();
+            if (!status.isEmpty()) {
+                query.status(InternshipStatus.valueOf(status.toUpperCase()));
+            }
+            out.print("Level (BASIC/INTERMEDIATE/ADVANCED): ");
+            String level = scanner.nextLine().trim();
+            if (!level.isEmpty()) {
+                query.level(InternshipLevel.valueOf(level.toUpperCase()));
+            }
+        } catch (IllegalArgumentException e) {
+            out.println("Invalid status or level.");
+            return;
+        }
+        out.print("Major: ");
+        String major = scanner.nextLine().trim();
+        if (!major.isEmpty()) {
+            query.major(major);
+        }
+        out.print("Company name contains: ");
+        String company = scanner.nextLine().trim();
+        if (!company.isEmpty()) {
+            query.company(company);
+        }
+        
+        try {
+            out.print("Closing within how many days: ");
+            String days = scanner.nextLine().trim();
+            if (!days.isEmpty()) {
+                query.closingWithin(Integer.parseInt(days));
+            }
+            out.print("Sort by (1. Title  2. Closing Date  3. Company, default Title): ");
+            String sort = scanner.nextLine().trim();
+            query.orderBy(sort.equals("2") ? InternshipQuery.BY_CLOSING_DATE
+                        : sort.equals("3") ? InternshipQuery.BY_COMPANY : InternshipQuery.BY_TITLE);
+            out.print("Maximum results: ");
+            String limit = scanner.nextLine().trim();
+            if (!limit.isEmpty()) {
+                query.limit(Integer.parseInt(limit));
+            }
+        } catch (NumberFormatException e) {
+            out.println("Invalid number.");
+            return;
+        }
+        
+        long start = System.nanoTime();
+        List<Internship> results = query.list();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        
+        out.println("\nPlan: " + query.explain());
+        out.println("Found " + results.size() + " internship(s) in " + elapsed + " ms.");
+        for (Internship internship : results) {
+            out.println("\n" + internship.getInternshipId() + ": " + internship.getTitle());
+            out.println("   Company: " + internship.getCompanyName());
+            out.println("   Level: " + internship.getLevel());
+            out.println("   Major: " + internship.getPreferredMajor());
+            out.println("   Status: " + internship.getStatus());
+            out.println("   Closing: " + internship.getClosingDate());
+        }
+    }
+    
+    /**
+     * Searches all internships by keyword and shows the best matches.
+     */
+    private void searchInternships() {
+        out.print("\nEnter keywords: ");
+        String query = scanner.nextLine().trim();
+        
+        if (query.isEmpty()) {
+            out.println("No keywords entered.");
+            return;
+        }
+        
+        List<Internship> results = dataController.searchInternships(query, 20);
+        out.println("\n=== Search Results: " + query + " ===");
+        if (results.isEmpty()) {
+            out.println("No internships found.");
+            return;
+        }
+        
+        for (Internship internship : results) {
+            out.println("\n" + internship.getInternshipId() + ": " + internship.getTitle());
+            out.println("   Company: " + internship.getCompanyName());
+            out.println("   Level: " + internship.getLevel());
+            out.println("   Major: " + internship.getPreferredMajor());
+            out.println("   Status: " + internship.getStatus());
+        }
+    }
+    
+    /**
+     * Exports internships, applications or withdrawal requests to a CSV or JSON file.
+     */
+    private void exportReport() {
+        out.println("\n=== EXPORT TO FILE ===");
+        out.println("1. Internships");
+        out.println("2. Applications");
+        out.println("3. Withdrawal Requests");
+        out.print("Enter choice: ");
+        String choice = scanner.nextLine().trim();
+        
+        List<String> available;
+        switch (choice) {
+            case "1": available = ReportExporter.getInternshipColumns(); break;
+            case "2": available = ReportExporter.getApplicationColumns(); break;
+            case "3": available = ReportExporter.getWithdrawalColumns(); break;
             default:
-                System.out.println("Invalid choice.");
+                out.println("Invalid choice.");
+                return;
+        }
+        
+        ReportExporter.Filter filter = new ReportExporter.Filter();
+        try {
+            out.print("Internship status (PENDING/APPROVED/REJECTED/FILLED, blank for any): ");
+            String status = scanner.nextLine().trim();
+            if (!status.isEmpty()) {
+                filter.setStatus(InternshipStatus.valueOf(status.toUpperCase()));
+            }
+            out.print("Internship level (BASIC/INTERMEDIATE/ADVANCED, blank for any): ");
+            String level = scanner.nextLine().trim();
+            if (!level.isEmpty()) {
+                filter.setLevel(InternshipLevel.valueOf(level.toUpperCase()));
+            }
+        } catch (IllegalArgumentException e) {
+            out.println("Invalid status or level.");
+            return;
+        }
+        out.print("Preferred major (blank for any): ");
+        String major = scanner.nextLine().trim();
+        if (!major.isEmpty()) {
+            filter.setMajor(major);
+        }
+        out.print("Company name contains (blank for any): ");
+        String company = scanner.nextLine().trim();
+        if (!company.isEmpty()) {
+            filter.setCompany(company);
+        }
+        
+        out.println("Available columns: " + String.join(", ", available));
+        out.print("Columns to export (comma-separated, blank for all): ");
+        String columnInput = scanner.nextLine().trim();
+        List<String> columns = columnInput.isEmpty()
+            ? Collections.emptyList() : Arrays.asList(columnInput.split(","));
+        
+        out.print("Enter file path (.csv or .json): ");
+        String path = scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            out.println("No file path given.");
+            return;
+        }
+        File file = new File(path);
+        
+        ReportExporter exporter = new ReportExporter(dataController);
+        try {
+            int exported;
+            switch (choice) {
+                case "1": exported = exporter.exportInternships(file, filter, columns); break;
+                case "2": exported = exporter.exportApplications(file, filter, columns); break;
+                default: exported = exporter.exportWithdrawalRequests(file, filter, columns);
+            }
+            out.println("Exported " + exported + " record(s) to " + file.getPath() + ".");
+        } catch (IllegalArgumentException e) {
+            out.println(e.getMessage());
+        } catch (IOException e) {
+            out.println("Export failed: " + e.getMessage());
         }
     }
     
-    private void filterByStatus(List<Internship> internships) {
-        System.out.println("\nSelect Status:");
-        System.out.println("1. PENDING");
-        System.out.println("2. APPROVED");
-        System.out.println("3. REJECTED");
-        System.out.println("4. FILLED");
-        System.out.print("Enter choice: ");
+    private void filterByStatus() {
+        out.println("\nSelect Status:");
+        out.println("1. PENDING");
+        out.println("2. APPROVED");
+        out.println("3. REJECTED");
+        out.println("4. FILLED");
+        out.print("Enter choice: ");
         
         String choice = scanner.nextLine().trim();
         final InternshipStatus status;
@@ -357,34 +619,30 @@ public class CareerStaffUI {
             case "3": status = InternshipStatus.REJECTED; break;
             case "4": status = InternshipStatus.FILLED; break;
             default:
-                System.out.println("Invalid choice.");
+                out.println("Invalid choice.");
                 return;
         }
 
-        List<Internship> filtered = internships.stream()
-            .filter(i -> i.getStatus() == status)
-            .collect(Collectors.toList());
+        List<Internship> filtered = dataController.queryInternships().status(status).list();
         
         displayInternshipReport(filtered, "Internships with Status: " + status);
     }
     
-    private void filterByMajor(List<Internship> internships) {
-        System.out.print("\nEnter Major (e.g., CSC, EEE, MAE, ANY): ");
+    private void filterByMajor() {
+        out.print("\nEnter Major (e.g., CSC, EEE, MAE, ANY): ");
         String major = scanner.nextLine().trim().toUpperCase();
         
-        List<Internship> filtered = internships.stream()
-            .filter(i -> i.getPreferredMajor().equalsIgnoreCase(major))
-            .collect(Collectors.toList());
+        List<Internship> filtered = dataController.queryInternships().major(major).list();
         
         displayInternshipReport(filtered, "Internships for Major: " + major);
     }
     
-    private void filterByLevel(List<Internship> internships) {
-        System.out.println("\nSelect Level:");
-        System.out.println("1. BASIC");
-        System.out.println("2. INTERMEDIATE");
-        System.out.println("3. ADVANCED");
-        System.out.print("Enter choice: ");
+    private void filterByLevel() {
+        out.println("\nSelect Level:");
+        out.println("1. BASIC");
+        out.println("2. INTERMEDIATE");
+        out.println("3. ADVANCED");
+        out.print("Enter choice: ");
         
         String choice = scanner.nextLine().trim();
         final InternshipLevel level;
@@ -394,73 +652,93 @@ public class CareerStaffUI {
             case "2": level = InternshipLevel.INTERMEDIATE; break;
             case "3": level = InternshipLevel.ADVANCED; break;
             default:
-                System.out.println("Invalid choice.");
+                out.println("Invalid choice.");
                 return;
         }
         
-        List<Internship> filtered = internships.stream()
-            .filter(i -> i.getLevel() == level)
-            .collect(Collectors.toList());
+        List<Internship> filtered = dataController.queryInternships().level(level).list();
         
         displayInternshipReport(filtered, "Internships with Level: " + level);
     }
     
-    private void filterByCompany(List<Internship> internships) {
-        System.out.print("\nEnter Company Name: ");
+    private void filterByCompany() {
+        out.print("\nEnter Company Name: ");
         String companyName = scanner.nextLine().trim();
         
-        List<Internship> filtered = internships.stream()
-            .filter(i -> i.getCompanyName().toLowerCase().contains(companyName.toLowerCase()))
-            .collect(Collectors.toList());
+        List<Internship> filtered = dataController.getInternshipsByCompany(companyName);
         
         displayInternshipReport(filtered, "Internships for Company: " + companyName);
     }
     
     private void displayInternshipReport(List<Internship> internships, String title) {
-        System.out.println("\n=== " + title + " ===");
-        System.out.println("Total: " + internships.size());
+        out.println("\n=== " + title + " ===");
+        out.println("Total: " + internships.size());
         
         if (internships.isEmpty()) {
-            System.out.println("No internships found.");
+            out.println("No internships found.");
             return;
         }
         
         internships.sort(Comparator.comparing(Internship::getTitle));
-        
-        for (Internship internship : internships) {
-            System.out.println("\n" + internship.getInternshipId() + ": " + internship.getTitle());
-            System.out.println("   Company: " + internship.getCompanyName());
-            System.out.println("   Level: " + internship.getLevel());
-            System.out.println("   Major: " + internship.getPreferredMajor());
-            System.out.println("   Status: " + internship.getStatus());
-            System.out.println("   Visibility: " + (internship.isVisible() ? "ON" : "OFF"));
-            System.out.println("   Slots: " + internship.getAvailableSlots() + "/" + internship.getTotalSlots());
-            System.out.println("   Applications: " + internship.getApplicationIds().size());
-            System.out.println("   Confirmed: " + internship.getConfirmedStudentIds().size());
-        }
+        displayInternshipDetails(internships);
     }
     
     /**
-     * Displays all internships in the system.
+     * Displays every internship in the report format, one page at a time in ID order.
      */
-    private void viewAllInternships() {
-        System.out.println("\n=== ALL INTERNSHIPS ===");
+    private void allInternshipsReport() {
+        out.println("\n=== All Internships ===");
+        out.println("Total: " + dataController.getInternshipCount());
         
-        List<Internship> allInternships = dataController.getAllInternships();
+        boolean found = Pager.browse(scanner, out,
+            cursor -> dataController.getInternshipPage(cursor, Pager.PAGE_SIZE),
+            (internships, firstIndex) -> displayInternshipDetails(internships));
         
-        if (allInternships.isEmpty()) {
-            System.out.println("No internships in the system.");
-            return;
+        if (!found) {
+            out.println("No internships found.");
         }
+    }
+    
+    private void displayInternshipDetails(List<Internship> internships) {
+        // Slot and confirmation counts are read together, so they always agree
+        String details = dataController.readSnapshot(() -> {
+            StringBuilder text = new StringBuilder();
+            for (Internship internship : internships) {
+                text.append("\n").append(internship.getInternshipId()).append(": ").append(internship.getTitle()).append("\n");
+                text.append("   Company: ").append(internship.getCompanyName()).append("\n");
+                text.append("   Level: ").append(internship.getLevel()).append("\n");
+                text.append("   Major: ").append(internship.getPreferredMajor()).append("\n");
+                text.append("   Status: ").append(internship.getStatus()).append("\n");
+                text.append("   Visibility: ").append(internship.isVisible() ? "ON" : "OFF").append("\n");
+                text.append("   Slots: ").append(internship.getAvailableSlots()).append("/").append(internship.getTotalSlots()).append("\n");
+                text.append("   Applications: ").append(internship.getApplicationIds().size()).append("\n");
+                text.append("   Confirmed: ").append(internship.getConfirmedStudentIds().size()).append("\n");
+            }
+            return text.toString();
+        });
+        out.print(details);
+    }
+    
+    /**
+     * Displays all internships in the system, one page at a time in ID order.
+     */
+    private void viewAllInternships() {
+        out.println("\n=== ALL INTERNSHIPS ===");
+        
+        boolean found = Pager.browse(scanner, out,
+            cursor -> dataController.getInternshipPage(cursor, Pager.PAGE_SIZE),
+            (internships, firstIndex) -> {
+                for (Internship internship : internships) {
+                    out.println("\n" + internship.getInternshipId() + ": " + internship.getTitle());
+                    out.println("   Company: " + internship.getCompanyName());
+                    out.println("   Level: " + internship.getLevel());
+                    out.println("   Status: " + internship.getStatus());
+                    out.println("   Slots: " + internship.getAvailableSlots() + "/" + internship.getTotalSlots());
+                }
+            });
         
-        allInternships.sort(Comparator.comparing(Internship::getTitle));
-        
-        for (Internship internship : allInternships) {
-            System.out.println("\n" + internship.getInternshipId() + ": " + internship.getTitle());
-            System.out.println("   Company: " + internship.getCompanyName());
-            System.out.println("   Level: " + internship.getLevel());
-            System.out.println("   Status: " + internship.getStatus());
-            System.out.println("   Slots: " + internship.getAvailableSlots() + "/" + internship.getTotalSlots());
+        if (!found) {
+            out.println("No internships in the system.");
         }
     }
     
@@ -468,26 +746,26 @@ public class CareerStaffUI {
      * Handles password change.
      */
     private void changePassword() {
-        System.out.println("\n=== CHANGE PASSWORD ===");
+        out.println("\n=== CHANGE PASSWORD ===");
         
-        System.out.print("Enter current password: ");
+        out.print("Enter current password: ");
         String oldPassword = scanner.nextLine().trim();
         
-        System.out.print("Enter new password: ");
+        out.print("Enter new password: ");
         String newPassword = scanner.nextLine().trim();
         
-        System.out.print("Confirm new password: ");
+        out.print("Confirm new password: ");
         String confirmPassword = scanner.nextLine().trim();
         
         if (!newPassword.equals(confirmPassword)) {
-            System.out.println("New passwords do not match.");
+            out.println("New passwords do not match.");
             return;
         }
         
         if (authController.changePassword(staff, oldPassword, newPassword)) {
-            System.out.println("Password changed successfully!");
+            out.println("Password changed successfully!");
         } else {
-            System.out.println("Current password is incorrect.");
+            out.println("Current password is incorrect.");
         }
     }
 }
\ No newline at end of file
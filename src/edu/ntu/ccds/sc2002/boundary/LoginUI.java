@@ -2,6 +2,7 @@ package edu.ntu.ccds.sc2002.boundary;
 
 import edu.ntu.ccds.sc2002.control.AuthenticationController;
 import edu.ntu.ccds.sc2002.entity.*;
+import java.io.PrintStream;
 import java.util.Scanner;
 
 /**
@@ -12,14 +13,27 @@ public class LoginUI {
     
     private AuthenticationController authController;
     private Scanner scanner;
+    private PrintStream out;
     
     /**
      * Constructs a LoginUI with specified authentication controller.
      * @param authController the auth controller
      */
     public LoginUI(AuthenticationController authController) {
+        this(authController, new Scanner(System.in), System.out);
+    }
+    
+    /**
+     * Constructs a LoginUI that reads from and prints to the given streams.
+     * The menus opened after login use the same streams.
+     * @param authController the auth controller
+     * @param scanner the scanner reading the user's input
+     * @param out the stream the interface is printed to
+     */
+    public LoginUI(AuthenticationController authController, Scanner scanner, PrintStream out) {
         this.authController = authController;
-        this.scanner = new Scanner(System.in);
+        this.scanner = scanner;
+        this.out = out;
     }
     
     /**
@@ -29,11 +43,11 @@ public class LoginUI {
         boolean running = true;
         
         while (running) {
-            System.out.println("\n=== LOGIN MENU ===");
-            System.out.println("1. Login");
-            System.out.println("2. Register as Company Representative");
-            System.out.println("3. Exit");
-            System.out.print("Enter choice: ");
+            out.println("\n=== LOGIN MENU ===");
+            out.println("1. Login");
+            out.println("2. Register as Company Representative");
+            out.println("3. Exit");
+            out.print("Enter choice: ");
             
             String choice = scanner.nextLine().trim();
             
@@ -45,11 +59,11 @@ public class LoginUI {
                     handleCompanyRegistration();
                     break;
                 case "3":
-                    System.out.println("Exiting system...");
+                    out.println("Exiting system...");
                     running = false;
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -58,30 +72,33 @@ public class LoginUI {
      * Handles user login process.
      */
     private void handleLogin() {
-        System.out.print("\nEnter User ID: ");
+        out.print("\nEnter User ID: ");
         String userId = scanner.nextLine().trim();
         
-        System.out.print("Enter Password: ");
+        out.print("Enter Password: ");
         String password = scanner.nextLine().trim();
         
         User user = authController.login(userId, password);
         
         if (user == null) {
-            System.out.println("Login failed. Invalid credentials or account not approved.");
+            if (authController.isPendingApproval(userId)) {
+                out.println("Your account is pending approval from Career Center Staff.");
+            }
+            out.println("Login failed. Invalid credentials or account not approved.");
             return;
         }
         
-        System.out.println("\nLogin successful! Welcome, " + user.getName());
+        out.println("\nLogin successful! Welcome, " + user.getName());
         
         // Redirect to appropriate menu based on role
         if (user instanceof Student) {
-            StudentUI studentUI = new StudentUI((Student) user);
+            StudentUI studentUI = new StudentUI((Student) user, scanner, out);
             studentUI.displayMenu();
         } else if (user instanceof CompanyRepresentative) {
-            CompanyRepUI companyUI = new CompanyRepUI((CompanyRepresentative) user);
+            CompanyRepUI companyUI = new CompanyRepUI((CompanyRepresentative) user, scanner, out);
             companyUI.displayMenu();
         } else if (user instanceof CareerCenterStaff) {
-            CareerStaffUI staffUI = new CareerStaffUI((CareerCenterStaff) user);
+            CareerStaffUI staffUI = new CareerStaffUI((CareerCenterStaff) user, scanner, out);
             staffUI.displayMenu();
         }
     }
@@ -90,29 +107,29 @@ public class LoginUI {
      * Handles company representative registration.
      */
     private void handleCompanyRegistration() {
-        System.out.println("\n=== COMPANY REPRESENTATIVE REGISTRATION ===");
+        out.println("\n=== COMPANY REPRESENTATIVE REGISTRATION ===");
         
-        System.out.print("Enter Company Email: ");
+        out.print("Enter Company Email: ");
         String email = scanner.nextLine().trim();
         
         if (!email.contains("@")) {
-            System.out.println("Invalid email format.");
+            out.println("Invalid email format.");
             return;
         }
         
-        System.out.print("Enter Your Name: ");
+        out.print("Enter Your Name: ");
         String name = scanner.nextLine().trim();
         
-        System.out.print("Enter Password: ");
+        out.print("Enter Password: ");
         String password = scanner.nextLine().trim();
         
-        System.out.print("Enter Company Name: ");
+        out.print("Enter Company Name: ");
         String companyName = scanner.nextLine().trim();
         
-        System.out.print("Enter Department: ");
+        out.print("Enter Department: ");
         String department = scanner.nextLine().trim();
         
-        System.out.print("Enter Position: ");
+        out.print("Enter Position: ");
         String position = scanner.nextLine().trim();
         
         boolean success = authController.registerCompanyRepresentative(
@@ -120,11 +137,11 @@ public class LoginUI {
         );
         
         if (success) {
-            System.out.println("\nRegistration successful!");
-            System.out.println("Your account is pending approval from Career Center Staff.");
-            System.out.println("You will be able to login once approved.");
+            out.println("\nRegistration successful!");
+            out.println("Your account is pending approval from Career Center Staff.");
+            out.println("You will be able to login once approved.");
         } else {
-            System.out.println("\nRegistration failed. User already exists.");
+            out.println("\nRegistration failed. User already exists.");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package edu.ntu.ccds.sc2002.boundary;
+
+import edu.ntu.ccds.sc2002.control.Page;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Shows a listing one page at a time, letting the user move to the next or
+ * previous page.
+ * <p>
+ * Pages are fetched by cursor, so only the page on screen is read. The
+ * cursors of the pages already shown are kept so the user can go back.
+ */
+class Pager {
+
+    /**
+     * Number of items shown on each page.
+     */
+    static final int PAGE_SIZE = 10;
+
+    private Pager() {
+    }
+
+    /**
+     * Shows a listing until the user stops or leaves the last page.
+     * A listing that fits on one page is shown without a prompt.
+     * @param scanner the scanner reading the user's choices
+     * @param out the stream the listing is printed to
+     * @param fetch fetches the page at a cursor, or the first page for null
+     * @param display shows the items of a page, given the position of the first item from 0
+     * @return false, if the listing is empty and nothing was shown
+     */
+    static <T> boolean browse(Scanner scanner, PrintStream out, Function<String, Page<T>> fetch,
+                              BiConsumer<List<T>, Integer> display) {
+        // Cursors of the pages shown so far; the first page has a null cursor
+        List<String> cursors = new ArrayList<>();
+        cursors.add(null);
+
+        while (true) {
+            int number = cursors.size();
+            Page<T> page = fetch.apply(cursors.get(number - 1));
+            if (number == 1 && page.getItems().isEmpty()) {
+                return false;
+            }
+            display.accept(page.getItems(), (number - 1) * PAGE_SIZE);
+            if (number == 1 && !page.hasNext()) {
+                return true;
+            }
+
+            out.println("\n--- Page " + number + (page.hasNext() ? "" : " (last)") + " ---");
+            String options = (page.hasNext() ? "N. Next page  " : "") + (number > 1 ? "P. Previous page  " : "");
+            out.print(options + "Enter to stop: ");
+            String choice = scanner.nextLine().trim().toUpperCase();
+
+            if (choice.equals("N") && page.hasNext()) {
+                cursors.add(page.getNextCursor());
+            } else if (choice.equals("P") && number > 1) {
+                cursors.remove(number - 1);
+            } else if (choice.isEmpty()) {
+                return true;
+            } else {
+                out.println("Invalid choice.");
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package edu.ntu.ccds.sc2002.boundary;
 
 import edu.ntu.ccds.sc2002.control.*;
 import edu.ntu.ccds.sc2002.entity.*;
+import java.io.PrintStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -10,20 +11,37 @@ import java.util.stream.Collectors;
  */
 public class StudentUI {
     
+    /**
+     * Maximum number of search results shown.
+     */
+    private static final int SEARCH_LIMIT = 10;
+    
     private Student student;
     private DataController dataController;
     private AuthenticationController authController;
     private Scanner scanner;
+    private PrintStream out;
     
     /**
      * Constructs a StudentUI for the specified student.
      * @param student the student
      */
     public StudentUI(Student student) {
+        this(student, new Scanner(System.in), System.out);
+    }
+    
+    /**
+     * Constructs a StudentUI for the specified student.
+     * @param student the student
+     * @param scanner the scanner reading the user's input
+     * @param out the stream the interface is printed to
+     */
+    public StudentUI(Student student, Scanner scanner, PrintStream out) {
         this.student = student;
         this.dataController = DataController.getInstance();
         this.authController = new AuthenticationController();
-        this.scanner = new Scanner(System.in);
+        this.scanner = scanner;
+        this.out = out;
     }
     
     /**
@@ -33,8 +51,8 @@ public class StudentUI {
         boolean running = true;
         
         while (running) {
-            student.displayMenu();
-            System.out.print("Enter choice: ");
+            student.displayMenu(out);
+            out.print("Enter choice: ");
             String choice = scanner.nextLine().trim();
             
             switch (choice) {
@@ -57,11 +75,14 @@ public class StudentUI {
                     changePassword();
                     break;
                 case "7":
-                    System.out.println("Logging out...");
+                    searchInternships();
+                    break;
+                case "8":
+                    out.println("Logging out...");
                     running = false;
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -70,31 +91,51 @@ public class StudentUI {
      * Displays available internships for the student.
      */
     private void viewAvailableInternships() {
-        System.out.println("\n=== AVAILABLE INTERNSHIPS ===");
+        out.println("\n=== AVAILABLE INTERNSHIPS ===");
         
-        List<Internship> availableInternships = dataController.getAllInternships().stream()
-            .filter(i -> i.isVisible() && 
-                        i.isEligibleForStudent(student.getYearOfStudy(), student.getMajor()) &&
-                        i.getStatus() == InternshipStatus.APPROVED)
-            .sorted(Comparator.comparing(Internship::getTitle))
-            .collect(Collectors.toList());
+        boolean found = Pager.browse(scanner, out,
+            cursor -> dataController.getEligibleInternshipPage(student, cursor, Pager.PAGE_SIZE),
+            this::displayInternshipList);
+        
+        if (!found) {
+            out.println("No internships available for your profile.");
+        }
+    }
+    
+    /**
+     * Searches the internships available to the student by keyword.
+     */
+    private void searchInternships() {
+        out.println("\n=== SEARCH INTERNSHIPS ===");
+        out.print("Enter keywords: ");
+        String query = scanner.nextLine().trim();
         
-        if (availableInternships.isEmpty()) {
-            System.out.println("No internships available for your profile.");
+        if (query.isEmpty()) {
+            out.println("No keywords entered.");
             return;
         }
         
-        for (int i = 0; i < availableInternships.size(); i++) {
-            Internship internship = availableInternships.get(i);
-            System.out.println("\n" + (i + 1) + ". " + internship.getTitle());
-            System.out.println("   Internship ID: " + internship.getInternshipId());
-            System.out.println("   Company: " + internship.getCompanyName());
-            System.out.println("   Level: " + internship.getLevel());
-            System.out.println("   Major: " + internship.getPreferredMajor());
-            System.out.println("   Available Slots: " + internship.getAvailableSlots());
-            System.out.println("   Opening Date: " + internship.getOpeningDate());
-            System.out.println("   Closing Date: " + internship.getClosingDate());
-            System.out.println("   Description: " + internship.getDescription());
+        List<Internship> results = dataController.searchEligibleInternships(student, query, SEARCH_LIMIT);
+        if (results.isEmpty()) {
+            out.println("No matching internships available for your profile.");
+            return;
+        }
+        
+        displayInternshipList(results, 0);
+    }
+    
+    private void displayInternshipList(List<Internship> internships, int firstIndex) {
+        for (int i = 0; i < internships.size(); i++) {
+            Internship internship = internships.get(i);
+            out.println("\n" + (firstIndex + i + 1) + ". " + internship.getTitle());
+            out.println("   Internship ID: " + internship.getInternshipId());
+            out.println("   Company: " + internship.getCompanyName());
+            out.println("   Level: " + internship.getLevel());
+            out.println("   Major: " + internship.getPreferredMajor());
+            out.println("   Available Slots: " + internship.getAvailableSlots());
+            out.println("   Opening Date: " + internship.getOpeningDate());
+            out.println("   Closing Date: " + internship.getClosingDate());
+            out.println("   Description: " + internship.getDescription());
         }
     }
     
@@ -103,32 +144,32 @@ public class StudentUI {
      */
     private void applyForInternship() {
         if (student.hasConfirmedInternship()) {
-            System.out.println("\nYou have already confirmed an internship placement.");
+            out.println("\nYou have already confirmed an internship placement.");
             return;
         }
         
         if (student.hasReachedApplicationLimit()) {
-            System.out.println("\nYou have reached the maximum of 3 applications.");
+            out.println("\nYou have reached the maximum of 3 applications.");
             return;
         }
         
-        System.out.print("\nEnter Internship ID to apply: ");
+        out.print("\nEnter Internship ID to apply: ");
         String internshipId = scanner.nextLine().trim();
         
         Internship internship = dataController.getInternshipById(internshipId);
         
         if (internship == null) {
-            System.out.println("Internship not found.");
+            out.println("Internship not found.");
             return;
         }
         
-        if (!internship.isAcceptingApplications()) {
-            System.out.println("This internship is not currently accepting applications.");
+        if (!dataController.isAcceptingApplications(internship)) {
+            out.println("This internship is not currently accepting applications.");
             return;
         }
         
         if (!internship.isEligibleForStudent(student.getYearOfStudy(), student.getMajor())) {
-            System.out.println("You are not eligible for this internship.");
+            out.println("You are not eligible for this internship.");
             return;
         }
         
@@ -138,7 +179,7 @@ public class StudentUI {
             .anyMatch(a -> a.getInternshipId().equals(internshipId));
         
         if (alreadyApplied) {
-            System.out.println("You have already applied for this internship.");
+            out.println("You have already applied for this internship.");
             return;
         }
         
@@ -147,35 +188,44 @@ public class StudentUI {
         Application application = new Application(appId, student.getUserId(), internshipId);
 
         // Controller handles the transaction
-        dataController.processNewApplication(application);
+        if (!dataController.processNewApplication(application)) {
+            out.println("\nThe application could not be submitted. Please try again.");
+            return;
+        }
         
-        System.out.println("\nApplication submitted successfully!");
-        System.out.println("Application ID: " + appId);
+        out.println("\nApplication submitted successfully!");
+        out.println("Application ID: " + appId);
     }
     
     /**
      * Displays student's applications.
      */
     private void viewMyApplications() {
-        System.out.println("\n=== MY APPLICATIONS ===");
+        out.println("\n=== MY APPLICATIONS ===");
         
         List<Application> myApplications = dataController.getApplicationsByStudentId(student.getUserId());
         
+        // Applications to internships that have since been archived
+        myApplications.addAll(dataController.getArchivedApplicationsByStudentId(student.getUserId()));
+        
         if (myApplications.isEmpty()) {
-            System.out.println("You have no applications.");
+            out.println("You have no applications.");
             return;
         }
         
         for (Application app : myApplications) {
             Internship internship = dataController.getInternshipById(app.getInternshipId());
+            if (internship == null) {
+                internship = dataController.getArchivedInternship(app.getInternshipId());
+            }
             
-            System.out.println("\nApplication ID: " + app.getApplicationId());
-            System.out.println("Internship: " + (internship != null ? internship.getTitle() : "N/A"));
-            System.out.println("Company: " + (internship != null ? internship.getCompanyName() : "N/A"));
-            System.out.println("Status: " + app.getStatus());
-            System.out.println("Application Date: " + app.getApplicationDate());
+            out.println("\nApplication ID: " + app.getApplicationId());
+            out.println("Internship: " + (internship != null ? internship.getTitle() : "N/A"));
+            out.println("Company: " + (internship != null ? internship.getCompanyName() : "N/A"));
+            out.println("Status: " + app.getStatus());
+            out.println("Application Date: " + app.getApplicationDate());
             if (app.isPlacementConfirmed()) {
-                System.out.println("Placement: CONFIRMED");
+                out.println("Placement: CONFIRMED");
             }
         }
     }
@@ -185,7 +235,7 @@ public class StudentUI {
      */
     private void acceptInternshipPlacement() {
         if (student.hasConfirmedInternship()) {
-            System.out.println("\nYou have already confirmed an internship placement.");
+            out.println("\nYou have already confirmed an internship placement.");
             return;
         }
         
@@ -196,59 +246,50 @@ public class StudentUI {
             .collect(Collectors.toList());
         
         if (successfulApps.isEmpty()) {
-            System.out.println("\nYou have no successful applications to accept.");
+            out.println("\nYou have no successful applications to accept.");
             return;
         }
         
-        System.out.println("\n=== SUCCESSFUL APPLICATIONS ===");
+        out.println("\n=== SUCCESSFUL APPLICATIONS ===");
         for (int i = 0; i < successfulApps.size(); i++) {
             Application app = successfulApps.get(i);
             Internship internship = dataController.getInternshipById(app.getInternshipId());
-            System.out.println((i + 1) + ". " + app.getApplicationId() + " - " + 
+            out.println((i + 1) + ". " + app.getApplicationId() + " - " + 
                             (internship != null ? internship.getTitle() : "N/A"));
         }
         
         // Input with retry
         boolean validChoice = false;
         while (!validChoice) {
-            System.out.print("\nEnter application number to accept (0 to cancel): ");
+            out.print("\nEnter application number to accept (0 to cancel): ");
             try {
                 int choice = Integer.parseInt(scanner.nextLine().trim());
                 
                 if (choice == 0) {
-                    System.out.println("Cancelled.");
+                    out.println("Cancelled.");
                     return;
                 }
                 
                 if (choice < 1 || choice > successfulApps.size()) {
-                    System.out.println("Invalid choice. Please enter a number between 0 and " + successfulApps.size());
+                    out.println("Invalid choice. Please enter a number between 0 and " + successfulApps.size());
                     continue;
                 }
                 
                 validChoice = true; // Valid input
                 
                 Application selectedApp = successfulApps.get(choice - 1);
-                Internship internship = dataController.getInternshipById(selectedApp.getInternshipId());
-                
-                // Confirm placement
-                selectedApp.setPlacementConfirmed(true);
-                student.setConfirmedInternshipId(internship.getInternshipId());
-                internship.confirmStudent(student.getUserId());
                 
-                // Withdraw all other applications
-                List<Application> otherApps = dataController.getApplicationsByStudentId(student.getUserId());
-                for (Application app : otherApps) {
-                    if (!app.getApplicationId().equals(selectedApp.getApplicationId())) {
-                        app.setStatus(ApplicationStatus.WITHDRAWN);
-                        student.removeApplication(app.getApplicationId());
-                    }
+                // Confirm placement and withdraw all other applications
+                if (!dataController.confirmPlacement(student, selectedApp)) {
+                    out.println("\nThe placement could not be confirmed. The internship may have no slots left.");
+                    return;
                 }
                 
-                System.out.println("\nInternship placement confirmed successfully!");
-                System.out.println("All other applications have been withdrawn.");
+                out.println("\nInternship placement confirmed successfully!");
+                out.println("All other applications have been withdrawn.");
                 
             } catch (NumberFormatException e) {
-                System.out.println("Invalid input. Please enter a number.");
+                out.println("Invalid input. Please enter a number.");
             }
         }
     }
@@ -257,7 +298,7 @@ public class StudentUI {
      * Handles withdrawal request submission.
      */
     private void requestWithdrawal() {
-        System.out.println("\n=== REQUEST WITHDRAWAL ===");
+        out.println("\n=== REQUEST WITHDRAWAL ===");
         
         List<Application> myApps = dataController.getApplicationsByStudentId(student.getUserId());
         List<Application> activeApps = myApps.stream()
@@ -266,15 +307,15 @@ public class StudentUI {
             .collect(Collectors.toList());
         
         if (activeApps.isEmpty()) {
-            System.out.println("You have no active applications to withdraw.");
+            out.println("You have no active applications to withdraw.");
             return;
         }
         
-        System.out.println("Active Applications:");
+        out.println("Active Applications:");
         for (int i = 0; i < activeApps.size(); i++) {
             Application app = activeApps.get(i);
             Internship internship = dataController.getInternshipById(app.getInternshipId());
-            System.out.println((i + 1) + ". " + app.getApplicationId() + " - " + 
+            out.println((i + 1) + ". " + app.getApplicationId() + " - " + 
                             (internship != null ? internship.getTitle() : "N/A") +
                             " [" + app.getStatus() + "]");
         }
@@ -282,17 +323,17 @@ public class StudentUI {
         // Input with retry
         boolean validChoice = false;
         while (!validChoice) {
-            System.out.print("\nEnter application number to withdraw (0 to cancel): ");
+            out.print("\nEnter application number to withdraw (0 to cancel): ");
             try {
                 int choice = Integer.parseInt(scanner.nextLine().trim());
                 
                 if (choice == 0) {
-                    System.out.println("Cancelled.");
+                    out.println("Cancelled.");
                     return;
                 }
                 
                 if (choice < 1 || choice > activeApps.size()) {
-                    System.out.println("Invalid choice. Please enter a number between 0 and " + activeApps.size());
+                    out.println("Invalid choice. Please enter a number between 0 and " + activeApps.size());
                     continue;
                 }
                 
@@ -300,11 +341,11 @@ public class StudentUI {
                 
                 Application selectedApp = activeApps.get(choice - 1);
                 
-                System.out.print("Enter reason for withdrawal: ");
+                out.print("Enter reason for withdrawal: ");
                 String reason = scanner.nextLine().trim();
                 
                 if (reason.isEmpty()) {
-                    System.out.println("Reason cannot be empty. Please provide a reason.");
+                    out.println("Reason cannot be empty. Please provide a reason.");
                     validChoice = false;
                     continue;
                 }
@@ -319,12 +360,12 @@ public class StudentUI {
                 
                 dataController.addWithdrawalRequest(request);
                 
-                System.out.println("\nWithdrawal request submitted successfully!");
-                System.out.println("Request ID: " + requestId);
-                System.out.println("Pending approval from Career Center Staff.");
+                out.println("\nWithdrawal request submitted successfully!");
+                out.println("Request ID: " + requestId);
+                out.println("Pending approval from Career Center Staff.");
                 
             } catch (NumberFormatException e) {
-                System.out.println("Invalid input. Please enter a number.");
+                out.println("Invalid input. Please enter a number.");
             }
         }
     }
@@ -333,26 +374,26 @@ public class StudentUI {
      * Handles password change.
      */
     private void changePassword() {
-        System.out.println("\n=== CHANGE PASSWORD ===");
+        out.println("\n=== CHANGE PASSWORD ===");
         
-        System.out.print("Enter current password: ");
+        out.print("Enter current password: ");
         String oldPassword = scanner.nextLine().trim();
         
-        System.out.print("Enter new password: ");
+        out.print("Enter new password: ");
         String newPassword = scanner.nextLine().trim();
         
-        System.out.print("Confirm new password: ");
+        out.print("Confirm new password: ");
         String confirmPassword = scanner.nextLine().trim();
         
         if (!newPassword.equals(confirmPassword)) {
-            System.out.println("New passwords do not match.");
+            out.println("New passwords do not match.");
             return;
         }
         
         if (authController.changePassword(student, oldPassword, newPassword)) {
-            System.out.println("Password changed successfully!");
+            out.println("Password changed successfully!");
         } else {
-            System.out.println("Current password is incorrect.");
+            out.println("Current password is incorrect.");
         }
     }
 }
@@ -0,0 +1,176 @@
+package edu.ntu.ccds.sc2002.boundary;
+
+import edu.ntu.ccds.sc2002.control.AuthenticationController;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves independent terminal sessions over TCP on the local machine.
+ * <p>
+ * Each connection gets its own login menu, reading the client's lines and
+ * printing back to it, while every session shares the same data. Sessions
+ * spend nearly all their time waiting for input, so on Java 21 and later
+ * each runs on a virtual thread. The build targets Java 8, where virtual
+ * threads do not exist, so they are looked up when the server starts; on
+ * earlier runtimes each session holds a platform thread from a cached pool
+ * instead, and the number of idle sessions is bounded by those threads.
+ */
+public class TerminalServer {
+
+    /**
+     * Number of pending connections queued before new ones are refused.
+     */
+    private static final int BACKLOG = 1024;
+
+    private final int port;
+    private final ExecutorService sessions;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Constructs a TerminalServer for the given port.
+     * @param port the local port to listen on, or 0 for any free port
+     */
+    public TerminalServer(int port) {
+        this.port = port;
+        this.sessions = newSessionExecutor();
+    }
+
+    /**
+     * Accepts connections until the server is stopped, running a session for
+     * each one.
+     * @throws IOException if the port cannot be opened
+     */
+    public void run() throws IOException {
+        serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketException e) {
+                    // The server socket was closed by stop()
+                    break;
+                }
+                sessions.execute(() -> serve(socket));
+            }
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    /**
+     * Stops accepting connections and waits briefly for open sessions to end.
+     */
+    public void stop() {
+        ServerSocket current = serverSocket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     * @return the port, or -1 if the server is not running
+     */
+    public int getLocalPort() {
+        ServerSocket current = serverSocket;
+        return current == null ? -1 : current.getLocalPort();
+    }
+
+    /**
+     * Gets the number of sessions currently open.
+     * @return the number of sessions
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Runs one session on a connection and closes it when the user exits or
+     * the client disconnects.
+     */
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (Socket connection = socket) {
+            connection.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(
+                new BufferedOutputStream(connection.getOutputStream()), false, "UTF-8");
+            // Output is buffered and sent each time the session waits for input
+            Scanner scanner = new Scanner(new InputStreamReader(
+                new FlushingInputStream(connection.getInputStream(), out), StandardCharsets.UTF_8));
+
+            new LoginUI(new AuthenticationController(), scanner, out).displayLoginMenu();
+            out.flush();
+        } catch (NoSuchElementException | IOException e) {
+            // The client disconnected
+        } catch (RuntimeException e) {
+            System.out.println("Warning: Session ended with an error: " + e);
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Creates the executor running the sessions: one virtual thread per
+     * session on Java 21 and later, otherwise a cached pool of daemon
+     * platform threads with small stacks.
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(null, r, "session-" + count.incrementAndGet(), 256 * 1024);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Input stream that flushes the session's output before it blocks for
+     * input, so prompts reach the client before the session waits on a reply.
+     */
+    private static class FlushingInputStream extends FilterInputStream {
+        private final PrintStream out;
+
+        FlushingInputStream(InputStream in, PrintStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            out.flush();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            out.flush();
+            return super.read(b, off, len);
+        }
+    }
+}
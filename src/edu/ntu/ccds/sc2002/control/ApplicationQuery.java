@@ -0,0 +1,94 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.util.*;
+
+/**
+ * Query over applications.
+ * Student, internship and status conditions are answered from the
+ * controller's indexes when that is the cheapest plan.
+ */
+public class ApplicationQuery extends Query<Application, ApplicationQuery> {
+
+    /** Orders applications by application date, oldest first. */
+    public static final Comparator<Application> BY_DATE =
+        Comparator.comparing(Application::getApplicationDate).thenComparing(Application::getApplicationId, IdAllocator.ID_ORDER);
+
+    ApplicationQuery(DataController dataController) {
+        super(dataController);
+    }
+
+    @Override
+    Repository<Application> repository() {
+        return dataController.applicationRepository();
+    }
+
+    @Override
+    String idOf(Application record) {
+        return record.getApplicationId();
+    }
+
+    @Override
+    ApplicationQuery self() {
+        return this;
+    }
+
+    /**
+     * Matches applications by a student.
+     * @param studentId the student ID
+     * @return this query
+     */
+    public ApplicationQuery student(String studentId) {
+        String description = "student = " + studentId;
+        return where(description, a -> a.getStudentId().equals(studentId), () -> {
+            Set<String> ids = dataController.applicationsByStudent.get(studentId);
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+
+    /**
+     * Matches applications for an internship.
+     * @param internshipId the internship ID
+     * @return this query
+     */
+    public ApplicationQuery internship(String internshipId) {
+        String description = "internship = " + internshipId;
+        return where(description, a -> a.getInternshipId().equals(internshipId), () -> {
+            Set<String> ids = dataController.applicationsByInternship.get(internshipId);
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+
+    /**
+     * Matches applications with a status.
+     * @param status the status
+     * @return this query
+     */
+    public ApplicationQuery status(ApplicationStatus status) {
+        String description = "status = " + status;
+        return where(description, a -> a.getStatus() == status, () -> {
+            Set<String> ids = dataController.applicationsByStatus.get(status);
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+
+    /**
+     * Matches applications for internships that match another query.
+     * The internship query's sort order and limit are ignored.
+     * @param internships the internship query
+     * @return this query
+     */
+    public ApplicationQuery internships(InternshipQuery internships) {
+        String description = "internship matches (" + internships.explain() + ")";
+        return where(description, a -> {
+            Internship internship = dataController.getInternshipById(a.getInternshipId());
+            return internship != null && internships.matches(internship);
+        }, () -> {
+            List<String> ids = new ArrayList<>();
+            for (Internship internship : internships.list()) {
+                ids.addAll(dataController.applicationsByInternship.get(internship.getInternshipId()));
+            }
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+}
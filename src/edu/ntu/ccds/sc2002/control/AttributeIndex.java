@@ -0,0 +1,132 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sorted index from one attribute value to the IDs of the records that have it.
+ * <p>
+ * Each record has at most one value, so {@link #put(String, Comparable)}
+ * moves a record from its previous value. Values are kept in order, which
+ * allows range lookups such as closing dates within a period. Null values
+ * are not indexed. The IDs under each value are kept in
+ * {@link IdAllocator#ID_ORDER}. Callers are responsible for synchronization,
+ * except that {@link #count(Comparable)} and {@link #size()} read counts
+ * kept in a concurrent map and may be called while the index changes.
+ *
+ * @param <K> the attribute type
+ */
+class AttributeIndex<K extends Comparable<? super K>> {
+
+    private final NavigableMap<K, NavigableSet<String>> entries = new TreeMap<>();
+    private final Map<String, K> values = new HashMap<>();
+    private final Map<K, Integer> counts = new ConcurrentHashMap<>();
+    private volatile int size;
+
+    /**
+     * Sets the attribute value of a record.
+     * @param id the record ID
+     * @param value the value, or null to leave the record unindexed
+     */
+    void put(String id, K value) {
+        K previous = values.get(id);
+        if (previous != null && previous.equals(value)) {
+            return;
+        }
+        remove(id);
+        if (value != null) {
+            values.put(id, value);
+            entries.computeIfAbsent(value, k -> new TreeSet<>(IdAllocator.ID_ORDER)).add(id);
+            counts.merge(value, 1, Integer::sum);
+            size = values.size();
+        }
+    }
+
+    /**
+     * Removes a record.
+     * @param id the record ID
+     */
+    void remove(String id) {
+        K value = values.remove(id);
+        if (value == null) {
+            return;
+        }
+        NavigableSet<String> ids = entries.get(value);
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            entries.remove(value);
+        }
+        counts.computeIfPresent(value, (k, count) -> count == 1 ? null : count - 1);
+        size = values.size();
+    }
+
+    /**
+     * Removes every record.
+     */
+    void clear() {
+        entries.clear();
+        values.clear();
+        counts.clear();
+        size = 0;
+    }
+
+    /**
+     * Gets the IDs of the records with a value.
+     * @param value the value
+     * @return a read-only view of the IDs
+     */
+    Set<String> get(K value) {
+        NavigableSet<String> ids = value == null ? null : entries.get(value);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Counts the records with a value.
+     * @param value the value
+     * @return the record count
+     */
+    int count(K value) {
+        Integer count = value == null ? null : counts.get(value);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Counts the indexed records.
+     * @return the record count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the IDs of the records with a value in a range, in value order.
+     * @param from the lowest value, inclusive
+     * @param to the highest value, inclusive
+     * @return the IDs
+     */
+    List<String> range(K from, K to) {
+        List<String> ids = new ArrayList<>();
+        if (from.compareTo(to) <= 0) {
+            for (NavigableSet<String> set : entries.subMap(from, true, to, true).values()) {
+                ids.addAll(set);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Counts the records with a value in a range.
+     * @param from the lowest value, inclusive
+     * @param to the highest value, inclusive
+     * @return the record count
+     */
+    int countRange(K from, K to) {
+        int count = 0;
+        if (from.compareTo(to) <= 0) {
+            for (NavigableSet<String> set : entries.subMap(from, true, to, true).values()) {
+                count += set.size();
+            }
+        }
+        return count;
+    }
+}
@@ -34,7 +34,6 @@ public class AuthenticationController {
         if (user instanceof CompanyRepresentative) {
             CompanyRepresentative rep = (CompanyRepresentative) user;
             if (!rep.isApproved()) {
-                System.out.println("Your account is pending approval from Career Center Staff.");
                 return null;
             }
         }
@@ -47,6 +46,16 @@ public class AuthenticationController {
         return null;
     }
     
+    /**
+     * Checks if a user is a company representative still waiting for approval.
+     * @param userId the user id
+     * @return true, if the account is pending approval
+     */
+    public boolean isPendingApproval(String userId) {
+        User user = dataController.getUserById(userId);
+        return user instanceof CompanyRepresentative && !((CompanyRepresentative) user).isApproved();
+    }
+    
     /**
      * Registers a new company representative.
      * @param email the email
@@ -0,0 +1,577 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Imports internships and applications in bulk from CSV or JSONL files.
+ * <p>
+ * Files are streamed record by record. Each record is validated against the
+ * same rules as the interactive screens, and valid records are collected into
+ * batches that are handed to {@link DataController} together, so student and
+ * internship back-references are updated once per batch.
+ * <p>
+ * CSV files need a header row naming the columns. JSONL files hold one flat
+ * JSON object per line. Files ending in {@code .jsonl} or {@code .json} are
+ * read as JSONL, anything else as CSV.
+ * <p>
+ * Internship columns: {@code title, description, level, preferredMajor,
+ * openingDate, closingDate, companyRepId, slots}, with optional
+ * {@code status} and {@code visible}. Application columns:
+ * {@code studentId, internshipId}.
+ */
+public class BulkImporter {
+
+    /** Number of records committed to the data controller at a time. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final int MAX_APPLICATIONS = 3;
+    private static final int MAX_INTERNSHIPS_PER_REP = 5;
+    private static final int MAX_SLOTS = 10;
+
+    /**
+     * Outcome of an import.
+     */
+    public static class ImportResult {
+        private int imported;
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Gets the number of records imported.
+         * @return the imported count
+         */
+        public int getImported() {
+            return imported;
+        }
+
+        /**
+         * Gets the rejected records, each prefixed with its line number.
+         * @return the errors
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    private final DataController dataController;
+    private final int batchSize;
+
+    /**
+     * Constructs a BulkImporter with the default batch size.
+     * @param dataController the data controller receiving the records
+     */
+    public BulkImporter(DataController dataController) {
+        this(dataController, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a BulkImporter.
+     * @param dataController the data controller receiving the records
+     * @param batchSize the number of records committed at a time
+     */
+    public BulkImporter(DataController dataController, int batchSize) {
+        this.dataController = dataController;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Imports internships from a file.
+     * Internship IDs are reserved from the data controller a batch at a time.
+     * @param file the CSV or JSONL file
+     * @return the import result
+     */
+    public ImportResult importInternships(File file) throws IOException {
+        ImportResult result = new ImportResult();
+        List<Internship> batch = new ArrayList<>(batchSize);
+        Map<String, Integer> pendingPerRep = new HashMap<>();
+        IdAllocator.Block ids = dataController.reserveInternshipIds(batchSize);
+
+        try (RecordReader reader = open(file)) {
+            while (true) {
+                try {
+                    Map<String, String> record = reader.next();
+                    if (record == null) {
+                        break;
+                    }
+                    batch.add(toInternship(record, pendingPerRep, ids));
+                } catch (IllegalArgumentException e) {
+                    result.errors.add("line " + reader.getLineNumber() + ": " + e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    commitInternships(batch, pendingPerRep, result);
+                    ids.release();
+                    ids = dataController.reserveInternshipIds(batchSize);
+                }
+            }
+        } finally {
+            ids.release();
+        }
+        commitInternships(batch, pendingPerRep, result);
+        return result;
+    }
+
+    /**
+     * Imports applications from a file.
+     * Application IDs are reserved from the data controller a batch at a time.
+     * @param file the CSV or JSONL file
+     * @return the import result
+     */
+    public ImportResult importApplications(File file) throws IOException {
+        ImportResult result = new ImportResult();
+        List<Application> batch = new ArrayList<>(batchSize);
+        Map<String, Integer> batchLines = new HashMap<>();
+        Map<String, Integer> pendingPerStudent = new HashMap<>();
+        Set<String> applied = new HashSet<>();
+        dataController.forEachApplication(
+            application -> applied.add(application.getStudentId() + "|" + application.getInternshipId()));
+        IdAllocator.Block ids = dataController.reserveApplicationIds(batchSize);
+
+        try (RecordReader reader = open(file)) {
+            while (true) {
+                try {
+                    Map<String, String> record = reader.next();
+                    if (record == null) {
+                        break;
+                    }
+                    Application application = toApplication(record, pendingPerStudent, applied, ids);
+                    batch.add(application);
+                    batchLines.put(application.getApplicationId(), reader.getLineNumber());
+                } catch (IllegalArgumentException e) {
+                    result.errors.add("line " + reader.getLineNumber() + ": " + e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    commitApplications(batch, batchLines, pendingPerStudent, result);
+                    ids.release();
+                    ids = dataController.reserveApplicationIds(batchSize);
+                }
+            }
+        } finally {
+            ids.release();
+        }
+        commitApplications(batch, batchLines, pendingPerStudent, result);
+        return result;
+    }
+
+    private Internship toInternship(Map<String, String> record, Map<String, Integer> pendingPerRep,
+                                    IdAllocator.Block ids) {
+        String title = required(record, "title");
+        String description = optional(record, "description", "");
+        InternshipLevel level = parseEnum(InternshipLevel.class, required(record, "level"), "level");
+        String major = optional(record, "preferredMajor", "ANY").toUpperCase();
+        LocalDate openingDate = parseDate(required(record, "openingDate"), "openingDate");
+        LocalDate closingDate = parseDate(required(record, "closingDate"), "closingDate");
+        if (closingDate.isBefore(openingDate)) {
+            throw new IllegalArgumentException("closing date is before opening date");
+        }
+
+        int slots;
+        try {
+            slots = Integer.parseInt(required(record, "slots"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("slots is not a number");
+        }
+        if (slots < 1 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("slots must be between 1 and " + MAX_SLOTS);
+        }
+
+        String repId = required(record, "companyRepId");
+        User user = dataController.getUserById(repId);
+        if (!(user instanceof CompanyRepresentative)) {
+            throw new IllegalArgumentException("company representative " + repId + " not found");
+        }
+        CompanyRepresentative rep = (CompanyRepresentative) user;
+        if (!rep.isApproved()) {
+            throw new IllegalArgumentException("company representative " + repId + " is not approved");
+        }
+        int pending = pendingPerRep.getOrDefault(repId, 0);
+        if (rep.getInternshipIds().size() + pending >= MAX_INTERNSHIPS_PER_REP) {
+            throw new IllegalArgumentException("company representative " + repId + " already has "
+                                               + MAX_INTERNSHIPS_PER_REP + " internships");
+        }
+
+        InternshipStatus status = InternshipStatus.PENDING;
+        if (record.get("status") != null && !record.get("status").isEmpty()) {
+            status = parseEnum(InternshipStatus.class, record.get("status"), "status");
+            if (status == InternshipStatus.FILLED) {
+                throw new IllegalArgumentException("internships cannot be imported as FILLED");
+            }
+        }
+        String visible = optional(record, "visible", "true");
+        if (!visible.equalsIgnoreCase("true") && !visible.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("visible must be true or false");
+        }
+
+        pendingPerRep.put(repId, pending + 1);
+        Internship internship = new Internship(ids.next(), title, description,
+                                               level, major, openingDate, closingDate,
+                                               rep.getCompanyName(), repId, slots);
+        internship.setStatus(status);
+        internship.setVisible(Boolean.parseBoolean(visible));
+        return internship;
+    }
+
+    private Application toApplication(Map<String, String> record, Map<String, Integer> pendingPerStudent,
+                                      Set<String> applied, IdAllocator.Block ids) {
+        String studentId = required(record, "studentId");
+        String internshipId = required(record, "internshipId");
+
+        User user = dataController.getUserById(studentId);
+        if (!(user instanceof Student)) {
+            throw new IllegalArgumentException("student " + studentId + " not found");
+        }
+        Student student = (Student) user;
+        if (student.hasConfirmedInternship()) {
+            throw new IllegalArgumentException("student " + studentId + " has already confirmed a placement");
+        }
+        int pending = pendingPerStudent.getOrDefault(studentId, 0);
+        if (student.getApplicationIds().size() + pending >= MAX_APPLICATIONS) {
+            throw new IllegalArgumentException("student " + studentId + " already has "
+                                               + MAX_APPLICATIONS + " applications");
+        }
+
+        Internship internship = dataController.getInternshipById(internshipId);
+        if (internship == null) {
+            throw new IllegalArgumentException("internship " + internshipId + " not found");
+        }
+        if (!dataController.isAcceptingApplications(internship)) {
+            throw new IllegalArgumentException("internship " + internshipId + " is not accepting applications");
+        }
+        if (!internship.isEligibleForStudent(student.getYearOfStudy(), student.getMajor())) {
+            throw new IllegalArgumentException("student " + studentId + " is not eligible for " + internshipId);
+        }
+        if (!applied.add(studentId + "|" + internshipId)) {
+            throw new IllegalArgumentException("student " + studentId + " has already applied for " + internshipId);
+        }
+
+        pendingPerStudent.put(studentId, pending + 1);
+        return new Application(ids.next(), studentId, internshipId);
+    }
+
+    private void commitInternships(List<Internship> batch, Map<String, Integer> pendingPerRep,
+                                   ImportResult result) {
+        if (!batch.isEmpty()) {
+            dataController.addInternships(batch);
+            result.imported += batch.size();
+            batch.clear();
+        }
+        pendingPerRep.clear();
+    }
+
+    /**
+     * Commits a batch of applications. Applications turned away because a
+     * student applied for the same internship or reached the application
+     * limit meanwhile are reported as errors.
+     */
+    private void commitApplications(List<Application> batch, Map<String, Integer> batchLines,
+                                    Map<String, Integer> pendingPerStudent, ImportResult result) {
+        if (!batch.isEmpty()) {
+            List<Application> rejected = dataController.processNewApplications(batch);
+            for (Application application : rejected) {
+                String reason = hasApplied(application)
+                    ? "has already applied for " + application.getInternshipId()
+                    : "already has " + MAX_APPLICATIONS + " applications";
+                result.errors.add("line " + batchLines.get(application.getApplicationId()) + ": student "
+                                  + application.getStudentId() + " " + reason);
+            }
+            result.imported += batch.size() - rejected.size();
+            batch.clear();
+        }
+        batchLines.clear();
+        pendingPerStudent.clear();
+    }
+
+    /**
+     * Checks if the student of a rejected application holds another
+     * application for the same internship.
+     */
+    private boolean hasApplied(Application rejected) {
+        for (Application application : dataController.getApplicationsByStudentId(rejected.getStudentId())) {
+            if (application.getInternshipId().equals(rejected.getInternshipId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String required(Map<String, String> record, String column) {
+        String value = record.get(column);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("missing " + column);
+        }
+        return value.trim();
+    }
+
+    private static String optional(Map<String, String> record, String column, String defaultValue) {
+        String value = record.get(column);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static LocalDate parseDate(String value, String column) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(column + " must be in yyyy-MM-dd format");
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String column) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid " + column + " '" + value + "'");
+        }
+    }
+
+    private static RecordReader open(File file) throws IOException {
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return new JsonLinesReader(in);
+        }
+        return new CsvReader(in);
+    }
+
+    /**
+     * Streams records from an import file as column-to-value maps.
+     */
+    private abstract static class RecordReader implements Closeable {
+        protected final BufferedReader in;
+        protected int lineNumber;
+        protected int recordLine;
+
+        RecordReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads the next record.
+         * @return the record, or null at the end of the file
+         */
+        abstract Map<String, String> next() throws IOException;
+
+        /**
+         * Gets the line on which the last record started.
+         * @return the line number
+         */
+        int getLineNumber() {
+            return recordLine;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads CSV with a header row. Fields may be quoted, with doubled quotes
+     * as escapes, and quoted fields may span lines.
+     */
+    private static class CsvReader extends RecordReader {
+        private String[] header;
+
+        CsvReader(BufferedReader in) {
+            super(in);
+        }
+
+        @Override
+        Map<String, String> next() throws IOException {
+            if (header == null) {
+                List<String> columns = readRow();
+                if (columns == null) {
+                    return null;
+                }
+                header = new String[columns.size()];
+                for (int i = 0; i < header.length; i++) {
+                    header[i] = columns.get(i).trim();
+                }
+            }
+
+            List<String> row;
+            do {
+                row = readRow();
+                if (row == null) {
+                    return null;
+                }
+            } while (row.size() == 1 && row.get(0).trim().isEmpty());
+
+            Map<String, String> record = new HashMap<>(header.length * 2);
+            for (int i = 0; i < header.length && i < row.size(); i++) {
+                record.put(header[i], row.get(i));
+            }
+            return record;
+        }
+
+        private List<String> readRow() throws IOException {
+            String line = in.readLine();
+            if (line == null) {
+                return null;
+            }
+            recordLine = ++lineNumber;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    String more = in.readLine();
+                    if (more == null) {
+                        throw new EOFException("Unterminated quoted field starting on line " + recordLine);
+                    }
+                    lineNumber++;
+                    field.append('\n');
+                    line = more;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    /**
+     * Reads one flat JSON object per line. String, number, boolean and null
+     * values are supported; values are returned as strings.
+     */
+    private static class JsonLinesReader extends RecordReader {
+        private String line;
+        private int pos;
+
+        JsonLinesReader(BufferedReader in) {
+            super(in);
+        }
+
+        @Override
+        Map<String, String> next() throws IOException {
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return null;
+                }
+                recordLine = ++lineNumber;
+            } while (line.trim().isEmpty());
+
+            pos = 0;
+            Map<String, String> record = new HashMap<>();
+            try {
+                expect('{');
+                skipWhitespace();
+                if (peek() == '}') {
+                    pos++;
+                    return record;
+                }
+                while (true) {
+                    skipWhitespace();
+                    String key = readString();
+                    expect(':');
+                    skipWhitespace();
+                    record.put(key, readValue());
+                    skipWhitespace();
+                    char c = line.charAt(pos++);
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw new IllegalArgumentException("expected ',' or '}' at column " + pos);
+                    }
+                }
+            } catch (StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("unexpected end of JSON object");
+            }
+            return record;
+        }
+
+        private String readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            int start = pos;
+            while (pos < line.length() && ",} \t".indexOf(line.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = line.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty() || literal.charAt(0) == '{' || literal.charAt(0) == '[') {
+                throw new IllegalArgumentException("unsupported JSON value at column " + (start + 1));
+            }
+            return literal;
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = line.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escape = line.charAt(pos++);
+                switch (escape) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        value.append((char) Integer.parseInt(line.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: value.append(escape);
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            skipWhitespace();
+            if (line.charAt(pos) != expected) {
+                throw new IllegalArgumentException("expected '" + expected + "' at column " + (pos + 1));
+            }
+            pos++;
+        }
+
+        private char peek() {
+            return line.charAt(pos);
+        }
+
+        private void skipWhitespace() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
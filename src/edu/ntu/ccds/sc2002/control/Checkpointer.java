@@ -0,0 +1,112 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background thread that periodically flushes dirty records to the journal.
+ * A flush runs on a fixed interval, or earlier once the number of dirty
+ * records reaches a threshold, so the interactive thread never waits on disk.
+ * <p>
+ * The interval and threshold are read from the system properties
+ * {@code ipms.checkpoint.interval} (seconds) and {@code ipms.checkpoint.threshold}.
+ */
+public class Checkpointer {
+    
+    /** Default number of seconds between flushes. */
+    public static final long DEFAULT_INTERVAL_SECONDS = 30;
+    
+    /** Default number of dirty records that triggers an early flush. */
+    public static final int DEFAULT_DIRTY_THRESHOLD = 50;
+    
+    private final DataController dataController;
+    private final long intervalSeconds;
+    private final int dirtyThreshold;
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private ScheduledExecutorService executor;
+    
+    /**
+     * Constructs a Checkpointer.
+     * @param dataController the controller to flush
+     * @param intervalSeconds the number of seconds between flushes
+     * @param dirtyThreshold the number of dirty records that triggers an early flush
+     */
+    public Checkpointer(DataController dataController, long intervalSeconds, int dirtyThreshold) {
+        this.dataController = dataController;
+        this.intervalSeconds = Math.max(1, intervalSeconds);
+        this.dirtyThreshold = Math.max(1, dirtyThreshold);
+    }
+    
+    /**
+     * Creates a Checkpointer configured from system properties.
+     * @param dataController the controller to flush
+     * @return the checkpointer
+     */
+    static Checkpointer fromSystemProperties(DataController dataController) {
+        return new Checkpointer(dataController,
+                                Long.getLong("ipms.checkpoint.interval", DEFAULT_INTERVAL_SECONDS),
+                                Integer.getInteger("ipms.checkpoint.threshold", DEFAULT_DIRTY_THRESHOLD));
+    }
+    
+    /**
+     * Starts the background thread.
+     */
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Requests a flush as soon as possible.
+     * Repeated requests before the flush runs are coalesced.
+     */
+    public void requestFlush() {
+        if (executor != null && flushPending.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushPending.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Stops the background thread, waiting for a running flush to finish.
+     */
+    public void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Gets the dirty record count that triggers an early flush.
+     * @return the dirty threshold
+     */
+    public int getDirtyThreshold() {
+        return dirtyThreshold;
+    }
+    
+    private void flush() {
+        flushPending.set(false);
+        try {
+            dataController.flushChanges();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("\nWarning: Background save failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compressed cold storage for archived internships.
+ * <p>
+ * Each archival run writes one segment file holding a group per internship:
+ * the internship itself with its applications and withdrawal requests. Every
+ * group is compressed separately, so reading an archived record only
+ * inflates its own group. The IDs in each segment are kept in an index at
+ * the start of the file, which is loaded when the archive is opened; the
+ * records themselves stay on disk until they are read. The index also holds
+ * the representative and the students each group belongs to, so their
+ * archived records can be listed without reading any group.
+ * <p>
+ * Segment layout:
+ * <pre>
+ *   int      ARCHIVE_MAGIC
+ *   int      codec header length, byte[] codec header
+ *   int      index length
+ *   index:   int group count, then per group:
+ *              string internship ID, string company representative ID
+ *              varint application count, then per application:
+ *                string application ID, string student ID
+ *              varint withdrawal count, string[] request IDs
+ *              varint offset, varint length of the compressed group
+ *   byte[]   compressed groups
+ * </pre>
+ */
+class ColdArchive {
+
+    /** Magic number identifying archive segment files ("IPMB"). */
+    static final int ARCHIVE_MAGIC = 0x49504D42;
+
+    private static final String SEGMENT_PREFIX = "archive-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * An archived internship with its applications and withdrawal requests.
+     */
+    static class Group {
+        final Internship internship;
+        final List<Application> applications;
+        final List<WithdrawalRequest> withdrawals;
+
+        Group(Internship internship, List<Application> applications, List<WithdrawalRequest> withdrawals) {
+            this.internship = internship;
+            this.applications = applications;
+            this.withdrawals = withdrawals;
+        }
+    }
+
+    /**
+     * Where a compressed group is stored.
+     */
+    private static class Location {
+        final File file;
+        final EntityCodec codec;
+        final long offset;
+        final int length;
+
+        Location(File file, EntityCodec codec, long offset, int length) {
+            this.file = file;
+            this.codec = codec;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final File dir;
+    private final Map<String, Location> internships = new HashMap<>();
+    private final Map<String, String> applications = new HashMap<>();
+    private final Map<String, String> withdrawals = new HashMap<>();
+    private final Map<String, Set<String>> internshipsByRep = new HashMap<>();
+    private final Map<String, Set<String>> applicationsByStudent = new HashMap<>();
+    private long nextSequence = 1;
+
+    /**
+     * Opens the archive in a directory and loads the index of every segment.
+     * @param dir the archive directory
+     */
+    ColdArchive(File dir) throws IOException {
+        this.dir = dir;
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    sequences.add(Long.parseLong(
+                        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not an archive segment
+                }
+            }
+        }
+        Collections.sort(sequences);
+        for (long sequence : sequences) {
+            loadIndex(segmentFile(sequence));
+            nextSequence = sequence + 1;
+        }
+    }
+
+    /**
+     * Writes groups to a new segment and adds them to the index.
+     * The segment is forced to disk before this returns.
+     * @param groups the groups to archive
+     */
+    synchronized void write(List<Group> groups) throws IOException {
+        EntityCodec codec = EntityCodec.current();
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexBuffer = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBuffer);
+
+        index.writeInt(groups.size());
+        for (Group group : groups) {
+            int offset = blocks.size();
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(new NonClosing(blocks)))) {
+                codec.writeInternship(out, group.internship);
+                EntityCodec.writeVarInt(out, group.applications.size());
+                for (Application application : group.applications) {
+                    codec.writeApplication(out, application);
+                }
+                EntityCodec.writeVarInt(out, group.withdrawals.size());
+                for (WithdrawalRequest request : group.withdrawals) {
+                    codec.writeWithdrawalRequest(out, request);
+                }
+            }
+
+            EntityCodec.writeString(index, group.internship.getInternshipId());
+            EntityCodec.writeString(index, group.internship.getCompanyRepId());
+            EntityCodec.writeVarInt(index, group.applications.size());
+            for (Application application : group.applications) {
+                EntityCodec.writeString(index, application.getApplicationId());
+                EntityCodec.writeString(index, application.getStudentId());
+            }
+            EntityCodec.writeVarInt(index, group.withdrawals.size());
+            for (WithdrawalRequest request : group.withdrawals) {
+                EntityCodec.writeString(index, request.getRequestId());
+            }
+            EntityCodec.writeVarInt(index, offset);
+            EntityCodec.writeVarInt(index, blocks.size() - offset);
+        }
+
+        dir.mkdirs();
+        File file = segmentFile(nextSequence);
+        File temp = new File(file.getPath() + ".tmp");
+        byte[] header = codec.headerBytes();
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(ARCHIVE_MAGIC);
+            out.writeInt(header.length);
+            out.write(header);
+            out.writeInt(indexBuffer.size());
+            indexBuffer.writeTo(out);
+            blocks.writeTo(out);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        nextSequence++;
+        loadIndex(file);
+    }
+
+    /**
+     * Reads an archived internship with its applications and withdrawal requests.
+     * @param internshipId the internship ID
+     * @return the group, or null if the internship is not archived
+     */
+    synchronized Group read(String internshipId) throws IOException {
+        Location location = internships.get(internshipId);
+        if (location == null) {
+            return null;
+        }
+
+        byte[] compressed = new byte[location.length];
+        try (RandomAccessFile file = new RandomAccessFile(location.file, "r")) {
+            file.seek(location.offset);
+            file.readFully(compressed);
+        }
+
+        EntityCodec codec = location.codec;
+        try (DataInputStream in = new DataInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+            Internship internship = codec.readInternship(in);
+            int applicationCount = EntityCodec.readVarInt(in);
+            List<Application> applications = new ArrayList<>(applicationCount);
+            for (int i = 0; i < applicationCount; i++) {
+                applications.add(codec.readApplication(in));
+            }
+            int withdrawalCount = EntityCodec.readVarInt(in);
+            List<WithdrawalRequest> withdrawals = new ArrayList<>(withdrawalCount);
+            for (int i = 0; i < withdrawalCount; i++) {
+                withdrawals.add(codec.readWithdrawalRequest(in));
+            }
+            return new Group(internship, applications, withdrawals);
+        }
+    }
+
+    /**
+     * Gets the ID of the archived internship an application belongs to.
+     * @param applicationId the application ID
+     * @return the internship ID, or null if the application is not archived
+     */
+    synchronized String internshipOfApplication(String applicationId) {
+        return applications.get(applicationId);
+    }
+
+    /**
+     * Gets the ID of the archived internship a withdrawal request belongs to.
+     * @param requestId the withdrawal request ID
+     * @return the internship ID, or null if the request is not archived
+     */
+    synchronized String internshipOfWithdrawal(String requestId) {
+        return withdrawals.get(requestId);
+    }
+
+    /**
+     * Gets the IDs of the archived internships of a company representative.
+     * @param repId the company representative ID
+     * @return the internship IDs, in ID order
+     */
+    synchronized List<String> internshipsOfRep(String repId) {
+        return new ArrayList<>(internshipsByRep.getOrDefault(repId, Collections.emptySet()));
+    }
+
+    /**
+     * Gets the IDs of the archived applications of a student.
+     * @param studentId the student ID
+     * @return the application IDs, in ID order
+     */
+    synchronized List<String> applicationsOfStudent(String studentId) {
+        return new ArrayList<>(applicationsByStudent.getOrDefault(studentId, Collections.emptySet()));
+    }
+
+    /**
+     * Checks if an internship is archived.
+     * @param internshipId the internship ID
+     * @return true, if archived
+     */
+    synchronized boolean isArchived(String internshipId) {
+        return internships.containsKey(internshipId);
+    }
+
+    /**
+     * Gets the IDs of all archived internships.
+     * @return the internship IDs
+     */
+    synchronized Set<String> getInternshipIds() {
+        Set<String> ids = new TreeSet<>(IdAllocator.ID_ORDER);
+        ids.addAll(internships.keySet());
+        return ids;
+    }
+
+    synchronized int getInternshipCount() {
+        return internships.size();
+    }
+
+    synchronized int getApplicationCount() {
+        return applications.size();
+    }
+
+    synchronized int getWithdrawalCount() {
+        return withdrawals.size();
+    }
+
+    private void loadIndex(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != ARCHIVE_MAGIC) {
+                throw new IOException("Not an archive segment: " + file);
+            }
+            byte[] header = new byte[in.readInt()];
+            in.readFully(header);
+            EntityCodec codec = EntityCodec.fromHeaderBytes(header);
+            int indexLength = in.readInt();
+            long dataStart = 4 + 4 + header.length + 4 + indexLength;
+
+            int groups = in.readInt();
+            for (int i = 0; i < groups; i++) {
+                String internshipId = EntityCodec.readString(in);
+                addOwner(internshipsByRep, EntityCodec.readString(in), internshipId);
+                int applicationCount = EntityCodec.readVarInt(in);
+                for (int j = 0; j < applicationCount; j++) {
+                    String applicationId = EntityCodec.readString(in);
+                    applications.put(applicationId, internshipId);
+                    addOwner(applicationsByStudent, EntityCodec.readString(in), applicationId);
+                }
+                int withdrawalCount = EntityCodec.readVarInt(in);
+                for (int j = 0; j < withdrawalCount; j++) {
+                    withdrawals.put(EntityCodec.readString(in), internshipId);
+                }
+                long offset = EntityCodec.readVarInt(in);
+                int length = EntityCodec.readVarInt(in);
+                internships.put(internshipId, new Location(file, codec, dataStart + offset, length));
+            }
+        }
+    }
+
+    private static void addOwner(Map<String, Set<String>> byOwner, String owner, String id) {
+        if (owner != null) {
+            byOwner.computeIfAbsent(owner, k -> new TreeSet<>(IdAllocator.ID_ORDER)).add(id);
+        }
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(dir, SEGMENT_PREFIX + String.format("%06d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Lets a compressed group be finished without closing the shared buffer.
+     */
+    private static class NonClosing extends FilterOutputStream {
+        NonClosing(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
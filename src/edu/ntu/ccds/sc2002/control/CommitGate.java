@@ -0,0 +1,139 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Lets transactions run side by side while readers see consistent data
+ * without locking.
+ * <p>
+ * A transaction holds the gate open, shared with other transactions, while
+ * it runs, and counts a commit when it ends. Changes made outside a
+ * transaction are marked with {@link #beginChange()} and {@link #endChange()}
+ * and count as a commit as well. A reader reads optimistically: it checks
+ * that no transaction or change is open, reads, and checks again that none
+ * is open and none has ended in the meantime. If one got in the way the read
+ * is retried, a few times; a reader that still has not had a clean run
+ * closes the gate and takes the lock that changes are made under, so under
+ * a steady load of changes it waits its turn instead of retrying forever.
+ * Checkpoints close the gate as well, waiting for the open transactions to
+ * end and keeping new ones out until they have collected their changes.
+ */
+class CommitGate {
+
+    /**
+     * Number of optimistic reads tried before a reader locks.
+     */
+    private static final int OPTIMISTIC_READS = 16;
+
+    // Transactions take the shared side, checkpoints and locked readers the exclusive side
+    private final StampedLock lock = new StampedLock();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicInteger changing = new AtomicInteger();
+    private final Object changeLock;
+
+    /**
+     * Creates a gate.
+     * @param changeLock the lock that changes marked with
+     *                   {@link #beginChange()} are made under
+     */
+    CommitGate(Object changeLock) {
+        this.changeLock = changeLock;
+    }
+
+    /**
+     * Opens the gate for a transaction.
+     * @return the stamp to pass to {@link #leave(long)}
+     */
+    long enter() {
+        return lock.readLock();
+    }
+
+    /**
+     * Ends a transaction, after all of its changes have been made.
+     * @param stamp the stamp returned by {@link #enter()}
+     */
+    void leave(long stamp) {
+        commits.incrementAndGet();
+        lock.unlockRead(stamp);
+    }
+
+    /**
+     * Closes the gate, waiting for open transactions to end.
+     * @return the stamp to pass to {@link #open(long)}
+     */
+    long close() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Opens the gate again after {@link #close()}.
+     * @param stamp the stamp returned by {@link #close()}
+     */
+    void open(long stamp) {
+        lock.unlockWrite(stamp);
+    }
+
+    /**
+     * Marks the start of a change made outside a transaction. Changes may
+     * nest, and the caller must hold the change lock.
+     */
+    void beginChange() {
+        changing.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a change started with {@link #beginChange()}.
+     */
+    void endChange() {
+        commits.incrementAndGet();
+        changing.decrementAndGet();
+    }
+
+    /**
+     * Runs a reader against data that no transaction or change is changing.
+     * The reader is first run without locking and may run more than once, so
+     * it must not have side effects, and it must only read structures that
+     * are safe to read while they are being changed. The caller must not hold
+     * the change lock.
+     * @param reader the reader
+     * @return the reader's result from a run nothing overlapped
+     */
+    <T> T read(Supplier<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long seen = commits.get();
+            if (quiet()) {
+                try {
+                    T result = reader.get();
+                    if (unchanged(seen)) {
+                        return result;
+                    }
+                } catch (RuntimeException e) {
+                    // A half-made change can break the reader; only report failures of a clean read
+                    if (unchanged(seen)) {
+                        throw e;
+                    }
+                }
+            }
+            Thread.yield();
+        }
+        long stamp = lock.writeLock();
+        try {
+            synchronized (changeLock) {
+                return reader.get();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean quiet() {
+        return !lock.isReadLocked() && changing.get() == 0;
+    }
+
+    private boolean unchanged(long seen) {
+        return quiet() && commits.get() == seen;
+    }
+}
@@ -0,0 +1,148 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.Internship;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of internships by company name, with a trigram index for
+ * case-insensitive substring matching.
+ * <p>
+ * Every distinct company name is split into the overlapping three-character
+ * sequences of its lower-case form. A substring query of three or more
+ * characters intersects the company sets of its own trigrams, starting with
+ * the smallest, and only checks the remaining candidates. Shorter queries
+ * check each distinct company name. Callers are responsible for
+ * synchronization, except that {@link #counts()} reads counts kept in a
+ * concurrent map and may be called while the index changes.
+ */
+class CompanyIndex {
+
+    private static final int GRAM = 3;
+
+    private final Map<String, Set<String>> internshipsByCompany = new HashMap<>();
+    private final Map<String, Set<String>> companiesByTrigram = new HashMap<>();
+    private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Adds an internship under its company name.
+     * @param internship the internship
+     */
+    void add(Internship internship) {
+        String company = internship.getCompanyName();
+        Set<String> ids = internshipsByCompany.get(company);
+        if (ids == null) {
+            ids = new TreeSet<>(IdAllocator.ID_ORDER);
+            internshipsByCompany.put(company, ids);
+            for (String trigram : trigrams(normalize(company))) {
+                companiesByTrigram.computeIfAbsent(trigram, k -> new HashSet<>()).add(company);
+            }
+        }
+        if (ids.add(internship.getInternshipId())) {
+            counts.merge(String.valueOf(company), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Removes an internship from its company name.
+     * @param internship the internship
+     */
+    void remove(Internship internship) {
+        String company = internship.getCompanyName();
+        Set<String> ids = internshipsByCompany.get(company);
+        if (ids == null || !ids.remove(internship.getInternshipId())) {
+            return;
+        }
+        counts.computeIfPresent(String.valueOf(company), (k, count) -> count == 1 ? null : count - 1);
+        if (!ids.isEmpty()) {
+            return;
+        }
+        internshipsByCompany.remove(company);
+        for (String trigram : trigrams(normalize(company))) {
+            Set<String> companies = companiesByTrigram.get(trigram);
+            companies.remove(company);
+            if (companies.isEmpty()) {
+                companiesByTrigram.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Removes every internship.
+     */
+    void clear() {
+        internshipsByCompany.clear();
+        companiesByTrigram.clear();
+        counts.clear();
+    }
+
+    /**
+     * Gets the internships whose company name contains some text, ignoring case.
+     * @param text the text to look for
+     * @return the internship IDs
+     */
+    List<String> find(String text) {
+        List<String> ids = new ArrayList<>();
+        for (String company : findCompanies(text)) {
+            ids.addAll(internshipsByCompany.get(company));
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the number of internships of each company. Internships without a
+     * company name are counted under "null".
+     * @return the internship counts by company name
+     */
+    Map<String, Integer> counts() {
+        return new HashMap<>(counts);
+    }
+
+    private Collection<String> findCompanies(String text) {
+        String query = normalize(text);
+        if (query.length() < GRAM) {
+            List<String> matches = new ArrayList<>();
+            for (String company : internshipsByCompany.keySet()) {
+                if (normalize(company).contains(query)) {
+                    matches.add(company);
+                }
+            }
+            return matches;
+        }
+
+        List<Set<String>> postings = new ArrayList<>();
+        for (String trigram : trigrams(query)) {
+            Set<String> companies = companiesByTrigram.get(trigram);
+            if (companies == null) {
+                return Collections.emptyList();
+            }
+            postings.add(companies);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        List<String> matches = new ArrayList<>();
+        for (String company : postings.get(0)) {
+            boolean candidate = true;
+            for (int i = 1; i < postings.size() && candidate; i++) {
+                candidate = postings.get(i).contains(company);
+            }
+            // Trigrams can match out of order, so the candidate is checked in full
+            if (candidate && normalize(company).contains(query)) {
+                matches.add(company);
+            }
+        }
+        return matches;
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + GRAM));
+        }
+        return trigrams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+}
@@ -2,34 +2,130 @@ package edu.ntu.ccds.sc2002.control;
 
 import edu.ntu.ccds.sc2002.entity.*;
 import java.io.*;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Singleton controller class for managing all system data.
  * Demonstrates Singleton design pattern and centralized data management.
+ * <p>
+ * The controller is safe for concurrent use. Records are held in concurrent
+ * maps, so single-record lookups take no lock, while changes and the indexes
+ * are guarded by the controller's own lock. Submitting an application,
+ * which must check and update one internship together, also holds a lock
+ * striped by internship ID, so it is atomic without serializing work on other
+ * internships. Confirming a placement takes no internship lock; the slot is
+ * reserved with a compare-and-set on the internship itself.
+ * <p>
+ * Operations that change several records, such as applying, confirming a
+ * placement or approving a withdrawal, run as a {@link Transaction}: they
+ * are undone as a whole on failure, journaled together, and seen by
+ * {@link #readSnapshot} readers either entirely or not at all. Locks are
+ * always taken in the order internship stripe, transaction gate, controller,
+ * entity.
  */
 public class DataController {
     
-    private static DataController instance;
+    /**
+     * Holds the singleton, which is created and safely published when the
+     * holder class is first initialized.
+     */
+    private static class Holder {
+        static final DataController INSTANCE = new DataController();
+    }
+    
+    /**
+     * Number of locks that internship changes are striped over.
+     */
+    private static final int LOCK_STRIPES = 64;
+    
+    /**
+     * System property selecting the storage engine. With the value "lsm",
+     * records are kept in on-disk LSM stores under data/lsm instead of
+     * in memory, and checkpoints flush those stores instead of writing snapshots.
+     */
+    public static final String STORAGE_PROPERTY = "ipms.storage";
+    
+    private volatile Repository<User> users;
+    private volatile Repository<Internship> internships;
+    private volatile Repository<Application> applications;
+    private volatile Repository<WithdrawalRequest> withdrawalRequests;
+    private boolean lsmStorage;
+    
+    private volatile IdAllocator idAllocator;
+    private volatile IdAllocator.Sequence internshipIdSequence;
+    private volatile IdAllocator.Sequence applicationIdSequence;
+    private volatile IdAllocator.Sequence withdrawalIdSequence;
+    private final Object[] internshipLocks = new Object[LOCK_STRIPES];
+    private final CommitGate commitGate = new CommitGate(this);
+    private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+    
+    /**
+     * Number of journal records after which saving writes a full checkpoint.
+     */
+    private static final int CHECKPOINT_THRESHOLD = 1000;
+    
+    /**
+     * Maximum number of rejected rows listed when importing a user file.
+     */
+    private static final int MAX_REPORTED_ROWS = 20;
+    
+    private Journal journal;
+    private EntityCodec journalCodec = EntityCodec.current();
+    private boolean journalHeaderWritten;
+    private final Object flushLock = new Object();
+    // Journal position of the last checkpoint, and the records kept from before it
+    private long lastCheckpointPosition;
+    private int journalRecordsKept;
     
-    private Map<String, User> users;
-    private Map<String, Internship> internships;
-    private Map<String, Application> applications;
-    private Map<String, WithdrawalRequest> withdrawalRequests;
+    private final Set<String> dirtyUsers = new LinkedHashSet<>();
+    private final Set<String> dirtyInternships = new LinkedHashSet<>();
+    private final Set<String> dirtyApplications = new LinkedHashSet<>();
+    private final Set<String> dirtyWithdrawals = new LinkedHashSet<>();
+    private Checkpointer checkpointer;
+    private final SnapshotStore snapshots = new SnapshotStore(new File("data"));
+    private volatile ColdArchive archive;
     
-    private int nextInternshipId = 1;
-    private int nextApplicationId = 1;
-    private int nextWithdrawalId = 1;
+    private final MultiIndex<UserRole> usersByRole = new MultiIndex<>();
+    private final Set<String> pendingCompanyReps = new TreeSet<>();
+    private final EligibilityIndex eligibleInternships = new EligibilityIndex();
+    private final InternshipScheduler schedule = new InternshipScheduler(LocalDate.now());
+    private final SearchIndex searchIndex = new SearchIndex();
+    
+    // Indexes read by the query classes while holding this controller's lock
+    final MultiIndex<String> applicationsByStudent = new MultiIndex<>(IdAllocator.ID_ORDER);
+    final MultiIndex<String> applicationsByInternship = new MultiIndex<>(IdAllocator.ID_ORDER);
+    final AttributeIndex<ApplicationStatus> applicationsByStatus = new AttributeIndex<>();
+    final CompanyIndex companyIndex = new CompanyIndex();
+    final AttributeIndex<InternshipStatus> internshipsByStatus = new AttributeIndex<>();
+    final AttributeIndex<String> internshipsByMajor = new AttributeIndex<>();
+    final AttributeIndex<InternshipLevel> internshipsByLevel = new AttributeIndex<>();
+    final AttributeIndex<LocalDate> internshipsByClosingDate = new AttributeIndex<>();
+    // False from loading until the internship indexes above are first needed
+    private boolean internshipIndexesBuilt = true;
+    final AttributeIndex<WithdrawalStatus> withdrawalsByStatus = new AttributeIndex<>();
     
     /**
      * Private constructor for Singleton pattern.
      */
     private DataController() {
-        users = new HashMap<>();
-        internships = new HashMap<>();
-        applications = new HashMap<>();
-        withdrawalRequests = new HashMap<>();
+        users = new MapRepository<>();
+        internships = new MapRepository<>(IdAllocator.ID_ORDER);
+        applications = new MapRepository<>(IdAllocator.ID_ORDER);
+        withdrawalRequests = new MapRepository<>(IdAllocator.ID_ORDER);
+        idAllocator = new IdAllocator();
+        internshipIdSequence = idAllocator.sequence("INT");
+        applicationIdSequence = idAllocator.sequence("APP");
+        withdrawalIdSequence = idAllocator.sequence("WDR");
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            internshipLocks[i] = new Object();
+        }
+        EntityEvents.addListener(this::onEntityChanged);
     }
     
     /**
@@ -37,10 +133,87 @@ public class DataController {
      * @return single instance of DataController
      */
     public static DataController getInstance() {
-        if (instance == null) {
-            instance = new DataController();
+        return Holder.INSTANCE;
+    }
+    
+    /**
+     * Gets the lock guarding changes that check and update an internship together.
+     */
+    private Object internshipLock(String internshipId) {
+        return internshipLocks[lockStripe(internshipId)];
+    }
+    
+    private static int lockStripe(String internshipId) {
+        return (internshipId.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES;
+    }
+    
+    /**
+     * Runs work holding the locks of several internships. The stripes are
+     * taken in ascending order, so batches over the same internships cannot
+     * deadlock.
+     */
+    private <T> T withInternshipLocks(Collection<String> internshipIds, Supplier<T> work) {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (String internshipId : internshipIds) {
+            stripes.add(lockStripe(internshipId));
+        }
+        return withStripes(stripes.iterator(), work);
+    }
+    
+    private <T> T withStripes(Iterator<Integer> stripes, Supplier<T> work) {
+        if (!stripes.hasNext()) {
+            return work.get();
+        }
+        synchronized (internshipLocks[stripes.next()]) {
+            return withStripes(stripes, work);
+        }
+    }
+    
+    // Transactions
+    /**
+     * Runs a unit of work as a transaction.
+     * If the work throws, every change it made through the transaction is
+     * undone before the exception is passed on. Work started while the
+     * thread is already in a transaction joins that transaction.
+     * @param work the work, given the transaction to make its changes through
+     * @return the work's result
+     */
+    public <T> T inTransaction(Function<Transaction, T> work) {
+        Transaction joined = currentTransaction.get();
+        if (joined != null) {
+            return work.apply(joined);
+        }
+        Transaction transaction = new Transaction();
+        long stamp = commitGate.enter();
+        currentTransaction.set(transaction);
+        try {
+            return work.apply(transaction);
+        } catch (RuntimeException | Error e) {
+            transaction.rollback();
+            throw e;
+        } finally {
+            currentTransaction.remove();
+            commitGate.leave(stamp);
         }
-        return instance;
+    }
+    
+    /**
+     * Runs a reader against a consistent view of the data.
+     * The reader never sees part of a transaction's changes. It runs
+     * without locking and is retried if a transaction or another change
+     * committed while it ran, so it may run more than once and must not
+     * have side effects. After a few retries it waits for the running
+     * transactions and changes to end and runs with them kept out, so it
+     * is not starved by a steady load of changes.
+     * @param reader the reader
+     * @return the reader's result
+     */
+    public <T> T readSnapshot(Supplier<T> reader) {
+        if (currentTransaction.get() != null) {
+            // A transaction reads its own changes
+            return reader.get();
+        }
+        return commitGate.read(reader);
     }
     
     // User Management
@@ -48,8 +221,31 @@ public class DataController {
      * Adds the user.
      * @param user the user
      */
-    public void addUser(User user) {
+    public synchronized void addUser(User user) {
+        User previous = users.get(user.getUserId());
+        if (previous != null) {
+            unindexUser(previous);
+        }
         users.put(user.getUserId(), user);
+        indexUser(user);
+        markDirty(dirtyUsers, user.getUserId());
+    }
+    
+    /**
+     * Removes the user.
+     * @param userId the user id
+     * @return true, if successful
+     */
+    public synchronized boolean removeUser(String userId) {
+        User user = users.get(userId);
+        if (users.remove(userId)) {
+            if (user != null) {
+                unindexUser(user);
+            }
+            markDirty(dirtyUsers, userId);
+            return true;
+        }
+        return false;
     }
     
     /**
@@ -65,41 +261,83 @@ public class DataController {
      * Gets the all users.
      * @return the all users
      */
-    public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+    public synchronized List<User> getAllUsers() {
+        return users.values();
+    }
+    
+    /**
+     * Gets a page of users in user ID order.
+     * @param cursor the cursor of the page, or null for the first page
+     * @param size the maximum number of users on the page
+     * @return the page
+     */
+    public synchronized Page<User> getUserPage(String cursor, int size) {
+        return pageById(users, cursor, size, User::getUserId);
     }
     
     /**
      * Gets the all students.
      * @return the all students
      */
-    public List<Student> getAllStudents() {
-        return users.values().stream()
-                   .filter(u -> u instanceof Student)
-                   .map(u -> (Student) u)
-                   .collect(Collectors.toList());
+    public synchronized List<Student> getAllStudents() {
+        return getUsersByRole(UserRole.STUDENT, Student.class);
     }
     
     /**
      * Gets the all company reps.
      * @return the all company reps
      */
-    public List<CompanyRepresentative> getAllCompanyReps() {
-        return users.values().stream()
-                   .filter(u -> u instanceof CompanyRepresentative)
-                   .map(u -> (CompanyRepresentative) u)
-                   .collect(Collectors.toList());
+    public synchronized List<CompanyRepresentative> getAllCompanyReps() {
+        return getUsersByRole(UserRole.COMPANY_REP, CompanyRepresentative.class);
+    }
+    
+    /**
+     * Gets the company reps whose accounts are awaiting approval.
+     * @return the pending company reps
+     */
+    public synchronized List<CompanyRepresentative> getPendingCompanyReps() {
+        return getUsersById(pendingCompanyReps, CompanyRepresentative.class);
     }
     
     /**
      * Gets the all career staff.
      * @return the all career staff
      */
-    public List<CareerCenterStaff> getAllCareerStaff() {
-        return users.values().stream()
-                   .filter(u -> u instanceof CareerCenterStaff)
-                   .map(u -> (CareerCenterStaff) u)
-                   .collect(Collectors.toList());
+    public synchronized List<CareerCenterStaff> getAllCareerStaff() {
+        return getUsersByRole(UserRole.CAREER_STAFF, CareerCenterStaff.class);
+    }
+    
+    private synchronized <T extends User> List<T> getUsersByRole(UserRole role, Class<T> type) {
+        return getUsersById(usersByRole.get(role), type);
+    }
+    
+    private <T extends User> List<T> getUsersById(Set<String> userIds, Class<T> type) {
+        List<T> result = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            User user = users.get(userId);
+            if (type.isInstance(user)) {
+                result.add(type.cast(user));
+            }
+        }
+        return result;
+    }
+    
+    private void indexUser(User user) {
+        usersByRole.add(user.getRole(), user.getUserId());
+        updatePendingApproval(user);
+    }
+    
+    private void unindexUser(User user) {
+        usersByRole.remove(user.getRole(), user.getUserId());
+        pendingCompanyReps.remove(user.getUserId());
+    }
+    
+    private void updatePendingApproval(User user) {
+        if (user instanceof CompanyRepresentative && !((CompanyRepresentative) user).isApproved()) {
+            pendingCompanyReps.add(user.getUserId());
+        } else {
+            pendingCompanyReps.remove(user.getUserId());
+        }
     }
     
     // Internship Management
@@ -107,8 +345,37 @@ public class DataController {
      * Adds the internship.
      * @param internship the internship
      */
-    public void addInternship(Internship internship) {
-        internships.put(internship.getInternshipId(), internship);
+    public synchronized void addInternship(Internship internship) {
+        commitGate.beginChange();
+        try {
+            Internship previous = internshipIndexesBuilt ? internships.get(internship.getInternshipId()) : null;
+            if (previous != null) {
+                companyIndex.remove(previous);
+            }
+            internships.put(internship.getInternshipId(), internship);
+            if (internshipIndexesBuilt) {
+                reindexInternship(internship);
+                searchIndex.update(internship);
+                companyIndex.add(internship);
+            }
+            markDirty(dirtyInternships, internship.getInternshipId());
+        } finally {
+            commitGate.endChange();
+        }
+    }
+    
+    /**
+     * Adds a batch of internships and links each one to its company representative.
+     * @param batch the internships to add
+     */
+    public synchronized void addInternships(Collection<Internship> batch) {
+        for (Internship internship : batch) {
+            addInternship(internship);
+            User rep = getUserById(internship.getCompanyRepId());
+            if (rep instanceof CompanyRepresentative) {
+                ((CompanyRepresentative) rep).addInternship(internship.getInternshipId());
+            }
+        }
     }
     
     /**
@@ -124,8 +391,155 @@ public class DataController {
      * Gets the all internships.
      * @return the all internships
      */
-    public List<Internship> getAllInternships() {
-        return new ArrayList<>(internships.values());
+    public synchronized List<Internship> getAllInternships() {
+        return internships.values();
+    }
+    
+    /**
+     * Gets the number of internships.
+     * @return the internship count
+     */
+    public synchronized int getInternshipCount() {
+        return internships.size();
+    }
+    
+    /**
+     * Gets a page of internships in internship ID order.
+     * @param cursor the cursor of the page, or null for the first page
+     * @param size the maximum number of internships on the page
+     * @return the page
+     */
+    public synchronized Page<Internship> getInternshipPage(String cursor, int size) {
+        return pageById(internships, cursor, size, Internship::getInternshipId);
+    }
+    
+    /**
+     * Visits every internship without copying them into a list.
+     * Internships that are not in use may be passed as copies, so the action
+     * must not keep or change them.
+     * @param action the action to perform on each internship
+     */
+    public synchronized void forEachInternship(Consumer<? super Internship> action) {
+        internships.forEach(action);
+    }
+    
+    /**
+     * Gets the approved, visible internships a student is eligible for, sorted by title.
+     * @param student the student
+     * @return the eligible internships
+     */
+    public synchronized List<Internship> getEligibleInternships(Student student) {
+        ensureInternshipIndexes();
+        advanceSchedule();
+        return getInternshipsById(eligibleInternships.find(student.getYearOfStudy(), student.getMajor()));
+    }
+    
+    /**
+     * Gets a page of the internships a student is eligible for, sorted by title.
+     * @param student the student
+     * @param cursor the cursor of the page, or null for the first page
+     * @param size the maximum number of internships on the page
+     * @return the page
+     */
+    public synchronized Page<Internship> getEligibleInternshipPage(Student student, String cursor, int size) {
+        Page.checkSize(size);
+        ensureInternshipIndexes();
+        advanceSchedule();
+        String[] after = Page.decode(cursor, 2);
+        List<Internship> found = getInternshipsById(eligibleInternships.find(student.getYearOfStudy(),
+            student.getMajor(), after == null ? null : after[0], after == null ? null : after[1], size + 1));
+        return Page.of(found, size, i -> new String[] { i.getTitle(), i.getInternshipId() });
+    }
+    
+    /**
+     * Searches the titles, descriptions and company names of all internships.
+     * @param query the search text
+     * @param limit the maximum number of results
+     * @return the best matching internships, best match first
+     */
+    public synchronized List<Internship> searchInternships(String query, int limit) {
+        ensureInternshipIndexes();
+        return getInternshipsById(searchIndex.search(query, limit, id -> true));
+    }
+    
+    /**
+     * Searches the internships listed to a student.
+     * @param student the student
+     * @param query the search text
+     * @param limit the maximum number of results
+     * @return the best matching internships the student is eligible for, best match first
+     */
+    public synchronized List<Internship> searchEligibleInternships(Student student, String query, int limit) {
+        ensureInternshipIndexes();
+        advanceSchedule();
+        return getInternshipsById(searchIndex.search(query, limit,
+            id -> eligibleInternships.isListedFor(id, student.getYearOfStudy(), student.getMajor())));
+    }
+    
+    /**
+     * Gets the internships whose company name contains some text, ignoring case.
+     * @param companyName the text to look for
+     * @return the matching internships
+     */
+    public synchronized List<Internship> getInternshipsByCompany(String companyName) {
+        ensureInternshipIndexes();
+        return getInternshipsById(companyIndex.find(companyName));
+    }
+    
+    private List<Internship> getInternshipsById(List<String> internshipIds) {
+        List<Internship> result = new ArrayList<>(internshipIds.size());
+        for (String internshipId : internshipIds) {
+            Internship internship = internships.get(internshipId);
+            if (internship != null) {
+                result.add(internship);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Checks if an internship is currently accepting applications.
+     * Uses the scheduled open set instead of comparing the internship's dates.
+     * @param internship the internship
+     * @return true, if the internship is approved, visible, open and has free slots
+     */
+    public synchronized boolean isAcceptingApplications(Internship internship) {
+        if (internships.get(internship.getInternshipId()) != internship) {
+            return internship.isAcceptingApplications();
+        }
+        ensureInternshipIndexes();
+        advanceSchedule();
+        return internship.getStatus() == InternshipStatus.APPROVED
+               && internship.isVisible()
+               && internship.getAvailableSlots() > 0
+               && schedule.isOpen(internship.getInternshipId());
+    }
+    
+    /**
+     * Schedules an internship and updates its place in the student listing
+     * and the attribute indexes.
+     */
+    private void reindexInternship(Internship internship) {
+        String internshipId = internship.getInternshipId();
+        schedule.update(internship);
+        eligibleInternships.update(internship, schedule.isOpen(internshipId));
+        internshipsByStatus.put(internshipId, internship.getStatus());
+        internshipsByMajor.put(internshipId,
+            internship.getPreferredMajor() == null ? null : internship.getPreferredMajor().toUpperCase(Locale.ROOT));
+        internshipsByLevel.put(internshipId, internship.getLevel());
+        internshipsByClosingDate.put(internshipId, internship.getClosingDate());
+    }
+    
+    /**
+     * Applies the openings and closings that have fallen due since the last check.
+     */
+    private void advanceSchedule() {
+        for (String internshipId : schedule.advance(LocalDate.now())) {
+            Internship internship = internships.get(internshipId);
+            if (internship != null) {
+                eligibleInternships.update(internship, schedule.isOpen(internshipId));
+            }
+        }
     }
     
     /**
@@ -133,8 +547,30 @@ public class DataController {
      * @param internshipId the internship id
      * @return true, if successful
      */
-    public boolean removeInternship(String internshipId) {
-        return internships.remove(internshipId) != null;
+    public synchronized boolean removeInternship(String internshipId) {
+        commitGate.beginChange();
+        try {
+            Internship internship = internshipIndexesBuilt ? internships.get(internshipId) : null;
+            if (internships.remove(internshipId)) {
+                if (internship != null) {
+                    companyIndex.remove(internship);
+                }
+                if (internshipIndexesBuilt) {
+                    eligibleInternships.remove(internshipId);
+                    schedule.remove(internshipId);
+                    searchIndex.remove(internshipId);
+                    internshipsByStatus.remove(internshipId);
+                    internshipsByMajor.remove(internshipId);
+                    internshipsByLevel.remove(internshipId);
+                    internshipsByClosingDate.remove(internshipId);
+                }
+                markDirty(dirtyInternships, internshipId);
+                return true;
+            }
+            return false;
+        } finally {
+            commitGate.endChange();
+        }
     }
     
     /**
@@ -142,7 +578,16 @@ public class DataController {
      * @return the string
      */
     public String generateInternshipId() {
-        return "INT" + String.format("%04d", nextInternshipId++);
+        return internshipIdSequence.next();
+    }
+    
+    /**
+     * Reserves consecutive internship IDs for a bulk import.
+     * @param count the number of IDs
+     * @return the block of IDs
+     */
+    IdAllocator.Block reserveInternshipIds(int count) {
+        return internshipIdSequence.reserve(count);
     }
     
     // Application Management
@@ -150,24 +595,163 @@ public class DataController {
      * Adds the application.
      * @param application the application
      */
-    public void addApplication(Application application) {
-        applications.put(application.getApplicationId(), application);
+    public synchronized void addApplication(Application application) {
+        commitGate.beginChange();
+        try {
+            Application previous = applications.get(application.getApplicationId());
+            if (previous != null) {
+                unindexApplication(previous);
+            }
+            applications.put(application.getApplicationId(), application);
+            indexApplication(application);
+            markDirty(dirtyApplications, application.getApplicationId());
+        } finally {
+            commitGate.endChange();
+        }
     }
 
     /**
      * Processes a new application by adding it to the system and updating related entities.
+     * Whether the application may be made is checked again under the
+     * internship's lock, so concurrent submissions cannot exceed the
+     * student's application limit or apply twice to the same internship.
      * @param application the application to process
+     * @return true, if the application was added
+     */
+    public boolean processNewApplication(Application application) {
+        String internshipId = application.getInternshipId();
+        synchronized (internshipLock(internshipId)) {
+            Internship internship = getInternshipById(internshipId);
+            User user = getUserById(application.getStudentId());
+            if (internship == null || !(user instanceof Student) || !isAcceptingApplications(internship)) {
+                return false;
+            }
+            Student student = (Student) user;
+            if (student.hasConfirmedInternship() || hasApplied(student.getUserId(), internshipId)) {
+                return false;
+            }
+            return inTransaction(transaction -> {
+                // Reserves one of the student's applications, atomically with the limit check
+                if (!transaction.addApplication(student, application.getApplicationId())) {
+                    return false;
+                }
+                addApplication(application);
+                transaction.onRollback(() -> removeApplication(application.getApplicationId()));
+                internship.addApplication(application.getApplicationId());
+                return true;
+            });
+        }
+    }
+    
+    private synchronized boolean hasApplied(String studentId, String internshipId) {
+        for (String applicationId : applicationsByStudent.get(studentId)) {
+            Application application = applications.get(applicationId);
+            if (application != null && application.getInternshipId().equals(internshipId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Confirms a student's placement from one of their successful applications
+     * and withdraws their other applications.
+     * All of the changes are made in one transaction. The internship's slot
+     * is taken first, without locking, and given back if the student has
+     * meanwhile confirmed another placement, so many students can accept
+     * places on the same internship at once.
+     * @param student the student
+     * @param application the successful application to accept
+     * @return true, if the placement was confirmed
      */
-    public void processNewApplication(Application application) {
-        addApplication(application);
-        Student student = (Student) getUserById(application.getStudentId());
-        if (student != null) {
-            student.addApplication(application.getApplicationId());
+    public boolean confirmPlacement(Student student, Application application) {
+        String internshipId = application.getInternshipId();
+        Internship internship = getInternshipById(internshipId);
+        if (internship == null || application.getStatus() != ApplicationStatus.SUCCESSFUL
+                || student.hasConfirmedInternship()) {
+            return false;
         }
-        Internship internship = getInternshipById(application.getInternshipId());
-        if (internship != null) {
-            internship.addApplication(application.getApplicationId());
+        return inTransaction(transaction -> {
+            if (!transaction.confirmStudent(internship, student.getUserId())) {
+                return false;
+            }
+            if (!transaction.confirmInternship(student, internshipId)) {
+                transaction.rollback();
+                return false;
+            }
+            transaction.setPlacementConfirmed(application, true);
+            
+            for (Application other : getApplicationsByStudentId(student.getUserId())) {
+                if (!other.getApplicationId().equals(application.getApplicationId())) {
+                    transaction.setStatus(other, ApplicationStatus.WITHDRAWN);
+                    transaction.removeApplication(student, other.getApplicationId());
+                }
+            }
+            return true;
+        });
+    }
+    
+    /**
+     * Processes a batch of new applications in one transaction.
+     * The locks of the batch's internships are held throughout, as when
+     * applying for a single internship, so an application made meanwhile
+     * cannot slip in between the duplicate check and the insertion.
+     * Each student's applications are reserved first, atomically with the
+     * student's application limit, and only the reserved ones are added.
+     * Each student and internship has its application list updated once for
+     * the whole batch rather than once per application.
+     * @param batch the applications to process
+     * @return the applications that were not added, because the student was
+     *         not found, had already applied for the internship or had
+     *         reached the application limit
+     */
+    public List<Application> processNewApplications(Collection<Application> batch) {
+        Map<String, List<Application>> byStudent = new LinkedHashMap<>();
+        Set<String> internshipIds = new HashSet<>();
+        for (Application application : batch) {
+            byStudent.computeIfAbsent(application.getStudentId(), k -> new ArrayList<>()).add(application);
+            internshipIds.add(application.getInternshipId());
         }
+        return withInternshipLocks(internshipIds, () -> inTransaction(transaction -> {
+            List<Application> rejected = new ArrayList<>();
+            Map<String, List<String>> byInternship = new LinkedHashMap<>();
+            for (Map.Entry<String, List<Application>> entry : byStudent.entrySet()) {
+                List<Application> applications = new ArrayList<>();
+                Set<String> applied = new HashSet<>();
+                for (Application application : entry.getValue()) {
+                    String internshipId = application.getInternshipId();
+                    if (hasApplied(entry.getKey(), internshipId) || !applied.add(internshipId)) {
+                        rejected.add(application);
+                    } else {
+                        applications.add(application);
+                    }
+                }
+                User user = getUserById(entry.getKey());
+                int reserved = 0;
+                if (user instanceof Student) {
+                    List<String> ids = new ArrayList<>(applications.size());
+                    for (Application application : applications) {
+                        ids.add(application.getApplicationId());
+                    }
+                    reserved = transaction.addApplications((Student) user, ids);
+                }
+                for (Application application : applications.subList(0, reserved)) {
+                    addApplication(application);
+                    transaction.onRollback(() -> removeApplication(application.getApplicationId()));
+                    byInternship.computeIfAbsent(application.getInternshipId(), k -> new ArrayList<>())
+                                .add(application.getApplicationId());
+                }
+                rejected.addAll(applications.subList(reserved, applications.size()));
+            }
+            for (Map.Entry<String, List<String>> entry : byInternship.entrySet()) {
+                Internship internship = getInternshipById(entry.getKey());
+                if (internship != null) {
+                    internship.addApplications(entry.getValue());
+                    transaction.onRollback(() -> entry.getValue().forEach(internship::removeApplication));
+                }
+            }
+            return rejected;
+        }));
     }
     
     /**
@@ -183,8 +767,26 @@ public class DataController {
      * Gets the all applications.
      * @return the all applications
      */
-    public List<Application> getAllApplications() {
-        return new ArrayList<>(applications.values());
+    public synchronized List<Application> getAllApplications() {
+        return applications.values();
+    }
+    
+    /**
+     * Gets a page of applications in application ID order.
+     * @param cursor the cursor of the page, or null for the first page
+     * @param size the maximum number of applications on the page
+     * @return the page
+     */
+    public synchronized Page<Application> getApplicationPage(String cursor, int size) {
+        return pageById(applications, cursor, size, Application::getApplicationId);
+    }
+    
+    /**
+     * Visits every application without copying them into a list.
+     * @param action the action to perform on each application
+     */
+    public synchronized void forEachApplication(Consumer<? super Application> action) {
+        applications.forEach(action);
     }
     
     /**
@@ -192,10 +794,8 @@ public class DataController {
      * @param studentId the student id
      * @return the applications by student id
      */
-    public List<Application> getApplicationsByStudentId(String studentId) {
-        return applications.values().stream()
-                          .filter(a -> a.getStudentId().equals(studentId))
-                          .collect(Collectors.toList());
+    public synchronized List<Application> getApplicationsByStudentId(String studentId) {
+        return getApplicationsById(applicationsByStudent.get(studentId));
     }
     
     /**
@@ -203,10 +803,42 @@ public class DataController {
      * @param internshipId the internship id
      * @return the applications by internship id
      */
-    public List<Application> getApplicationsByInternshipId(String internshipId) {
-        return applications.values().stream()
-                          .filter(a -> a.getInternshipId().equals(internshipId))
-                          .collect(Collectors.toList());
+    public synchronized List<Application> getApplicationsByInternshipId(String internshipId) {
+        return getApplicationsById(applicationsByInternship.get(internshipId));
+    }
+    
+    /**
+     * Gets a page of the applications for an internship in application ID order.
+     * @param internshipId the internship id
+     * @param cursor the cursor of the page, or null for the first page
+     * @param size the maximum number of applications on the page
+     * @return the page
+     */
+    public synchronized Page<Application> getApplicationPageByInternshipId(String internshipId, String cursor, int size) {
+        Page.checkSize(size);
+        String[] after = Page.decode(cursor, 1);
+        List<Application> found = new ArrayList<>(size + 1);
+        for (String applicationId : applicationsByInternship.getAfter(internshipId, after == null ? null : after[0])) {
+            if (found.size() > size) {
+                break;
+            }
+            Application application = applications.get(applicationId);
+            if (application != null) {
+                found.add(application);
+            }
+        }
+        return Page.of(found, size, a -> new String[] { a.getApplicationId() });
+    }
+    
+    private List<Application> getApplicationsById(Set<String> applicationIds) {
+        List<Application> result = new ArrayList<>(applicationIds.size());
+        for (String applicationId : applicationIds) {
+            Application application = applications.get(applicationId);
+            if (application != null) {
+                result.add(application);
+            }
+        }
+        return result;
     }
     
     /**
@@ -214,8 +846,124 @@ public class DataController {
      * @param applicationId the application id
      * @return true, if successful
      */
-    public boolean removeApplication(String applicationId) {
-        return applications.remove(applicationId) != null;
+    public synchronized boolean removeApplication(String applicationId) {
+        commitGate.beginChange();
+        try {
+            Application application = applications.get(applicationId);
+            if (applications.remove(applicationId)) {
+                if (application != null) {
+                    unindexApplication(application);
+                }
+                markDirty(dirtyApplications, applicationId);
+                return true;
+            }
+            return false;
+        } finally {
+            commitGate.endChange();
+        }
+    }
+    
+    private void indexApplication(Application application) {
+        applicationsByStudent.add(application.getStudentId(), application.getApplicationId());
+        applicationsByInternship.add(application.getInternshipId(), application.getApplicationId());
+        applicationsByStatus.put(application.getApplicationId(), application.getStatus());
+    }
+    
+    private void unindexApplication(Application application) {
+        applicationsByStudent.remove(application.getStudentId(), application.getApplicationId());
+        applicationsByInternship.remove(application.getInternshipId(), application.getApplicationId());
+        applicationsByStatus.remove(application.getApplicationId());
+    }
+    
+    /**
+     * Rebuilds the role partitions and the pending approval set from the stored users.
+     * Used after loading, since snapshots and journal replay fill the
+     * repository directly.
+     */
+    private synchronized void rebuildUserIndexes() {
+        usersByRole.clear();
+        pendingCompanyReps.clear();
+        users.forEach(this::indexUser);
+    }
+    
+    /**
+     * Drops the schedule and the listing, search, company and attribute
+     * indexes after loading. They are rebuilt the first time they are
+     * needed, so starting up does not decode every mapped internship.
+     */
+    private synchronized void dropInternshipIndexes() {
+        commitGate.beginChange();
+        try {
+            clearInternshipIndexes();
+            internshipIndexesBuilt = false;
+        } finally {
+            commitGate.endChange();
+        }
+    }
+    
+    /**
+     * Rebuilds the internship indexes from the stored internships if they
+     * were dropped after loading. The indexes only keep IDs and fields, so
+     * the pass does not hold on to the internships it reads.
+     */
+    private synchronized void ensureInternshipIndexes() {
+        if (internshipIndexesBuilt) {
+            return;
+        }
+        commitGate.beginChange();
+        try {
+            clearInternshipIndexes();
+            advanceSchedule();
+            internships.forEach(internship -> {
+                reindexInternship(internship);
+                searchIndex.update(internship);
+                companyIndex.add(internship);
+            });
+            internshipIndexesBuilt = true;
+        } finally {
+            commitGate.endChange();
+        }
+    }
+    
+    private void clearInternshipIndexes() {
+        schedule.clear();
+        eligibleInternships.clear();
+        searchIndex.clear();
+        companyIndex.clear();
+        internshipsByStatus.clear();
+        internshipsByMajor.clear();
+        internshipsByLevel.clear();
+        internshipsByClosingDate.clear();
+    }
+    
+    /**
+     * Rebuilds the application indexes from the stored applications.
+     * Used after loading, since snapshots and journal replay fill the
+     * repository directly.
+     */
+    private synchronized void rebuildApplicationIndexes() {
+        commitGate.beginChange();
+        try {
+            applicationsByStudent.clear();
+            applicationsByInternship.clear();
+            applicationsByStatus.clear();
+            applications.forEach(this::indexApplication);
+        } finally {
+            commitGate.endChange();
+        }
+    }
+    
+    /**
+     * Rebuilds the withdrawal request status index from the stored requests.
+     */
+    private synchronized void rebuildWithdrawalIndexes() {
+        commitGate.beginChange();
+        try {
+            withdrawalsByStatus.clear();
+            withdrawalRequests.forEach(r -> withdrawalsByStatus.put(r.getRequestId(), r.getStatus()));
+        } finally {
+            commitGate.endChange();
+        }
     }
     
     /**
@@ -223,7 +971,16 @@ public class DataController {
      * @return the string
      */
     public String generateApplicationId() {
-        return "APP" + String.format("%04d", nextApplicationId++);
+        return applicationIdSequence.next();
+    }
+    
+    /**
+     * Reserves consecutive application IDs for a bulk import.
+     * @param count the number of IDs
+     * @return the block of IDs
+     */
+    IdAllocator.Block reserveApplicationIds(int count) {
+        return applicationIdSequence.reserve(count);
     }
     
     // Withdrawal Request Management
@@ -231,8 +988,15 @@ public class DataController {
      * Adds the withdrawal request.
      * @param request the request
      */
-    public void addWithdrawalRequest(WithdrawalRequest request) {
-        withdrawalRequests.put(request.getRequestId(), request);
+    public synchronized void addWithdrawalRequest(WithdrawalRequest request) {
+        commitGate.beginChange();
+        try {
+            withdrawalRequests.put(request.getRequestId(), request);
+            withdrawalsByStatus.put(request.getRequestId(), request.getStatus());
+            markDirty(dirtyWithdrawals, request.getRequestId());
+        } finally {
+            commitGate.endChange();
+        }
     }
     
     /**
@@ -248,81 +1012,1049 @@ public class DataController {
      * Gets the all withdrawal requests.
      * @return the all withdrawal requests
      */
-    public List<WithdrawalRequest> getAllWithdrawalRequests() {
-        return new ArrayList<>(withdrawalRequests.values());
+    public synchronized List<WithdrawalRequest> getAllWithdrawalRequests() {
+        return withdrawalRequests.values();
     }
     
     /**
-     * Generate withdrawal request id.
-     * @return the string
+     * Gets a page of withdrawal requests in request ID order.
+     * @param cursor the cursor of the page, or null for the first page
+     * @param size the maximum number of requests on the page
+     * @return the page
      */
-    public String generateWithdrawalRequestId() {
-        return "WDR" + String.format("%04d", nextWithdrawalId++);
+    public synchronized Page<WithdrawalRequest> getWithdrawalRequestPage(String cursor, int size) {
+        return pageById(withdrawalRequests, cursor, size, WithdrawalRequest::getRequestId);
+    }
+    
+    private static <T> Page<T> pageById(Repository<T> repository, String cursor, int size, Function<T, String> id) {
+        Page.checkSize(size);
+        String[] after = Page.decode(cursor, 1);
+        List<T> found = repository.scanAfter(after == null ? null : after[0], size + 1);
+        return Page.of(found, size, record -> new String[] { id.apply(record) });
     }
     
     /**
-     * Generates a statistical report of the system data.
-     * @return A formatted string containing the report.
+     * Visits every withdrawal request without copying them into a list.
+     * @param action the action to perform on each withdrawal request
      */
-    public String generateStatisticsReport() {
-        StringBuilder report = new StringBuilder();
-        report.append("\n=== System Statistics Report ===\n");
-
-        // 1. Internship statistics by status
-        long approvedInternships = internships.values().stream().filter(i -> i.getStatus() == InternshipStatus.APPROVED).count();
-        long pendingInternships = internships.values().stream().filter(i -> i.getStatus() == InternshipStatus.PENDING).count();
-        long filledInternships = internships.values().stream().filter(i -> i.getStatus() == InternshipStatus.FILLED).count();
-        report.append("\n--- Internship Status ---\n");
-        report.append("Total Open Internships (Approved): ").append(approvedInternships).append("\n");
-        report.append("Total Pending Internships: ").append(pendingInternships).append("\n");
-        report.append("Total Filled Internships: ").append(filledInternships).append("\n");
-
-        // 2. Total submitted applications
-        report.append("\n--- Application Status ---\n");
-        report.append("Total Submitted Applications: ").append(applications.size()).append("\n");
-
-        // 3. Internships per company
-        report.append("\n--- Internships by Company ---\n");
-        Map<String, Long> internshipsByCompany = internships.values().stream()
-                .collect(Collectors.groupingBy(Internship::getCompanyName, Collectors.counting()));
-
-        if (internshipsByCompany.isEmpty()) {
-            report.append("No internships posted by any company.\n");
-        } else {
-            internshipsByCompany.entrySet().stream()
-                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                    .forEach(entry -> report.append(String.format("%-20s: %d\n", entry.getKey(), entry.getValue())));
+    public synchronized void forEachWithdrawalRequest(Consumer<? super WithdrawalRequest> action) {
+        withdrawalRequests.forEach(action);
+    }
+    
+    /**
+     * Removes the withdrawal request.
+     * @param requestId the request id
+     * @return true, if successful
+     */
+    public synchronized boolean removeWithdrawalRequest(String requestId) {
+        commitGate.beginChange();
+        try {
+            if (withdrawalRequests.remove(requestId)) {
+                withdrawalsByStatus.remove(requestId);
+                markDirty(dirtyWithdrawals, requestId);
+                return true;
+            }
+            return false;
+        } finally {
+            commitGate.endChange();
+        }
+    }
+    
+    /**
+     * Approves a withdrawal request in one transaction. The application is
+     * withdrawn and removed from the student, and a confirmed placement is
+     * given up, freeing its slot. Nothing changes unless the request is
+     * still pending, checked in the same step that changes its status.
+     * @param request the pending withdrawal request
+     * @return true, if the request was approved
+     */
+    public boolean approveWithdrawal(WithdrawalRequest request) {
+        return inTransaction(transaction -> {
+            if (!transaction.changeStatus(request, WithdrawalStatus.PENDING, WithdrawalStatus.APPROVED)) {
+                return false;
+            }
+            
+            Application application = getApplicationById(request.getApplicationId());
+            if (application == null) {
+                return true;
+            }
+            transaction.setStatus(application, ApplicationStatus.WITHDRAWN);
+            
+            User user = getUserById(request.getStudentId());
+            Student student = user instanceof Student ? (Student) user : null;
+            // If placement was confirmed, free up the slot
+            if (application.isPlacementConfirmed()) {
+                Internship internship = getInternshipById(application.getInternshipId());
+                if (internship != null) {
+                    transaction.removeConfirmedStudent(internship, request.getStudentId());
+                    if (student != null) {
+                        transaction.clearConfirmedInternship(student);
+                    }
+                }
+                transaction.setPlacementConfirmed(application, false);
+            }
+            if (student != null) {
+                transaction.removeApplication(student, application.getApplicationId());
+            }
+            return true;
+        });
+    }
+    
+    /**
+     * Rejects a withdrawal request in one transaction. The request is only
+     * rejected if it is still pending, checked in the same step that
+     * changes its status.
+     * @param request the pending withdrawal request
+     * @return true, if the request was rejected
+     */
+    public boolean rejectWithdrawal(WithdrawalRequest request) {
+        return inTransaction(transaction ->
+            transaction.changeStatus(request, WithdrawalStatus.PENDING, WithdrawalStatus.REJECTED));
+    }
+    
+    /**
+     * Generate withdrawal request id.
+     * @return the string
+     */
+    public String generateWithdrawalRequestId() {
+        return withdrawalIdSequence.next();
+    }
+    
+    /**
+     * Generates a statistical report of the system data.
+     * Counts are read from the status and company indexes, which are kept
+     * up to date on every change, so the report does not scan any records.
+     * The counts come from one snapshot, so they always agree with each other.
+     * The report reads the concurrent counts of the indexes without locking
+     * and is retried if a change got in the way, so it usually neither waits
+     * for nor holds up the sessions that are making changes; only a report
+     * that keeps being interrupted locks them out while it reads the counts.
+     * @return A formatted string containing the report.
+     */
+    public String generateStatisticsReport() {
+        ensureInternshipIndexes();
+        // Only the counts are read in the snapshot, so a retried read is cheap
+        Statistics statistics = readSnapshot(Statistics::new);
+        StringBuilder report = new StringBuilder();
+        report.append("\n=== System Statistics Report ===\n");
+
+        // 1. Internship statistics by status
+        report.append("\n--- Internship Status ---\n");
+        report.append("Total Open Internships (Approved): ").append(statistics.internships.get(InternshipStatus.APPROVED)).append("\n");
+        report.append("Total Pending Internships: ").append(statistics.internships.get(InternshipStatus.PENDING)).append("\n");
+        report.append("Total Filled Internships: ").append(statistics.internships.get(InternshipStatus.FILLED)).append("\n");
+
+        // 2. Total submitted applications, then each status
+        report.append("\n--- Application Status ---\n");
+        report.append("Total Submitted Applications: ").append(statistics.applicationTotal).append("\n");
+        for (Map.Entry<ApplicationStatus, Integer> count : statistics.applications.entrySet()) {
+            report.append(String.format("%-20s: %d\n", count.getKey(), count.getValue()));
+        }
+
+        // 3. Withdrawal requests by status
+        report.append("\n--- Withdrawal Requests ---\n");
+        for (Map.Entry<WithdrawalStatus, Integer> count : statistics.withdrawals.entrySet()) {
+            report.append(String.format("%-20s: %d\n", count.getKey(), count.getValue()));
+        }
+
+        // 4. Internships per company
+        report.append("\n--- Internships by Company ---\n");
+        Map<String, Integer> internshipsByCompany = statistics.companies;
+
+        if (internshipsByCompany.isEmpty()) {
+            report.append("No internships posted by any company.\n");
+        } else {
+            internshipsByCompany.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(entry -> report.append(String.format("%-20s: %d\n", entry.getKey(), entry.getValue())));
         }
 
         report.append("\n=== End of Report ===\n");
         return report.toString();
     }
     
+    /**
+     * The counts shown in the statistics report, read from the indexes.
+     */
+    private class Statistics {
+        final Map<InternshipStatus, Integer> internships = new EnumMap<>(InternshipStatus.class);
+        final int applicationTotal = applicationsByStatus.size();
+        final Map<ApplicationStatus, Integer> applications = new EnumMap<>(ApplicationStatus.class);
+        final Map<WithdrawalStatus, Integer> withdrawals = new EnumMap<>(WithdrawalStatus.class);
+        final Map<String, Integer> companies = companyIndex.counts();
+
+        Statistics() {
+            for (InternshipStatus status : InternshipStatus.values()) {
+                internships.put(status, internshipsByStatus.count(status));
+            }
+            for (ApplicationStatus status : ApplicationStatus.values()) {
+                applications.put(status, applicationsByStatus.count(status));
+            }
+            for (WithdrawalStatus status : WithdrawalStatus.values()) {
+                withdrawals.put(status, withdrawalsByStatus.count(status));
+            }
+        }
+    }
+    
+    // Queries
+    /**
+     * Starts a query over internships.
+     * @return a new internship query
+     */
+    public InternshipQuery queryInternships() {
+        ensureInternshipIndexes();
+        return new InternshipQuery(this);
+    }
+    
+    /**
+     * Starts a query over applications.
+     * @return a new application query
+     */
+    public ApplicationQuery queryApplications() {
+        return new ApplicationQuery(this);
+    }
+    
+    /**
+     * Starts a query over withdrawal requests.
+     * @return a new withdrawal request query
+     */
+    public WithdrawalQuery queryWithdrawalRequests() {
+        return new WithdrawalQuery(this);
+    }
+    
+    Repository<Internship> internshipRepository() {
+        return internships;
+    }
+    
+    Repository<Application> applicationRepository() {
+        return applications;
+    }
+    
+    Repository<WithdrawalRequest> withdrawalRepository() {
+        return withdrawalRequests;
+    }
+    
+    // Archive Management
+    /**
+     * Moves finished internships into the cold archive together with their
+     * applications and withdrawal requests.
+     * An internship is archived once its closing date, or for FILLED and
+     * REJECTED internships its last activity, is more than the retention
+     * period in the past. The last activity is the opening date or the date
+     * of the latest application, whichever is later. Internships with a
+     * pending withdrawal request are kept until the request has been
+     * processed.
+     * <p>
+     * The records leave the hot store in one transaction, which also drops
+     * the archived IDs from the students' applications and the
+     * representatives' internships, since archived records no longer count
+     * towards either limit. They stay readable through the archive read
+     * methods. The segment is compressed and written afterwards without
+     * holding this controller's lock. The journal is held back until it is
+     * on disk, so the removals are never persisted without it.
+     * @param retentionDays the number of days finished internships are kept
+     * @return the number of internships archived
+     */
+    public int archiveInternships(int retentionDays) throws IOException {
+        synchronized (flushLock) {
+            if (archive == null) {
+                archive = new ColdArchive(new File("data/archive"));
+            }
+            LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+            ColdArchive target = archive;
+            // Archive readers wait for the segment rather than miss the removed records
+            synchronized (target) {
+                Transaction[] removal = new Transaction[1];
+                List<ColdArchive.Group> groups = inTransaction(transaction -> {
+                    removal[0] = transaction;
+                    synchronized (this) {
+                        List<ColdArchive.Group> selected = selectArchivable(cutoff);
+                        for (ColdArchive.Group group : selected) {
+                            removeArchivedRecords(group, transaction);
+                        }
+                        return selected;
+                    }
+                });
+                if (groups.isEmpty()) {
+                    return 0;
+                }
+                try {
+                    target.write(groups);
+                } catch (IOException | RuntimeException e) {
+                    inTransaction(transaction -> {
+                        removal[0].rollback();
+                        return null;
+                    });
+                    throw e;
+                }
+                return groups.size();
+            }
+        }
+    }
+    
+    private List<ColdArchive.Group> selectArchivable(LocalDate cutoff) {
+        Map<String, List<WithdrawalRequest>> withdrawalsByApplication = new HashMap<>();
+        for (WithdrawalRequest request : withdrawalRequests.values()) {
+            withdrawalsByApplication.computeIfAbsent(request.getApplicationId(), k -> new ArrayList<>())
+                                    .add(request);
+        }
+        
+        List<ColdArchive.Group> groups = new ArrayList<>();
+        for (Internship internship : internships.values()) {
+            List<Application> archivedApplications = getApplicationsByInternshipId(internship.getInternshipId());
+            if (!isPastRetention(internship, archivedApplications, cutoff)) {
+                continue;
+            }
+            List<WithdrawalRequest> archivedWithdrawals = new ArrayList<>();
+            for (Application application : archivedApplications) {
+                archivedWithdrawals.addAll(
+                    withdrawalsByApplication.getOrDefault(application.getApplicationId(), Collections.emptyList()));
+            }
+            if (archivedWithdrawals.stream().anyMatch(r -> r.getStatus() == WithdrawalStatus.PENDING)) {
+                continue;
+            }
+            groups.add(new ColdArchive.Group(internship, archivedApplications, archivedWithdrawals));
+        }
+        return groups;
+    }
+    
+    private static boolean isPastRetention(Internship internship, List<Application> applications, LocalDate cutoff) {
+        if (internship.getClosingDate() != null && internship.getClosingDate().isBefore(cutoff)) {
+            return true;
+        }
+        InternshipStatus status = internship.getStatus();
+        if (status != InternshipStatus.FILLED && status != InternshipStatus.REJECTED) {
+            return false;
+        }
+        LocalDate lastActivity = internship.getOpeningDate();
+        for (Application application : applications) {
+            LocalDate applied = application.getApplicationDate() == null
+                ? null : application.getApplicationDate().toLocalDate();
+            if (applied != null && (lastActivity == null || applied.isAfter(lastActivity))) {
+                lastActivity = applied;
+            }
+        }
+        return lastActivity != null && lastActivity.isBefore(cutoff);
+    }
+    
+    /**
+     * Removes an archived group from the hot store, together with the
+     * references the student and representative records hold to it.
+     * Without a transaction the removal cannot be undone.
+     */
+    private void removeArchivedRecords(ColdArchive.Group group, Transaction transaction) {
+        String internshipId = group.internship.getInternshipId();
+        for (WithdrawalRequest request : group.withdrawals) {
+            if (removeWithdrawalRequest(request.getRequestId()) && transaction != null) {
+                transaction.onRollback(() -> addWithdrawalRequest(request));
+            }
+        }
+        for (Application application : group.applications) {
+            if (removeApplication(application.getApplicationId()) && transaction != null) {
+                transaction.onRollback(() -> addApplication(application));
+            }
+            User student = getUserById(application.getStudentId());
+            if (student instanceof Student) {
+                if (transaction != null) {
+                    transaction.removeApplication((Student) student, application.getApplicationId());
+                } else {
+                    ((Student) student).removeApplication(application.getApplicationId());
+                }
+            }
+        }
+        Internship internship = internships.get(internshipId);
+        if (removeInternship(internshipId) && transaction != null) {
+            transaction.onRollback(() -> addInternship(internship));
+        }
+        User rep = getUserById(group.internship.getCompanyRepId());
+        if (rep instanceof CompanyRepresentative && ((CompanyRepresentative) rep).removeInternship(internshipId)
+                && transaction != null) {
+            transaction.onRollback(() -> ((CompanyRepresentative) rep).restoreInternship(internshipId));
+        }
+    }
+    
+    /**
+     * Removes records from the hot store that are already in the archive.
+     * This finishes an archival run that was interrupted after its segment
+     * was written, and drops archived IDs that students and representatives
+     * still hold from archives written before they were cleaned up.
+     */
+    private void dropArchivedRecords() throws IOException {
+        for (String internshipId : archive.getInternshipIds()) {
+            if (internships.containsKey(internshipId)) {
+                removeArchivedRecords(archive.read(internshipId), null);
+            }
+        }
+        if (archive.getInternshipCount() == 0) {
+            return;
+        }
+        for (User user : users.values()) {
+            if (user instanceof Student) {
+                Student student = (Student) user;
+                for (String applicationId : new ArrayList<>(student.getApplicationIds())) {
+                    if (!applications.containsKey(applicationId) && archive.internshipOfApplication(applicationId) != null) {
+                        student.removeApplication(applicationId);
+                    }
+                }
+            } else if (user instanceof CompanyRepresentative) {
+                CompanyRepresentative rep = (CompanyRepresentative) user;
+                for (String internshipId : new ArrayList<>(rep.getInternshipIds())) {
+                    if (!internships.containsKey(internshipId) && archive.isArchived(internshipId)) {
+                        rep.removeInternship(internshipId);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets the archived internships of a company representative.
+     * @param repId the company representative id
+     * @return detached copies of the internships, in ID order
+     */
+    public List<Internship> getArchivedInternshipsByCompanyRep(String repId) {
+        List<Internship> result = new ArrayList<>();
+        if (archive != null) {
+            for (String internshipId : archive.internshipsOfRep(repId)) {
+                ColdArchive.Group group = readArchive(internshipId);
+                if (group != null) {
+                    result.add(group.internship);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Gets the archived applications of a student.
+     * @param studentId the student id
+     * @return detached copies of the applications, in ID order
+     */
+    public List<Application> getArchivedApplicationsByStudentId(String studentId) {
+        List<Application> result = new ArrayList<>();
+        if (archive != null) {
+            for (String applicationId : archive.applicationsOfStudent(studentId)) {
+                Application application = getArchivedApplication(applicationId);
+                if (application != null) {
+                    result.add(application);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Gets an archived internship.
+     * The result is a detached copy; changing it does not affect the archive.
+     * @param internshipId the internship id
+     * @return the archived internship, or null if it is not archived
+     */
+    public Internship getArchivedInternship(String internshipId) {
+        ColdArchive.Group group = readArchive(internshipId);
+        return group == null ? null : group.internship;
+    }
+    
+    /**
+     * Gets the archived applications of an internship.
+     * @param internshipId the internship id
+     * @return detached copies of the applications, empty if the internship is not archived
+     */
+    public List<Application> getArchivedApplicationsByInternshipId(String internshipId) {
+        ColdArchive.Group group = readArchive(internshipId);
+        return group == null ? new ArrayList<>() : group.applications;
+    }
+    
+    /**
+     * Gets an archived application.
+     * The result is a detached copy; changing it does not affect the archive.
+     * @param applicationId the application id
+     * @return the archived application, or null if it is not archived
+     */
+    public Application getArchivedApplication(String applicationId) {
+        ColdArchive.Group group = archive == null ? null : readArchive(archive.internshipOfApplication(applicationId));
+        if (group != null) {
+            for (Application application : group.applications) {
+                if (application.getApplicationId().equals(applicationId)) {
+                    return application;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets an archived withdrawal request.
+     * The result is a detached copy; changing it does not affect the archive.
+     * @param requestId the request id
+     * @return the archived withdrawal request, or null if it is not archived
+     */
+    public WithdrawalRequest getArchivedWithdrawalRequest(String requestId) {
+        ColdArchive.Group group = archive == null ? null : readArchive(archive.internshipOfWithdrawal(requestId));
+        if (group != null) {
+            for (WithdrawalRequest request : group.withdrawals) {
+                if (request.getRequestId().equals(requestId)) {
+                    return request;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private ColdArchive.Group readArchive(String internshipId) {
+        if (archive == null || internshipId == null) {
+            return null;
+        }
+        try {
+            return archive.read(internshipId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    // Journal Management
+    /**
+     * Marks an entity dirty whenever one of its setters is called.
+     * Only entities that are stored in this controller are tracked.
+     */
+    private synchronized void onEntityChanged(Object entity, String property, Object oldValue, Object newValue) {
+        commitGate.beginChange();
+        try {
+            if (entity instanceof User) {
+                User user = (User) entity;
+                if (users.get(user.getUserId()) == user) {
+                    users.update(user.getUserId(), user);
+                    updatePendingApproval(user);
+                    markDirty(dirtyUsers, user.getUserId());
+                }
+            } else if (entity instanceof Internship) {
+                Internship internship = (Internship) entity;
+                if (internships.get(internship.getInternshipId()) == internship) {
+                    internships.update(internship.getInternshipId(), internship);
+                    if (internshipIndexesBuilt) {
+                        reindexInternship(internship);
+                        if (property.equals("title") || property.equals("description")) {
+                            searchIndex.update(internship);
+                        }
+                    }
+                    markDirty(dirtyInternships, internship.getInternshipId());
+                }
+            } else if (entity instanceof Application) {
+                Application application = (Application) entity;
+                if (applications.get(application.getApplicationId()) == application) {
+                    applications.update(application.getApplicationId(), application);
+                    applicationsByStatus.put(application.getApplicationId(), application.getStatus());
+                    markDirty(dirtyApplications, application.getApplicationId());
+                }
+            } else if (entity instanceof WithdrawalRequest) {
+                WithdrawalRequest request = (WithdrawalRequest) entity;
+                if (withdrawalRequests.get(request.getRequestId()) == request) {
+                    withdrawalRequests.update(request.getRequestId(), request);
+                    withdrawalsByStatus.put(request.getRequestId(), request.getStatus());
+                    markDirty(dirtyWithdrawals, request.getRequestId());
+                }
+            }
+        } finally {
+            commitGate.endChange();
+        }
+    }
+    
+    /**
+     * Records that a key was added, changed or removed since the last flush.
+     * Must be called while holding this controller's lock.
+     */
+    private void markDirty(Set<String> dirty, String key) {
+        if (journal == null) {
+            return;
+        }
+        if (dirty.add(key) && checkpointer != null && getDirtyCount() >= checkpointer.getDirtyThreshold()) {
+            checkpointer.requestFlush();
+        }
+    }
+    
+    /**
+     * Gets the number of records changed since the last flush.
+     * @return the dirty record count
+     */
+    public synchronized int getDirtyCount() {
+        return dirtyUsers.size() + dirtyInternships.size() + dirtyApplications.size() + dirtyWithdrawals.size();
+    }
+    
+    /**
+     * Starts the background checkpointer, configured from system properties.
+     */
+    public synchronized void startCheckpointer() {
+        if (checkpointer == null) {
+            checkpointer = Checkpointer.fromSystemProperties(this);
+            checkpointer.start();
+        }
+    }
+    
+    private void stopCheckpointer() {
+        Checkpointer running;
+        synchronized (this) {
+            running = checkpointer;
+            checkpointer = null;
+        }
+        if (running != null) {
+            running.stop();
+        }
+    }
+    
+    /**
+     * Appends the current state of every dirty record to the journal.
+     * Records are encoded while holding this controller's lock, but written
+     * and synced to disk without it, so interactive changes are not blocked
+     * by disk I/O. A full checkpoint follows once the journal has grown past
+     * the checkpoint threshold.
+     */
+    public void flushChanges() throws IOException {
+        synchronized (flushLock) {
+            if (journal == null || !journal.isOpen()) {
+                return;
+            }
+            journalDirtyRecords();
+            if (journal.getRecordCount() - journalRecordsKept >= CHECKPOINT_THRESHOLD) {
+                checkpoint();
+            }
+        }
+    }
+    
+    /**
+     * Drains the dirty records and appends them to the journal as one batch.
+     * They are collected with the gate closed, so a transaction is journaled
+     * whole or not at all.
+     */
+    private void journalDirtyRecords() throws IOException {
+        List<PendingRecord> batch;
+        long stamp = commitGate.close();
+        try {
+            batch = collectDirtyRecords();
+        } finally {
+            commitGate.open(stamp);
+        }
+        appendToJournal(batch);
+    }
+    
+    /**
+     * Appends a batch to the journal and syncs it. If that fails, its
+     * records are marked dirty again for the next flush.
+     */
+    private void appendToJournal(List<PendingRecord> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            writeJournalHeader();
+            journal.beginBatch();
+            for (PendingRecord record : batch) {
+                journal.append(record.op, record.key, record.payload);
+            }
+            journal.commitBatch();
+            journal.sync();
+        } catch (IOException e) {
+            remarkDirty(batch);
+            throw e;
+        }
+    }
+    
+    /**
+     * A dirty record encoded and waiting to be appended to the journal.
+     */
+    private static class PendingRecord {
+        final byte op;
+        final String key;
+        final byte[] payload;
+        
+        PendingRecord(byte op, String key, byte[] payload) {
+            this.op = op;
+            this.key = key;
+            this.payload = payload;
+        }
+    }
+    
+    /**
+     * Encodes and clears every dirty record. If a record cannot be encoded
+     * the flush is aborted: the records drained so far are marked dirty
+     * again and nothing is journaled, so a transaction is never journaled
+     * without some of its records.
+     */
+    private synchronized List<PendingRecord> collectDirtyRecords() throws IOException {
+        List<PendingRecord> batch = new ArrayList<>(getDirtyCount());
+        try {
+            drainDirty(dirtyUsers, users, Journal.PUT_USER, Journal.REMOVE_USER, batch);
+            drainDirty(dirtyInternships, internships, Journal.PUT_INTERNSHIP, Journal.REMOVE_INTERNSHIP, batch);
+            drainDirty(dirtyApplications, applications, Journal.PUT_APPLICATION, Journal.REMOVE_APPLICATION, batch);
+            drainDirty(dirtyWithdrawals, withdrawalRequests, Journal.PUT_WITHDRAWAL, Journal.REMOVE_WITHDRAWAL, batch);
+        } catch (IOException | RuntimeException e) {
+            remarkDirty(batch);
+            throw e;
+        }
+        return batch;
+    }
+    
+    private <T> void drainDirty(Set<String> dirty, Repository<T> store, byte putOp, byte removeOp,
+                                List<PendingRecord> batch) throws IOException {
+        Iterator<String> keys = dirty.iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            T record = store.get(key);
+            if (record == null) {
+                batch.add(new PendingRecord(removeOp, key, Journal.NO_PAYLOAD));
+            } else {
+                batch.add(new PendingRecord(putOp, key, encode(putOp, record)));
+            }
+            keys.remove();
+        }
+    }
+    
+    private synchronized void remarkDirty(List<PendingRecord> batch) {
+        for (PendingRecord record : batch) {
+            switch (record.op) {
+                case Journal.PUT_USER:
+                case Journal.REMOVE_USER:
+                    dirtyUsers.add(record.key);
+                    break;
+                case Journal.PUT_INTERNSHIP:
+                case Journal.REMOVE_INTERNSHIP:
+                    dirtyInternships.add(record.key);
+                    break;
+                case Journal.PUT_APPLICATION:
+                case Journal.REMOVE_APPLICATION:
+                    dirtyApplications.add(record.key);
+                    break;
+                default:
+                    dirtyWithdrawals.add(record.key);
+            }
+        }
+    }
+    
+    /**
+     * Applies a journal record to the in-memory maps during replay.
+     */
+    private void applyJournalRecord(byte op, String key, byte[] payload) throws IOException {
+        switch (op) {
+            case Journal.CODEC_HEADER:
+                journalCodec = EntityCodec.fromHeaderBytes(payload);
+                break;
+            case Journal.PUT_USER:
+                users.put(key, journalCodec.fromBytes(payload, EntityCodec::readUser));
+                break;
+            case Journal.PUT_INTERNSHIP:
+                internships.put(key, journalCodec.fromBytes(payload, EntityCodec::readInternship));
+                break;
+            case Journal.PUT_APPLICATION:
+                applications.put(key, journalCodec.fromBytes(payload, EntityCodec::readApplication));
+                break;
+            case Journal.PUT_WITHDRAWAL:
+                withdrawalRequests.put(key, journalCodec.fromBytes(payload, EntityCodec::readWithdrawalRequest));
+                break;
+            case Journal.REMOVE_INTERNSHIP:
+                internships.remove(key);
+                break;
+            case Journal.REMOVE_APPLICATION:
+                applications.remove(key);
+                break;
+            case Journal.REMOVE_USER:
+                users.remove(key);
+                break;
+            case Journal.REMOVE_WITHDRAWAL:
+                withdrawalRequests.remove(key);
+                break;
+            default:
+                throw new IOException("Unknown journal operation: " + op);
+        }
+    }
+    
+    /**
+     * Encodes a record for the journal using the current codec.
+     */
+    private byte[] encode(byte op, Object record) throws IOException {
+        switch (op) {
+            case Journal.PUT_USER:
+                return journalCodec.toBytes((User) record, EntityCodec::writeUser);
+            case Journal.PUT_INTERNSHIP:
+                return journalCodec.toBytes((Internship) record, EntityCodec::writeInternship);
+            case Journal.PUT_APPLICATION:
+                return journalCodec.toBytes((Application) record, EntityCodec::writeApplication);
+            case Journal.PUT_WITHDRAWAL:
+                return journalCodec.toBytes((WithdrawalRequest) record, EntityCodec::writeWithdrawalRequest);
+            default:
+                throw new IOException("Unknown journal operation: " + op);
+        }
+    }
+    
+    /**
+     * Starts a new run of journal records encoded with the current codec.
+     * The codec header is written lazily before the first record of the run.
+     */
+    private void startJournalSegment() {
+        journalCodec = EntityCodec.current();
+        journalHeaderWritten = false;
+    }
+    
+    private void writeJournalHeader() throws IOException {
+        if (!journalHeaderWritten) {
+            journal.append(Journal.CODEC_HEADER, "", journalCodec.headerBytes());
+            journalHeaderWritten = true;
+        }
+    }
+    
     /**
      * Loads all data from files.
+     * The last checkpoint snapshot is loaded first, then every change
+     * recorded in the journal since that checkpoint is replayed on top.
+     * Archived internships are not loaded; they are read from the cold
+     * archive on request. The internship indexes are rebuilt when first
+     * needed rather than here.
      */
     public void loadAllData() throws IOException {
+        lsmStorage = "lsm".equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY));
+        long generation = 0;
+        if (lsmStorage) {
+            loadLsmRepositories();
+        } else {
+            generation = loadSnapshot();
+        }
+        
+        new File("data").mkdirs();
+        journal = new Journal(new File("data/journal.log"));
+        journal.replayAndOpen(this::applyJournalRecord, generation);
+        lastCheckpointPosition = journal.getReplayStart();
+        journalRecordsKept = 0;
+        startJournalSegment();
+        rebuildUserIndexes();
+        dropInternshipIndexes();
+        rebuildApplicationIndexes();
+        rebuildWithdrawalIndexes();
+        
+        archive = new ColdArchive(new File("data/archive"));
+        dropArchivedRecords();
+        
+        openIdAllocator(IdAllocator.open(new File("data/ids.properties")));
+    }
+    
+    /**
+     * Loads the latest snapshot into in-memory repositories.
+     * @return the generation loaded, or 0 if none has been published
+     */
+    private long loadSnapshot() throws IOException {
+        SnapshotStore.Generation generation = snapshots.findLatest();
+        
         // Try to load users from .dat file first, fall back to .txt if not found
-        if (new File("data/users.dat").exists()) {
-            loadUsersFromDatFile("data/users.dat");
+        File usersFile = snapshotFile(generation, "users");
+        if (usersFile.exists()) {
+            loadUsersFromDatFile(usersFile.getPath());
         } else {
             loadUsersFromFile("data/users.txt");
         }
         
-        loadInternshipsFromFile("data/internships.dat");
-        loadApplicationsFromFile("data/applications.dat");
-        loadWithdrawalRequestsFromFile("data/withdrawals.dat");
+        loadInternshipsFromFile(snapshotFile(generation, "internships").getPath());
+        // The internships may be mapped from the generation's file
+        snapshots.setInUse(generation);
+        loadApplicationsFromFile(snapshotFile(generation, "applications").getPath());
+        loadWithdrawalRequestsFromFile(snapshotFile(generation, "withdrawals").getPath());
+        return generation == null ? 0 : generation.getNumber();
+    }
+    
+    /**
+     * Opens the on-disk LSM stores. On the first start with the LSM engine
+     * the latest snapshot is loaded and copied into the stores.
+     */
+    private void loadLsmRepositories() throws IOException {
+        File root = new File("data/lsm");
+        Repository<User> lsmUsers = new LsmRepository<>(
+            new File(root, "users"), EntityCodec::writeUser, EntityCodec::readUser);
+        Repository<Internship> lsmInternships = new LsmRepository<>(
+            new File(root, "internships"), EntityCodec::writeInternship, EntityCodec::readInternship,
+            IdAllocator.ID_ORDER);
+        Repository<Application> lsmApplications = new LsmRepository<>(
+            new File(root, "applications"), EntityCodec::writeApplication, EntityCodec::readApplication,
+            IdAllocator.ID_ORDER);
+        Repository<WithdrawalRequest> lsmWithdrawals = new LsmRepository<>(
+            new File(root, "withdrawals"), EntityCodec::writeWithdrawalRequest, EntityCodec::readWithdrawalRequest,
+            IdAllocator.ID_ORDER);
+        
+        if (lsmUsers.size() == 0 && lsmInternships.size() == 0
+                && lsmApplications.size() == 0 && lsmWithdrawals.size() == 0) {
+            loadSnapshot();
+            copyRecords(users, lsmUsers, User::getUserId);
+            copyRecords(internships, lsmInternships, Internship::getInternshipId);
+            copyRecords(applications, lsmApplications, Application::getApplicationId);
+            copyRecords(withdrawalRequests, lsmWithdrawals, WithdrawalRequest::getRequestId);
+        }
+        
+        users = lsmUsers;
+        internships = lsmInternships;
+        applications = lsmApplications;
+        withdrawalRequests = lsmWithdrawals;
+    }
+    
+    private static <T> void copyRecords(Repository<T> from, Repository<T> to,
+                                        Function<T, String> keyOf) throws IOException {
+        for (T record : from.values()) {
+            to.put(keyOf.apply(record), record);
+        }
+        to.flush();
     }
     
     /**
-     * Saves all data to files.
+     * Switches ID generation to an allocator and its saved marks.
+     * Data saved before marks were kept has none, so numbering starts after
+     * the highest live ID and after every record ever numbered, counting
+     * archived ones, whichever is later.
+     */
+    private void openIdAllocator(IdAllocator allocator) {
+        IdAllocator.Sequence internshipSequence = allocator.sequence("INT");
+        IdAllocator.Sequence applicationSequence = allocator.sequence("APP");
+        IdAllocator.Sequence withdrawalSequence = allocator.sequence("WDR");
+        if (!internshipSequence.isSaved()) {
+            internshipSequence.advanceTo(internships.size() + archive.getInternshipCount() + 1);
+            archive.getInternshipIds().forEach(id -> advancePast(internshipSequence, id));
+            internships.forEachId(id -> advancePast(internshipSequence, id));
+        }
+        if (!applicationSequence.isSaved()) {
+            applicationSequence.advanceTo(applications.size() + archive.getApplicationCount() + 1);
+            applications.forEachId(id -> advancePast(applicationSequence, id));
+        }
+        if (!withdrawalSequence.isSaved()) {
+            withdrawalSequence.advanceTo(withdrawalRequests.size() + archive.getWithdrawalCount() + 1);
+            withdrawalRequests.forEachId(id -> advancePast(withdrawalSequence, id));
+        }
+        idAllocator = allocator;
+        internshipIdSequence = internshipSequence;
+        applicationIdSequence = applicationSequence;
+        withdrawalIdSequence = withdrawalSequence;
+    }
+    
+    private static void advancePast(IdAllocator.Sequence sequence, String id) {
+        long number = IdAllocator.parse(sequence.getPrefix(), id);
+        if (number >= 0) {
+            sequence.advanceTo(number + 1);
+        }
+    }
+    
+    /**
+     * Saves all pending changes.
+     * Stops the background checkpointer and flushes the remaining dirty records
+     * to the journal. A full checkpoint is written once the journal has grown
+     * past the checkpoint threshold. The next free ID numbers are saved last,
+     * so numbering continues without a gap on the next start.
      */
     public void saveAllData() throws IOException {
-        new File("data").mkdirs();
-        saveUsersToFile("data/users.dat");  // ADD THIS LINE
-        saveInternshipsToFile("data/internships.dat");
-        saveApplicationsToFile("data/applications.dat");
-        saveWithdrawalRequestsToFile("data/withdrawals.dat");
+        stopCheckpointer();
+        if (journal == null || !journal.isOpen()) {
+            checkpoint();
+        } else {
+            flushChanges();
+        }
+        idAllocator.saveMarks();
+    }
+    
+    /**
+     * Writes a full snapshot of all data and clears the journal.
+     * With the LSM storage engine the stores are flushed to their segment
+     * files instead.
+     * <p>
+     * Changes are held back only while the dirty records are drained and the
+     * records of every store are captured, which encodes nothing. The drained
+     * records are journaled, then the four stores are encoded and written in
+     * parallel without holding any lock that sessions need. Since sessions
+     * may change records while they are encoded, a store can hold part of a
+     * later change; every change made since the capture is therefore
+     * journaled, with the gate closed, before the stores are published
+     * together as a new snapshot generation. Replaying the journal over the
+     * snapshot thus always ends in a consistent state, and a crash part-way
+     * leaves the previous generation in use.
+     * <p>
+     * Once the new generation has been read back, the journal is cut back to
+     * the position recorded at the previous checkpoint, not this one, so if
+     * the new generation is found damaged when loading, the previous one can
+     * still be brought up to date from the journal. A marker is journaled
+     * where each generation was captured, and loading replays only the
+     * records after the marker of the generation it loaded.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (flushLock) {
+            List<PendingRecord> batch;
+            Map<String, SnapshotStore.StoreWriter> writers;
+            long stamp = commitGate.close();
+            try {
+                synchronized (this) {
+                    batch = collectDirtyRecords();
+                    writers = captureCheckpoint();
+                }
+            } finally {
+                commitGate.open(stamp);
+            }
+            
+            boolean journaled = journal != null && journal.isOpen();
+            long position = 0;
+            if (journaled) {
+                appendToJournal(batch);
+                if (!lsmStorage) {
+                    journal.markCheckpoint(snapshots.nextGeneration());
+                }
+                position = journal.position();
+                // The records after the checkpoint start a run with its own codec header
+                startJournalSegment();
+            }
+            if (lsmStorage) {
+                users.flush();
+                internships.flush();
+                applications.flush();
+                withdrawalRequests.flush();
+            } else {
+                snapshots.write(writers, () -> {
+                    if (journaled) {
+                        journalDirtyRecords();
+                    }
+                });
+            }
+            if (journaled) {
+                if (lastCheckpointPosition > 0) {
+                    journal.discardBefore(lastCheckpointPosition);
+                }
+                lastCheckpointPosition = position - lastCheckpointPosition;
+                journalRecordsKept = journal.getRecordCount();
+            }
+        }
+    }
+    
+    /**
+     * Captures the records of all stores for a checkpoint. The snapshot
+     * writers returned hold the records and encode them when they run, in
+     * parallel after this controller's lock is released. LSM stores spill
+     * their pinned records instead and are flushed afterwards.
+     */
+    private synchronized Map<String, SnapshotStore.StoreWriter> captureCheckpoint() throws IOException {
+        Map<String, SnapshotStore.StoreWriter> writers = new LinkedHashMap<>();
+        if (lsmStorage) {
+            ((LsmRepository<User>) users).spill();
+            ((LsmRepository<Internship>) internships).spill();
+            ((LsmRepository<Application>) applications).spill();
+            ((LsmRepository<WithdrawalRequest>) withdrawalRequests).spill();
+        } else {
+            writers.put("users", writerOf(users.values(), EntityCodec::writeUser));
+            writers.put("internships", MappedInternshipMap.capture(
+                ((MapRepository<Internship>) internships).asMap())::write);
+            writers.put("applications", writerOf(applications.values(), EntityCodec::writeApplication));
+            writers.put("withdrawals", writerOf(withdrawalRequests.values(), EntityCodec::writeWithdrawalRequest));
+        }
+        return writers;
+    }
+    
+    private static <T> SnapshotStore.StoreWriter writerOf(List<T> records, EntityCodec.Encoder<T> encoder) {
+        return file -> EntityCodec.writeFile(file, records, encoder);
+    }
+    
+    /**
+     * Gets the file of a store in the given snapshot generation.
+     * Data saved before snapshot generations were introduced is still read
+     * from the original file names.
+     */
+    private static File snapshotFile(SnapshotStore.Generation generation, String store) {
+        File file = generation == null ? null : generation.file(store);
+        return file != null ? file : new File("data/" + store + ".dat");
     }
     
     private void loadUsersFromFile(String filename) throws IOException {
@@ -332,30 +2064,20 @@ public class DataController {
             return;
         }
         
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length < 4) continue;
-                
-                String userId = parts[0].trim();
-                String name = parts[1].trim();
-                String password = parts[2].trim();
-                String type = parts[3].trim();
-                
-                if (type.equals("STUDENT") && parts.length >= 6) {
-                    int year = Integer.parseInt(parts[4].trim());
-                    String major = parts[5].trim();
-                    addUser(new Student(userId, name, password, year, major));
-                } else if (type.equals("COMPANY_REP") && parts.length >= 7) {
-                    String company = parts[4].trim();
-                    String dept = parts[5].trim();
-                    String pos = parts[6].trim();
-                    addUser(new CompanyRepresentative(userId, name, password, company, dept, pos));
-                } else if (type.equals("CAREER_STAFF") && parts.length >= 5) {
-                    String dept = parts[4].trim();
-                    addUser(new CareerCenterStaff(userId, name, password, dept));
-                }
+        UserFileParser.Result result = UserFileParser.parse(file);
+        users = new MapRepository<>(new ConcurrentHashMap<>(result.getUsers().size() * 4 / 3 + 1));
+        for (User user : result.getUsers()) {
+            addUser(user);
+        }
+        
+        List<String> rejected = result.getRejected();
+        if (!rejected.isEmpty()) {
+            System.out.println("Warning: " + rejected.size() + " row(s) in " + filename + " were skipped:");
+            for (int i = 0; i < Math.min(rejected.size(), MAX_REPORTED_ROWS); i++) {
+                System.out.println("  " + rejected.get(i));
+            }
+            if (rejected.size() > MAX_REPORTED_ROWS) {
+                System.out.println("  ... and " + (rejected.size() - MAX_REPORTED_ROWS) + " more");
             }
         }
     }
@@ -372,24 +2094,14 @@ public class DataController {
         System.out.println("Sample users initialized.");
     }
 
-    /**
-     * Saves users to binary file for persistence.
-     */
-    private void saveUsersToFile(String filename) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(users);
-        }
-    }
-
     /**
      * Loads users from binary file.
      */
-    @SuppressWarnings("unchecked")
     private void loadUsersFromDatFile(String filename) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            users = (Map<String, User>) ois.readObject();
+        try {
+            users = new MapRepository<>(readStore(filename, EntityCodec::readUser, User::getUserId));
         } catch (Exception e) {
-            users = new HashMap<>();
+            users = new MapRepository<>();
             // Fall back to text file if binary load fails
             try {
                 loadUsersFromFile("data/users.txt");
@@ -399,51 +2111,65 @@ public class DataController {
         }
     }
     
-    @SuppressWarnings("unchecked")
+    /**
+     * Loads internships from file.
+     * Indexed snapshots are memory-mapped and decoded lazily on first access.
+     */
     private void loadInternshipsFromFile(String filename) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            internships = (Map<String, Internship>) ois.readObject();
-            nextInternshipId = internships.size() + 1;
+        try {
+            File file = new File(filename);
+            if (MappedInternshipMap.isMappedFile(file)) {
+                internships = new MapRepository<>(MappedInternshipMap.open(file), IdAllocator.ID_ORDER);
+            } else {
+                internships = new MapRepository<>(
+                    readStore(filename, EntityCodec::readInternship, Internship::getInternshipId),
+                    IdAllocator.ID_ORDER);
+            }
         } catch (Exception e) {
-            internships = new HashMap<>();
+            internships = new MapRepository<>(IdAllocator.ID_ORDER);
         }
     }
     
-    private void saveInternshipsToFile(String filename) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(internships);
-        }
-    }
-    
-    @SuppressWarnings("unchecked")
     private void loadApplicationsFromFile(String filename) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            applications = (Map<String, Application>) ois.readObject();
-            nextApplicationId = applications.size() + 1;
+        try {
+            applications = new MapRepository<>(
+                readStore(filename, EntityCodec::readApplication, Application::getApplicationId),
+                IdAllocator.ID_ORDER);
         } catch (Exception e) {
-            applications = new HashMap<>();
+            applications = new MapRepository<>(IdAllocator.ID_ORDER);
         }
     }
     
-    private void saveApplicationsToFile(String filename) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(applications);
-        }
-    }
-    
-    @SuppressWarnings("unchecked")
     private void loadWithdrawalRequestsFromFile(String filename) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            withdrawalRequests = (Map<String, WithdrawalRequest>) ois.readObject();
-            nextWithdrawalId = withdrawalRequests.size() + 1;
+        try {
+            withdrawalRequests = new MapRepository<>(
+                readStore(filename, EntityCodec::readWithdrawalRequest, WithdrawalRequest::getRequestId),
+                IdAllocator.ID_ORDER);
         } catch (Exception e) {
-            withdrawalRequests = new HashMap<>();
+            withdrawalRequests = new MapRepository<>(IdAllocator.ID_ORDER);
         }
     }
     
-    private void saveWithdrawalRequestsToFile(String filename) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(withdrawalRequests);
+    /**
+     * Reads a data file into a map keyed by record ID.
+     * Files written before the binary codec was introduced are still read
+     * through Java serialization.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Map<String, T> readStore(String filename, EntityCodec.Decoder<T> decoder,
+                                         Function<T, String> keyOf) throws IOException, ClassNotFoundException {
+        File file = new File(filename);
+        if (!EntityCodec.isCodecFile(file)) {
+            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+                return new ConcurrentHashMap<>((Map<String, T>) ois.readObject());
+            }
+        }
+        
+        List<T> records = EntityCodec.readFile(file, decoder);
+        Map<String, T> map = new ConcurrentHashMap<>(records.size() * 4 / 3 + 1);
+        for (T record : records) {
+            map.put(keyOf.apply(record), record);
         }
+        return map;
     }
 }
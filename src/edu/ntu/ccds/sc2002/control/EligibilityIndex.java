@@ -0,0 +1,182 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.util.*;
+
+/**
+ * Index of the internships listed to students, grouped by preferred major
+ * and level and kept in title order.
+ * <p>
+ * Only approved, visible internships inside their application period are
+ * indexed. The title, major and level of each indexed internship are
+ * recorded when it is indexed, so an internship must be indexed again
+ * whenever one of them, its status, its visibility or its period changes.
+ * The index holds internship IDs, not the internships themselves, so it
+ * never keeps a record in memory on behalf of its repository; callers look
+ * the found IDs up. Callers are responsible for synchronization.
+ */
+class EligibilityIndex {
+
+    /** Preferred major that every student is eligible for. */
+    private static final String ANY_MAJOR = "ANY";
+
+    /**
+     * The ID of an indexed internship with the sort key it was indexed under.
+     */
+    private static class Entry {
+        final String title;
+        final String internshipId;
+        final String major;
+        final InternshipLevel level;
+
+        Entry(Internship internship) {
+            this.title = internship.getTitle();
+            this.internshipId = internship.getInternshipId();
+            this.major = normalize(internship.getPreferredMajor());
+            this.level = internship.getLevel();
+        }
+
+        /**
+         * Constructs a search key that sorts at a title and ID.
+         */
+        Entry(String title, String internshipId) {
+            this.title = title;
+            this.internshipId = internshipId;
+            this.major = null;
+            this.level = null;
+        }
+    }
+
+    private static final Comparator<Entry> TITLE_ORDER =
+        Comparator.<Entry, String>comparing(e -> e.title).thenComparing(e -> e.internshipId, IdAllocator.ID_ORDER);
+
+    private final Map<String, Map<InternshipLevel, NavigableSet<Entry>>> byMajor = new HashMap<>();
+    private final Map<String, Entry> byId = new HashMap<>();
+
+    /**
+     * Adds, moves or removes an internship according to its current state.
+     * @param internship the internship
+     * @param open whether the internship is inside its application period
+     */
+    void update(Internship internship, boolean open) {
+        remove(internship.getInternshipId());
+        if (!open || internship.getStatus() != InternshipStatus.APPROVED || !internship.isVisible()) {
+            return;
+        }
+
+        Entry entry = new Entry(internship);
+        byMajor.computeIfAbsent(entry.major, k -> new EnumMap<>(InternshipLevel.class))
+               .computeIfAbsent(entry.level, k -> new TreeSet<>(TITLE_ORDER))
+               .add(entry);
+        byId.put(entry.internshipId, entry);
+    }
+
+    /**
+     * Removes an internship.
+     * @param internshipId the internship ID
+     */
+    void remove(String internshipId) {
+        Entry entry = byId.remove(internshipId);
+        if (entry == null) {
+            return;
+        }
+        Map<InternshipLevel, NavigableSet<Entry>> levels = byMajor.get(entry.major);
+        NavigableSet<Entry> entries = levels.get(entry.level);
+        entries.remove(entry);
+        if (entries.isEmpty()) {
+            levels.remove(entry.level);
+            if (levels.isEmpty()) {
+                byMajor.remove(entry.major);
+            }
+        }
+    }
+
+    /**
+     * Removes every internship.
+     */
+    void clear() {
+        byMajor.clear();
+        byId.clear();
+    }
+
+    /**
+     * Gets the listed internships a student is eligible for, in title order.
+     * Students in year 1 or 2 are only eligible for basic internships.
+     * @param yearOfStudy the student's year of study
+     * @param major the student's major
+     * @return the IDs of the eligible internships
+     */
+    List<String> find(int yearOfStudy, String major) {
+        return find(yearOfStudy, major, null, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the listed internships a student is eligible for that follow a
+     * title and ID, in title order.
+     * @param yearOfStudy the student's year of study
+     * @param major the student's major
+     * @param afterTitle the title to start after, or null to start at the first internship
+     * @param afterId the internship ID to start after, among internships with the same title
+     * @param limit the maximum number of internships
+     * @return the IDs of the eligible internships
+     */
+    List<String> find(int yearOfStudy, String major, String afterTitle, String afterId, int limit) {
+        Entry after = afterTitle == null ? null : new Entry(afterTitle, afterId);
+        List<Iterator<Entry>> sources = new ArrayList<>();
+        addSources(sources, normalize(major), yearOfStudy, after);
+        if (!ANY_MAJOR.equals(normalize(major))) {
+            addSources(sources, ANY_MAJOR, yearOfStudy, after);
+        }
+
+        // Merge the per-major, per-level runs, each already in title order
+        PriorityQueue<Map.Entry<Entry, Iterator<Entry>>> heads =
+            new PriorityQueue<>(Math.max(1, sources.size()), Map.Entry.comparingByKey(TITLE_ORDER));
+        for (Iterator<Entry> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new AbstractMap.SimpleEntry<>(source.next(), source));
+            }
+        }
+        List<String> result = new ArrayList<>();
+        while (!heads.isEmpty() && result.size() < limit) {
+            Map.Entry<Entry, Iterator<Entry>> head = heads.poll();
+            result.add(head.getKey().internshipId);
+            Iterator<Entry> source = head.getValue();
+            if (source.hasNext()) {
+                heads.add(new AbstractMap.SimpleEntry<>(source.next(), source));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if an internship is listed to a student.
+     * @param internshipId the internship ID
+     * @param yearOfStudy the student's year of study
+     * @param major the student's major
+     * @return true, if the internship is indexed and the student is eligible for it
+     */
+    boolean isListedFor(String internshipId, int yearOfStudy, String major) {
+        Entry entry = byId.get(internshipId);
+        return entry != null
+            && (entry.major.equals(ANY_MAJOR) || entry.major.equals(normalize(major)))
+            && (yearOfStudy > 2 || entry.level == InternshipLevel.BASIC);
+    }
+
+    private void addSources(List<Iterator<Entry>> sources, String major, int yearOfStudy, Entry after) {
+        Map<InternshipLevel, NavigableSet<Entry>> levels = byMajor.get(major);
+        if (levels == null) {
+            return;
+        }
+        for (Map.Entry<InternshipLevel, NavigableSet<Entry>> level : levels.entrySet()) {
+            if (yearOfStudy <= 2 && level.getKey() != InternshipLevel.BASIC) {
+                continue;
+            }
+            NavigableSet<Entry> entries = level.getValue();
+            sources.add((after == null ? entries : entries.tailSet(after, false)).iterator());
+        }
+    }
+
+    private static String normalize(String major) {
+        return major == null ? "" : major.toUpperCase(Locale.ROOT);
+    }
+}
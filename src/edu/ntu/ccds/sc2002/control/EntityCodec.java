@@ -0,0 +1,560 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Hand-written, schema-versioned binary codec for the persisted entities.
+ * <p>
+ * Every encoded stream starts with a header holding a magic number, the
+ * schema version and a dictionary of the enum constant names in use. Enum
+ * values are then written as indexes into that dictionary, so constants can
+ * be reordered or added without breaking existing files. Dates are stored as
+ * epoch days, integers and string lengths as variable-length integers.
+ */
+final class EntityCodec {
+
+    /** Magic number identifying codec files ("IPMS"). */
+    static final int MAGIC = 0x49504D53;
+
+    /** Current schema version written by this codec. */
+    static final int SCHEMA_VERSION = 1;
+
+    /**
+     * Writes a single record.
+     * @param <T> the record type
+     */
+    interface Encoder<T> {
+        void encode(EntityCodec codec, DataOutput out, T value) throws IOException;
+    }
+
+    /**
+     * Reads a single record.
+     * @param <T> the record type
+     */
+    interface Decoder<T> {
+        T decode(EntityCodec codec, DataInput in) throws IOException;
+    }
+
+    private final int version;
+    private final UserRole[] userRoles;
+    private final InternshipStatus[] internshipStatuses;
+    private final InternshipLevel[] internshipLevels;
+    private final ApplicationStatus[] applicationStatuses;
+    private final WithdrawalStatus[] withdrawalStatuses;
+
+    private EntityCodec(int version, UserRole[] userRoles, InternshipStatus[] internshipStatuses,
+                        InternshipLevel[] internshipLevels, ApplicationStatus[] applicationStatuses,
+                        WithdrawalStatus[] withdrawalStatuses) {
+        this.version = version;
+        this.userRoles = userRoles;
+        this.internshipStatuses = internshipStatuses;
+        this.internshipLevels = internshipLevels;
+        this.applicationStatuses = applicationStatuses;
+        this.withdrawalStatuses = withdrawalStatuses;
+    }
+
+    /**
+     * Gets a codec using the current schema and enum dictionaries.
+     * @return the codec
+     */
+    static EntityCodec current() {
+        return new EntityCodec(SCHEMA_VERSION, UserRole.values(), InternshipStatus.values(),
+                               InternshipLevel.values(), ApplicationStatus.values(),
+                               WithdrawalStatus.values());
+    }
+
+    // Header
+    /**
+     * Writes the stream header: magic number, schema version and enum dictionaries.
+     * @param out the output
+     */
+    void writeHeader(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        writeVarInt(out, version);
+        writeDictionary(out, userRoles);
+        writeDictionary(out, internshipStatuses);
+        writeDictionary(out, internshipLevels);
+        writeDictionary(out, applicationStatuses);
+        writeDictionary(out, withdrawalStatuses);
+    }
+
+    /**
+     * Reads a stream header and returns a codec able to decode the records that follow.
+     * @param in the input
+     * @return the codec for the stream
+     */
+    static EntityCodec readHeader(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an entity codec stream");
+        }
+        int version = readVarInt(in);
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IOException("Unsupported schema version: " + version);
+        }
+        return new EntityCodec(version,
+                               readDictionary(in, UserRole.class),
+                               readDictionary(in, InternshipStatus.class),
+                               readDictionary(in, InternshipLevel.class),
+                               readDictionary(in, ApplicationStatus.class),
+                               readDictionary(in, WithdrawalStatus.class));
+    }
+
+    /**
+     * Encodes the header into a byte array.
+     * @return the encoded header
+     */
+    byte[] headerBytes() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        writeHeader(new DataOutputStream(buffer));
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Decodes a header previously produced by {@link #headerBytes()}.
+     * @param bytes the encoded header
+     * @return the codec for the header
+     */
+    static EntityCodec fromHeaderBytes(byte[] bytes) throws IOException {
+        return readHeader(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    // Files
+    /**
+     * Checks if a file starts with the codec magic number.
+     * @param file the file
+     * @return true, if the file was written by this codec
+     */
+    static boolean isCodecFile(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a header, a record count and all records to a file.
+     * @param file the file
+     * @param values the records
+     * @param encoder the record encoder
+     */
+    static <T> void writeFile(File file, Collection<T> values, Encoder<T> encoder) throws IOException {
+        EntityCodec codec = current();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            codec.writeHeader(out);
+            writeVarInt(out, values.size());
+            for (T value : values) {
+                encoder.encode(codec, out, value);
+            }
+        }
+    }
+
+    /**
+     * Reads all records from a file written by {@link #writeFile}.
+     * @param file the file
+     * @param decoder the record decoder
+     * @return the records
+     */
+    static <T> List<T> readFile(File file, Decoder<T> decoder) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            EntityCodec codec = readHeader(in);
+            int count = readVarInt(in);
+            List<T> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(decoder.decode(codec, in));
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Encodes a single record into a byte array.
+     * @param value the record
+     * @param encoder the record encoder
+     * @return the encoded record
+     */
+    <T> byte[] toBytes(T value, Encoder<T> encoder) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        encoder.encode(this, new DataOutputStream(buffer), value);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Decodes a single record from a byte array.
+     * @param bytes the encoded record
+     * @param decoder the record decoder
+     * @return the record
+     */
+    <T> T fromBytes(byte[] bytes, Decoder<T> decoder) throws IOException {
+        return decoder.decode(this, new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    // Users
+    /**
+     * Writes a user of any role.
+     * @param out the output
+     * @param user the user
+     */
+    void writeUser(DataOutput out, User user) throws IOException {
+        writeEnum(out, user.getRole());
+        writeString(out, user.getUserId());
+        writeString(out, user.getName());
+        writeString(out, user.getPassword());
+
+        if (user instanceof Student) {
+            Student student = (Student) user;
+            writeVarInt(out, student.getYearOfStudy());
+            writeString(out, student.getMajor());
+            writeStrings(out, student.getApplicationIds());
+            writeString(out, student.getConfirmedInternshipId());
+        } else if (user instanceof CompanyRepresentative) {
+            CompanyRepresentative rep = (CompanyRepresentative) user;
+            writeString(out, rep.getCompanyName());
+            writeString(out, rep.getDepartment());
+            writeString(out, rep.getPosition());
+            out.writeBoolean(rep.isApproved());
+            writeStrings(out, rep.getInternshipIds());
+        } else if (user instanceof CareerCenterStaff) {
+            writeString(out, ((CareerCenterStaff) user).getStaffDepartment());
+        }
+    }
+
+    /**
+     * Reads a user of any role.
+     * @param in the input
+     * @return the user
+     */
+    User readUser(DataInput in) throws IOException {
+        EntityEvents.suspend();
+        try {
+            return decodeUser(in);
+        } finally {
+            EntityEvents.resume();
+        }
+    }
+
+    private User decodeUser(DataInput in) throws IOException {
+        UserRole role = userRoles[readVarInt(in)];
+        String userId = readString(in);
+        String name = readString(in);
+        String password = readString(in);
+
+        switch (role) {
+            case STUDENT: {
+                int year = readVarInt(in);
+                String major = readString(in);
+                Student student = new Student(userId, name, password, year, major);
+                for (String applicationId : readStrings(in)) {
+                    student.restoreApplication(applicationId);
+                }
+                student.setConfirmedInternshipId(readString(in));
+                return student;
+            }
+            case COMPANY_REP: {
+                String company = readString(in);
+                String dept = readString(in);
+                String pos = readString(in);
+                CompanyRepresentative rep = new CompanyRepresentative(userId, name, password, company, dept, pos);
+                rep.setApproved(in.readBoolean());
+                for (String internshipId : readStrings(in)) {
+                    rep.restoreInternship(internshipId);
+                }
+                return rep;
+            }
+            case CAREER_STAFF:
+                return new CareerCenterStaff(userId, name, password, readString(in));
+            default:
+                throw new IOException("Unknown user role: " + role);
+        }
+    }
+
+    // Internships
+    /**
+     * Writes an internship.
+     * @param out the output
+     * @param internship the internship
+     */
+    void writeInternship(DataOutput out, Internship internship) throws IOException {
+        writeString(out, internship.getInternshipId());
+        writeString(out, internship.getTitle());
+        writeString(out, internship.getDescription());
+        writeEnum(out, internship.getLevel());
+        writeString(out, internship.getPreferredMajor());
+        writeDate(out, internship.getOpeningDate());
+        writeDate(out, internship.getClosingDate());
+        writeEnum(out, internship.getStatus());
+        writeString(out, internship.getCompanyName());
+        writeString(out, internship.getCompanyRepId());
+        writeVarInt(out, internship.getTotalSlots());
+        out.writeBoolean(internship.isVisible());
+        writeStrings(out, internship.getApplicationIds());
+        writeStrings(out, internship.getConfirmedStudentIds());
+    }
+
+    /**
+     * Reads an internship.
+     * Available slots are derived from the total slots and the confirmed students.
+     * @param in the input
+     * @return the internship
+     */
+    Internship readInternship(DataInput in) throws IOException {
+        EntityEvents.suspend();
+        try {
+            return decodeInternship(in);
+        } finally {
+            EntityEvents.resume();
+        }
+    }
+
+    private Internship decodeInternship(DataInput in) throws IOException {
+        String internshipId = readString(in);
+        String title = readString(in);
+        String description = readString(in);
+        InternshipLevel level = internshipLevels[readVarInt(in)];
+        String major = readString(in);
+        LocalDate openingDate = readDate(in);
+        LocalDate closingDate = readDate(in);
+        InternshipStatus status = internshipStatuses[readVarInt(in)];
+        String companyName = readString(in);
+        String companyRepId = readString(in);
+        int totalSlots = readVarInt(in);
+        boolean visible = in.readBoolean();
+
+        Internship internship = new Internship(internshipId, title, description, level, major,
+                                               openingDate, closingDate, companyName, companyRepId, totalSlots);
+        for (String applicationId : readStrings(in)) {
+            internship.addApplication(applicationId);
+        }
+        // Students are only confirmed while APPROVED; the stored status follows
+        internship.setStatus(InternshipStatus.APPROVED);
+        for (String studentId : readStrings(in)) {
+            internship.confirmStudent(studentId);
+        }
+        internship.setStatus(status);
+        internship.setVisible(visible);
+        return internship;
+    }
+
+    // Applications
+    /**
+     * Writes an application.
+     * @param out the output
+     * @param application the application
+     */
+    void writeApplication(DataOutput out, Application application) throws IOException {
+        writeString(out, application.getApplicationId());
+        writeString(out, application.getStudentId());
+        writeString(out, application.getInternshipId());
+        writeEnum(out, application.getStatus());
+        writeDateTime(out, application.getApplicationDate());
+        out.writeBoolean(application.isPlacementConfirmed());
+    }
+
+    /**
+     * Reads an application.
+     * @param in the input
+     * @return the application
+     */
+    Application readApplication(DataInput in) throws IOException {
+        String applicationId = readString(in);
+        String studentId = readString(in);
+        String internshipId = readString(in);
+        ApplicationStatus status = applicationStatuses[readVarInt(in)];
+        LocalDateTime applicationDate = readDateTime(in);
+        boolean confirmed = in.readBoolean();
+        return new Application(applicationId, studentId, internshipId, status, applicationDate, confirmed);
+    }
+
+    // Withdrawal Requests
+    /**
+     * Writes a withdrawal request.
+     * @param out the output
+     * @param request the withdrawal request
+     */
+    void writeWithdrawalRequest(DataOutput out, WithdrawalRequest request) throws IOException {
+        writeString(out, request.getRequestId());
+        writeString(out, request.getApplicationId());
+        writeString(out, request.getStudentId());
+        writeString(out, request.getReason());
+        writeEnum(out, request.getStatus());
+        writeDateTime(out, request.getRequestDate());
+        out.writeBoolean(request.isAfterConfirmation());
+    }
+
+    /**
+     * Reads a withdrawal request.
+     * @param in the input
+     * @return the withdrawal request
+     */
+    WithdrawalRequest readWithdrawalRequest(DataInput in) throws IOException {
+        String requestId = readString(in);
+        String applicationId = readString(in);
+        String studentId = readString(in);
+        String reason = readString(in);
+        WithdrawalStatus status = withdrawalStatuses[readVarInt(in)];
+        LocalDateTime requestDate = readDateTime(in);
+        boolean afterConfirmation = in.readBoolean();
+        return new WithdrawalRequest(requestId, applicationId, studentId, reason,
+                                     status, requestDate, afterConfirmation);
+    }
+
+    // Primitives
+    private static void writeDictionary(DataOutput out, Enum<?>[] constants) throws IOException {
+        writeVarInt(out, constants.length);
+        for (Enum<?> constant : constants) {
+            writeString(out, constant.name());
+        }
+    }
+
+    private static <E extends Enum<E>> E[] readDictionary(DataInput in, Class<E> type) throws IOException {
+        int size = readVarInt(in);
+        @SuppressWarnings("unchecked")
+        E[] constants = (E[]) java.lang.reflect.Array.newInstance(type, size);
+        for (int i = 0; i < size; i++) {
+            String name = readString(in);
+            try {
+                constants[i] = Enum.valueOf(type, name);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown " + type.getSimpleName() + " constant: " + name);
+            }
+        }
+        return constants;
+    }
+
+    /**
+     * Writes an enum as its index in the dictionary written with the header.
+     */
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        writeVarInt(out, value.ordinal());
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    /**
+     * Writes a nullable string as its UTF-8 length plus one, followed by the bytes.
+     * A length of zero marks null.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+        // One copy, so the count matches the values even if the collection changes meanwhile
+        Object[] copy = values.toArray();
+        writeVarInt(out, copy.length);
+        for (Object value : copy) {
+            writeString(out, (String) value);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int size = readVarInt(in);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    /**
+     * Writes a nullable date as zig-zag encoded epoch day, with null stored as zero.
+     */
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        if (date == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        long epochDay = date.toEpochDay();
+        writeVarLong(out, ((epochDay << 1) ^ (epochDay >> 63)) + 1);
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        long encoded = readVarLong(in);
+        if (encoded == 0) {
+            return null;
+        }
+        long zigzag = encoded - 1;
+        return LocalDate.ofEpochDay((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    /**
+     * Writes a nullable timestamp as its epoch day followed by the nanosecond of the day.
+     */
+    private static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+        writeDate(out, dateTime == null ? null : dateTime.toLocalDate());
+        if (dateTime != null) {
+            writeVarLong(out, dateTime.toLocalTime().toNanoOfDay());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        LocalDate date = readDate(in);
+        if (date == null) {
+            return null;
+        }
+        return date.atStartOfDay().plusNanos(readVarLong(in));
+    }
+}
@@ -0,0 +1,326 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates record IDs such as {@code INT0001} that are never handed out twice,
+ * even across restarts.
+ * <p>
+ * Each ID prefix has its own sequence. Numbers are taken from the sequence
+ * with an atomic add, without locking. To survive a crash, the highest
+ * number a sequence may hand out is saved to a file before any number up to it
+ * is used. That mark is raised a block of numbers at a time, so the file is
+ * only written once per block. After a crash numbering continues from the
+ * saved mark, skipping at most the unused rest of a block; a clean shutdown
+ * saves the exact next numbers, so nothing is skipped.
+ * <p>
+ * Numbers are zero-padded to four digits and grow wider past 9999. Wider IDs
+ * no longer sort after narrower ones as strings, so record IDs are ordered
+ * with {@link #ID_ORDER} wherever they are kept sorted.
+ */
+class IdAllocator {
+
+    /**
+     * Number of IDs reserved on disk each time a sequence runs out.
+     */
+    static final int BLOCK_SIZE = 100;
+
+    private static final int MIN_DIGITS = 4;
+
+    /**
+     * Orders record IDs by the text before their trailing digits, then by the
+     * value of those digits, so {@code INT10000} follows {@code INT9999}.
+     * Equal values sort with the shorter padding first. IDs with the same
+     * prefix and the same number of digits keep their string order.
+     */
+    static final Comparator<String> ID_ORDER = IdAllocator::compareIds;
+
+    private final File file;
+    private final Properties marks = new Properties();
+    private final Map<String, Sequence> sequences = new LinkedHashMap<>();
+
+    /**
+     * Constructs an IdAllocator that keeps its marks in memory only.
+     * Used before any data has been loaded.
+     */
+    IdAllocator() {
+        this.file = null;
+    }
+
+    private IdAllocator(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the allocator whose marks are saved in a file.
+     * @param file the mark file, which need not exist yet
+     * @return the allocator
+     * @throws IOException if the file exists but cannot be read
+     */
+    static IdAllocator open(File file) throws IOException {
+        IdAllocator allocator = new IdAllocator(file);
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                allocator.marks.load(in);
+            }
+        }
+        return allocator;
+    }
+
+    /**
+     * Gets the sequence for an ID prefix.
+     * @param prefix the prefix, such as "INT"
+     * @return the sequence
+     */
+    synchronized Sequence sequence(String prefix) {
+        return sequences.computeIfAbsent(prefix, p -> {
+            String mark = marks.getProperty(p);
+            if (file == null) {
+                return new Sequence(p, 1, Long.MAX_VALUE, false);
+            }
+            long saved = mark == null ? 1 : Long.parseLong(mark.trim());
+            return new Sequence(p, saved, saved, mark != null);
+        });
+    }
+
+    /**
+     * Raises the mark of a sequence so numbers below needed may be handed out.
+     * The new mark is written to disk before it takes effect.
+     */
+    private synchronized void extend(Sequence sequence, long needed) {
+        if (sequence.limit >= needed) {
+            return;
+        }
+        long limit = needed + BLOCK_SIZE;
+        marks.setProperty(sequence.prefix, Long.toString(limit));
+        try {
+            save();
+        } catch (IOException e) {
+            marks.setProperty(sequence.prefix, Long.toString(sequence.limit));
+            throw new UncheckedIOException(e);
+        }
+        sequence.limit = limit;
+    }
+
+    /**
+     * Saves the next number of every sequence as its mark, so numbering
+     * continues without a gap after a restart.
+     * @throws IOException if the marks cannot be written
+     */
+    synchronized void saveMarks() throws IOException {
+        if (file == null) {
+            return;
+        }
+        for (Sequence sequence : sequences.values()) {
+            // Lowering the limit first makes any allocation racing with this
+            // read wait in extend() and save its own mark afterwards
+            sequence.limit = 0;
+            marks.setProperty(sequence.prefix, Long.toString(sequence.next.get()));
+        }
+        save();
+        for (Sequence sequence : sequences.values()) {
+            sequence.limit = Long.parseLong(marks.getProperty(sequence.prefix));
+        }
+    }
+
+    private void save() throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File temp = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            marks.store(out, "Next unreserved record number per ID prefix");
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Formats an ID from its prefix and number.
+     * @param prefix the prefix
+     * @param number the number, zero-padded to at least four digits
+     * @return the ID
+     */
+    static String format(String prefix, long number) {
+        int digits = 1;
+        for (long rest = number / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        char[] chars = new char[prefix.length() + Math.max(MIN_DIGITS, digits)];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = chars.length - 1; i >= prefix.length(); i--) {
+            chars[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Reads the number of an ID.
+     * @param prefix the expected prefix
+     * @param id the ID
+     * @return the number, or -1 if the ID does not have the prefix and a number
+     */
+    static long parse(String prefix, String id) {
+        if (!id.startsWith(prefix) || id.length() == prefix.length()
+                || id.length() - prefix.length() > 18) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private static int compareIds(String a, String b) {
+        int aDigits = trailingDigits(a);
+        int bDigits = trailingDigits(b);
+        int prefixEnd = Math.min(aDigits, bDigits);
+        for (int i = 0; i < prefixEnd; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        if (aDigits != bDigits) {
+            return aDigits - bDigits;
+        }
+
+        int aStart = aDigits;
+        while (aStart < a.length() && a.charAt(aStart) == '0') {
+            aStart++;
+        }
+        int bStart = bDigits;
+        while (bStart < b.length() && b.charAt(bStart) == '0') {
+            bStart++;
+        }
+        // More significant digits means a larger number
+        int order = (a.length() - aStart) - (b.length() - bStart);
+        for (int i = 0; order == 0 && aStart + i < a.length(); i++) {
+            order = a.charAt(aStart + i) - b.charAt(bStart + i);
+        }
+        return order != 0 ? order : a.length() - b.length();
+    }
+
+    /**
+     * Finds where the digits at the end of an ID start.
+     * @return the index of the first trailing digit, or the length if there are none
+     */
+    private static int trailingDigits(String id) {
+        int start = id.length();
+        while (start > 0 && id.charAt(start - 1) >= '0' && id.charAt(start - 1) <= '9') {
+            start--;
+        }
+        return start;
+    }
+
+    /**
+     * The numbers handed out for one ID prefix.
+     */
+    class Sequence {
+        private final String prefix;
+        private final AtomicLong next;
+        private final boolean saved;
+        // Numbers below the limit are reserved on disk and may be handed out
+        private volatile long limit;
+
+        private Sequence(String prefix, long next, long limit, boolean saved) {
+            this.prefix = prefix;
+            this.next = new AtomicLong(next);
+            this.limit = limit;
+            this.saved = saved;
+        }
+
+        /**
+         * Allocates the next ID.
+         * @return the ID
+         */
+        String next() {
+            return format(prefix, allocate(1));
+        }
+
+        /**
+         * Reserves a run of consecutive IDs for one caller.
+         * @param count the number of IDs
+         * @return the block of IDs
+         */
+        Block reserve(int count) {
+            return new Block(this, allocate(count), count);
+        }
+
+        private long allocate(int count) {
+            long first = next.getAndAdd(count);
+            if (first + count > limit) {
+                extend(this, first + count);
+            }
+            return first;
+        }
+
+        /**
+         * Makes sure numbering continues at or after a number.
+         * Used to skip past records that were created before marks were saved.
+         * @param number the lowest number still free
+         */
+        void advanceTo(long number) {
+            next.accumulateAndGet(number, Math::max);
+        }
+
+        /**
+         * Checks if this sequence was restored from a saved mark.
+         * @return true, if a mark was saved for the prefix
+         */
+        boolean isSaved() {
+            return saved;
+        }
+
+        String getPrefix() {
+            return prefix;
+        }
+    }
+
+    /**
+     * A run of consecutive IDs reserved for one caller, such as an import batch.
+     * Not safe for use by several threads.
+     */
+    static class Block {
+        private final Sequence sequence;
+        private long next;
+        private long end;
+
+        private Block(Sequence sequence, long first, int count) {
+            this.sequence = sequence;
+            this.next = first;
+            this.end = first + count;
+        }
+
+        /**
+         * Takes the next ID of the block.
+         * @return the ID
+         * @throws IllegalStateException if every ID of the block has been taken
+         */
+        String next() {
+            if (next >= end) {
+                throw new IllegalStateException("ID block exhausted");
+            }
+            return format(sequence.prefix, next++);
+        }
+
+        /**
+         * Gives back the IDs not taken yet. They are reused only if nothing was
+         * allocated from the sequence after this block.
+         */
+        void release() {
+            sequence.next.compareAndSet(end, next);
+            end = next;
+        }
+    }
+}
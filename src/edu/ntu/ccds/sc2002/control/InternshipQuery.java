@@ -0,0 +1,131 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Query over internships.
+ * Status, major, level, company name and closing date conditions are
+ * answered from the controller's indexes when that is the cheapest plan.
+ */
+public class InternshipQuery extends Query<Internship, InternshipQuery> {
+
+    /** Orders internships by title. */
+    public static final Comparator<Internship> BY_TITLE =
+        Comparator.comparing(Internship::getTitle).thenComparing(Internship::getInternshipId, IdAllocator.ID_ORDER);
+
+    /** Orders internships by closing date, soonest first. */
+    public static final Comparator<Internship> BY_CLOSING_DATE =
+        Comparator.comparing(Internship::getClosingDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder()))
+                  .thenComparing(Internship::getInternshipId, IdAllocator.ID_ORDER);
+
+    /** Orders internships by company name. */
+    public static final Comparator<Internship> BY_COMPANY =
+        Comparator.comparing(Internship::getCompanyName).thenComparing(Internship::getInternshipId, IdAllocator.ID_ORDER);
+
+    InternshipQuery(DataController dataController) {
+        super(dataController);
+    }
+
+    @Override
+    Repository<Internship> repository() {
+        return dataController.internshipRepository();
+    }
+
+    @Override
+    String idOf(Internship record) {
+        return record.getInternshipId();
+    }
+
+    @Override
+    InternshipQuery self() {
+        return this;
+    }
+
+    /**
+     * Matches internships with a status.
+     * @param status the status
+     * @return this query
+     */
+    public InternshipQuery status(InternshipStatus status) {
+        String description = "status = " + status;
+        return where(description, i -> i.getStatus() == status, () -> {
+            Set<String> ids = dataController.internshipsByStatus.get(status);
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+
+    /**
+     * Matches internships for a preferred major, ignoring case.
+     * @param major the major
+     * @return this query
+     */
+    public InternshipQuery major(String major) {
+        String description = "major = " + major.toUpperCase(Locale.ROOT);
+        return where(description, i -> i.getPreferredMajor().equalsIgnoreCase(major), () -> {
+            Set<String> ids = dataController.internshipsByMajor.get(major.toUpperCase(Locale.ROOT));
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+
+    /**
+     * Matches internships with a level.
+     * @param level the level
+     * @return this query
+     */
+    public InternshipQuery level(InternshipLevel level) {
+        String description = "level = " + level;
+        return where(description, i -> i.getLevel() == level, () -> {
+            Set<String> ids = dataController.internshipsByLevel.get(level);
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+
+    /**
+     * Matches internships whose company name contains some text, ignoring case.
+     * @param text the text
+     * @return this query
+     */
+    public InternshipQuery company(String text) {
+        String description = "company contains \"" + text + "\"";
+        String lower = text.toLowerCase();
+        return where(description, i -> i.getCompanyName().toLowerCase().contains(lower), () -> {
+            List<String> ids = dataController.companyIndex.find(text);
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+
+    /**
+     * Matches internships closing between two dates, inclusive.
+     * @param from the earliest closing date
+     * @param to the latest closing date
+     * @return this query
+     */
+    public InternshipQuery closingBetween(LocalDate from, LocalDate to) {
+        String description = "closing " + from + " to " + to;
+        return where(description,
+            i -> i.getClosingDate() != null && !i.getClosingDate().isBefore(from) && !i.getClosingDate().isAfter(to),
+            () -> new Access(description, dataController.internshipsByClosingDate.countRange(from, to),
+                             () -> dataController.internshipsByClosingDate.range(from, to)));
+    }
+
+    /**
+     * Matches internships closing from today up to a number of days ahead.
+     * @param days the number of days
+     * @return this query
+     */
+    public InternshipQuery closingWithin(int days) {
+        LocalDate today = LocalDate.now();
+        return closingBetween(today, today.plusDays(days));
+    }
+
+    /**
+     * Matches internships by visibility.
+     * @param visible the visibility
+     * @return this query
+     */
+    public InternshipQuery visible(boolean visible) {
+        return where("visible = " + visible, i -> i.isVisible() == visible);
+    }
+}
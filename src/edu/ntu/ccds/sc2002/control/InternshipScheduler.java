@@ -0,0 +1,155 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.Internship;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Tracks which internships are inside their application period.
+ * <p>
+ * An internship is open from its opening date up to and including its
+ * closing date. Instead of comparing dates on every check, the scheduler
+ * keeps the open set and a queue of the next opening or closing of each
+ * internship, ordered by date. {@link #advance(LocalDate)} applies the
+ * transitions that have fallen due, so a check only costs a look at the
+ * head of the queue. Callers are responsible for synchronization.
+ */
+class InternshipScheduler {
+
+    /**
+     * A pending opening or closing of an internship.
+     */
+    private static class Transition {
+        final LocalDate date;
+        final String internshipId;
+        final boolean opens;
+        final Period period;
+
+        Transition(LocalDate date, String internshipId, boolean opens, Period period) {
+            this.date = date;
+            this.internshipId = internshipId;
+            this.opens = opens;
+            this.period = period;
+        }
+    }
+
+    /**
+     * The application period an internship was scheduled with.
+     * Transitions queued for an earlier period are ignored when they fall due.
+     */
+    private static class Period {
+        final LocalDate openingDate;
+        final LocalDate closingDate;
+
+        Period(LocalDate openingDate, LocalDate closingDate) {
+            this.openingDate = openingDate;
+            this.closingDate = closingDate;
+        }
+    }
+
+    private final PriorityQueue<Transition> queue =
+        new PriorityQueue<>(Comparator.comparing((Transition t) -> t.date));
+    private final Map<String, Period> periods = new HashMap<>();
+    private final Set<String> open = new HashSet<>();
+    private LocalDate today;
+
+    /**
+     * Constructs a scheduler starting on the given date.
+     * @param today the current date
+     */
+    InternshipScheduler(LocalDate today) {
+        this.today = today;
+    }
+
+    /**
+     * Schedules an internship, replacing its previous application period.
+     * @param internship the internship
+     */
+    void update(Internship internship) {
+        String internshipId = internship.getInternshipId();
+        LocalDate openingDate = internship.getOpeningDate();
+        LocalDate closingDate = internship.getClosingDate();
+        Period current = periods.get(internshipId);
+        if (current != null && Objects.equals(current.openingDate, openingDate)
+                && Objects.equals(current.closingDate, closingDate)) {
+            return;
+        }
+
+        Period period = new Period(openingDate, closingDate);
+        periods.put(internshipId, period);
+        if (openingDate == null || closingDate == null) {
+            open.remove(internshipId);
+            return;
+        }
+
+        if (today.isBefore(openingDate)) {
+            open.remove(internshipId);
+            queue.add(new Transition(openingDate, internshipId, true, period));
+        } else if (!today.isAfter(closingDate)) {
+            open.add(internshipId);
+            queue.add(new Transition(closingDate.plusDays(1), internshipId, false, period));
+        } else {
+            open.remove(internshipId);
+        }
+    }
+
+    /**
+     * Stops tracking an internship.
+     * @param internshipId the internship ID
+     */
+    void remove(String internshipId) {
+        periods.remove(internshipId);
+        open.remove(internshipId);
+    }
+
+    /**
+     * Removes every internship.
+     */
+    void clear() {
+        queue.clear();
+        periods.clear();
+        open.clear();
+    }
+
+    /**
+     * Moves the scheduler forward to a date, opening and closing the
+     * internships whose dates have passed.
+     * @param date the current date
+     * @return the IDs of the internships that opened or closed
+     */
+    List<String> advance(LocalDate date) {
+        if (!date.isAfter(today)) {
+            return Collections.emptyList();
+        }
+        today = date;
+
+        List<String> changed = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().date.isAfter(today)) {
+            Transition transition = queue.poll();
+            if (periods.get(transition.internshipId) != transition.period) {
+                continue;
+            }
+            if (transition.opens) {
+                if (today.isAfter(transition.period.closingDate)) {
+                    continue;
+                }
+                open.add(transition.internshipId);
+                queue.add(new Transition(transition.period.closingDate.plusDays(1),
+                                         transition.internshipId, false, transition.period));
+            } else {
+                open.remove(transition.internshipId);
+            }
+            changed.add(transition.internshipId);
+        }
+        return changed;
+    }
+
+    /**
+     * Checks if an internship is inside its application period.
+     * @param internshipId the internship ID
+     * @return true, if the internship is open
+     */
+    boolean isOpen(String internshipId) {
+        return open.contains(internshipId);
+    }
+}
@@ -0,0 +1,361 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of data mutations.
+ * Each record stores an operation code, the key of the affected record and
+ * an encoded payload, framed by a length and a CRC32 checksum so that a
+ * torn record at the end of the file can be detected and discarded on replay.
+ * <p>
+ * Records written between {@link #beginBatch()} and {@link #commitBatch()}
+ * are replayed only if the whole batch reached the file, so a crash part-way
+ * through a flush never replays half of it. A commit marker with no batch
+ * open ends replay like a checksum mismatch.
+ * <p>
+ * A checkpoint marker records where a snapshot generation was captured, so
+ * replay over that generation can skip the records it already holds.
+ */
+class Journal implements Closeable {
+
+    /** Operation code for inserting or replacing a user. */
+    static final byte PUT_USER = 1;
+    /** Operation code for inserting or replacing an internship. */
+    static final byte PUT_INTERNSHIP = 2;
+    /** Operation code for inserting or replacing an application. */
+    static final byte PUT_APPLICATION = 3;
+    /** Operation code for inserting or replacing a withdrawal request. */
+    static final byte PUT_WITHDRAWAL = 4;
+    /** Operation code for removing an internship. */
+    static final byte REMOVE_INTERNSHIP = 5;
+    /** Operation code for removing an application. */
+    static final byte REMOVE_APPLICATION = 6;
+    /** Operation code for a codec header that applies to the records following it. */
+    static final byte CODEC_HEADER = 7;
+    /** Operation code for removing a user. */
+    static final byte REMOVE_USER = 8;
+    /** Operation code for removing a withdrawal request. */
+    static final byte REMOVE_WITHDRAWAL = 9;
+    /** Operation code marking the start of a batch of records. */
+    static final byte BEGIN_BATCH = 10;
+    /** Operation code marking the end of a complete batch of records. */
+    static final byte COMMIT_BATCH = 11;
+    /** Operation code marking where a snapshot generation was captured. */
+    static final byte CHECKPOINT = 12;
+
+    /** Payload used by removal records. */
+    static final byte[] NO_PAYLOAD = new byte[0];
+
+    /**
+     * Callback used to apply journal records during replay.
+     */
+    interface RecordHandler {
+        /**
+         * Applies a single journal record.
+         * @param op the operation code
+         * @param key the key of the affected record
+         * @param payload the encoded record, empty for removals
+         */
+        void apply(byte op, String key, byte[] payload) throws IOException;
+    }
+
+    private final File file;
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private int recordCount;
+    private long replayStart;
+
+    /**
+     * Constructs a Journal backed by the given file.
+     * @param file the journal file
+     */
+    Journal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays all intact records in the journal, then opens it for appending.
+     * A torn or corrupt tail left by a crash is truncated, together with any
+     * batch it cut short. A commit marker with no batch open is treated as
+     * the start of such a tail. Records before the checkpoint marker of the loaded
+     * snapshot generation are already part of that snapshot and are skipped.
+     * @param handler the handler receiving each record
+     * @param generation the snapshot generation that was loaded, or 0 if none
+     * @return the number of records replayed
+     */
+    int replayAndOpen(RecordHandler handler, long generation) throws IOException {
+        long start = file.exists() ? findCheckpoint(generation) : 0;
+        long validLength = 0;
+        long readLength = 0;
+        int replayed = 0;
+        // Records of the open batch, held back until its commit marker is read
+        List<Object[]> batch = null;
+
+        if (file.exists()) {
+            long fileLength = file.length();
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)))) {
+                byte[] body;
+                while ((body = readBody(in, fileLength)) != null) {
+                    readLength += 4 + 8 + body.length;
+                    if (readLength <= start) {
+                        validLength = readLength;
+                        continue;
+                    }
+
+                    DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                    byte op = record.readByte();
+                    String key = record.readUTF();
+                    byte[] payload = new byte[record.available()];
+                    record.readFully(payload);
+
+                    if (op == COMMIT_BATCH && batch == null) {
+                        // A commit marker without a batch can only be damage
+                        break;
+                    }
+                    if (op == BEGIN_BATCH) {
+                        batch = new ArrayList<>();
+                    } else if (op == COMMIT_BATCH) {
+                        for (Object[] held : batch) {
+                            handler.apply((Byte) held[0], (String) held[1], (byte[]) held[2]);
+                        }
+                        replayed += batch.size();
+                        batch = null;
+                    } else if (op == CHECKPOINT) {
+                        // Only marks a position
+                    } else if (batch != null) {
+                        batch.add(new Object[] {op, key, payload});
+                    } else {
+                        handler.apply(op, key, payload);
+                        replayed++;
+                    }
+                    if (batch == null) {
+                        validLength = readLength;
+                    }
+                }
+            }
+        }
+
+        fileOut = new FileOutputStream(file, true);
+        if (fileOut.getChannel().size() > validLength) {
+            fileOut.getChannel().truncate(validLength);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        recordCount = replayed;
+        replayStart = start;
+        return replayed;
+    }
+
+    /**
+     * Finds the position just past the last intact checkpoint marker of a
+     * snapshot generation.
+     * @return the position, or 0 if the journal holds no such marker
+     */
+    private long findCheckpoint(long generation) throws IOException {
+        if (generation <= 0) {
+            return 0;
+        }
+        String key = Long.toString(generation);
+        long fileLength = file.length();
+        long readLength = 0;
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] body;
+            while ((body = readBody(in, fileLength)) != null) {
+                readLength += 4 + 8 + body.length;
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                if (record.readByte() == CHECKPOINT && record.readUTF().equals(key)) {
+                    position = readLength;
+                }
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Reads the body of the next record.
+     * @return the body, or null at the end of the journal or at a torn or corrupt record
+     */
+    private static byte[] readBody(DataInputStream in, long fileLength) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        // A body holds at least the operation and the key's length; a
+        // zero-filled tail would otherwise pass as an empty record
+        if (length < 3 || length > fileLength) {
+            return null;
+        }
+        byte[] body = new byte[length];
+        try {
+            long checksum = in.readLong();
+            in.readFully(body);
+            return checksum(body) == checksum ? body : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Appends a record to the journal.
+     * The record is handed to the operating system immediately; call
+     * {@link #sync()} to force it to stable storage.
+     * @param op the operation code
+     * @param key the key of the affected record
+     * @param payload the encoded record
+     */
+    void append(byte op, String key, byte[] payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length + key.length() + 8);
+        DataOutputStream body = new DataOutputStream(buffer);
+        body.writeByte(op);
+        body.writeUTF(key);
+        body.write(payload);
+        byte[] bytes = buffer.toByteArray();
+
+        out.writeInt(bytes.length);
+        out.writeLong(checksum(bytes));
+        out.write(bytes);
+        out.flush();
+        recordCount++;
+    }
+
+    /**
+     * Marks the start of a batch of records that must be replayed together.
+     */
+    void beginBatch() throws IOException {
+        append(BEGIN_BATCH, "", NO_PAYLOAD);
+    }
+
+    /**
+     * Marks the end of the batch started by {@link #beginBatch()}.
+     */
+    void commitBatch() throws IOException {
+        append(COMMIT_BATCH, "", NO_PAYLOAD);
+    }
+
+    /**
+     * Marks the point where a snapshot generation was captured. Every record
+     * before the marker is part of that generation.
+     * @param generation the snapshot generation
+     */
+    void markCheckpoint(long generation) throws IOException {
+        append(CHECKPOINT, Long.toString(generation), NO_PAYLOAD);
+    }
+
+    /**
+     * Forces all appended records to stable storage.
+     */
+    void sync() throws IOException {
+        out.flush();
+        fileOut.getFD().sync();
+    }
+
+    /**
+     * Gets the position just past the last appended record.
+     * @return the journal length in bytes
+     */
+    long position() throws IOException {
+        out.flush();
+        return fileOut.getChannel().size();
+    }
+
+    /**
+     * Discards the records before a position once a checkpoint has captured
+     * them in a snapshot. Records appended after the position are kept; they
+     * are copied to a new file that then replaces the journal.
+     * @param position a position returned by {@link #position()}
+     */
+    void discardBefore(long position) throws IOException {
+        out.flush();
+        FileChannel channel = fileOut.getChannel();
+        long length = channel.size();
+        if (position >= length) {
+            channel.truncate(0);
+            channel.force(true);
+            recordCount = 0;
+            return;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileOutputStream copy = new FileOutputStream(temp)) {
+            long copied = 0;
+            while (copied < length - position) {
+                copied += source.transferTo(position + copied, length - position - copied, copy.getChannel());
+            }
+            copy.getFD().sync();
+        }
+        int kept = countRecords(temp);
+        out.close();
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        recordCount = kept;
+    }
+
+    /**
+     * Gets the position replay started from, just past the checkpoint marker
+     * of the loaded snapshot generation.
+     * @return the position, or 0 if the whole journal was replayed
+     */
+    long getReplayStart() {
+        return replayStart;
+    }
+
+    /**
+     * Gets the number of records currently in the journal.
+     * @return the record count
+     */
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Checks if the journal has been opened for appending.
+     * @return true, if open
+     */
+    boolean isOpen() {
+        return out != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            sync();
+            out.close();
+            out = null;
+        }
+    }
+
+    private static int countRecords(File file) throws IOException {
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return records;
+                }
+                in.skipBytes(8 + length);
+                records++;
+            }
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,257 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.io.*;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Repository that keeps its records in an {@link LsmStore} on disk.
+ * <p>
+ * Records are decoded on demand. Decoded records are cached weakly, so the
+ * same instance is returned for as long as anything still refers to it and
+ * changes made through its setters are not lost. Records that were added or
+ * modified are held strongly until they have been encoded into the store.
+ *
+ * @param <T> the record type
+ */
+class LsmRepository<T> implements Repository<T> {
+
+    /**
+     * Number of modified records held before they are encoded into the store.
+     */
+    private static final int PIN_LIMIT = 1000;
+
+    private final LsmStore store;
+    private final EntityCodec codec = EntityCodec.current();
+    private final EntityCodec.Encoder<T> encoder;
+    private final EntityCodec.Decoder<T> decoder;
+
+    private final Map<String, T> pinned = new HashMap<>();
+    private final Map<String, CachedRecord<T>> cache = new HashMap<>();
+    private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+
+    /**
+     * A weakly cached record that remembers its ID so it can be purged once collected.
+     */
+    private static class CachedRecord<T> extends WeakReference<T> {
+        final String id;
+
+        CachedRecord(String id, T record, ReferenceQueue<T> queue) {
+            super(record, queue);
+            this.id = id;
+        }
+    }
+
+    /**
+     * Opens a repository in a directory, ordering records by ID string.
+     * @param dir the directory of the underlying store
+     * @param encoder the record encoder
+     * @param decoder the record decoder
+     */
+    LsmRepository(File dir, EntityCodec.Encoder<T> encoder, EntityCodec.Decoder<T> decoder) throws IOException {
+        this(dir, encoder, decoder, Comparator.naturalOrder());
+    }
+
+    /**
+     * Opens a repository in a directory.
+     * @param dir the directory of the underlying store
+     * @param encoder the record encoder
+     * @param decoder the record decoder
+     * @param order the order of the record IDs
+     */
+    LsmRepository(File dir, EntityCodec.Encoder<T> encoder, EntityCodec.Decoder<T> decoder,
+                  Comparator<String> order) throws IOException {
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.store = new LsmStore(dir, codec.headerBytes(),
+            (header, value) -> codec.toBytes(EntityCodec.fromHeaderBytes(header).fromBytes(value, decoder), encoder),
+            LsmStore.DEFAULT_MEMTABLE_LIMIT, order);
+    }
+
+    @Override
+    public synchronized T get(String id) {
+        T record = live(id);
+        if (record != null) {
+            return record;
+        }
+        try {
+            byte[] bytes = store.get(id);
+            return bytes == null ? null : cache(id, codec.fromBytes(bytes, decoder));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void put(String id, T record) {
+        try {
+            store.put(id, codec.toBytes(record, encoder));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        cache.remove(id);
+        pin(id, record);
+    }
+
+    @Override
+    public synchronized void update(String id, T record) {
+        if (live(id) == record) {
+            pin(id, record);
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(String id) {
+        pinned.remove(id);
+        cache.remove(id);
+        try {
+            return store.delete(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean containsKey(String id) {
+        try {
+            return pinned.containsKey(id) || store.contains(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public List<T> values() {
+        return scan(null, null);
+    }
+
+    @Override
+    public synchronized List<T> scan(String fromId, String toId) {
+        List<T> records = new ArrayList<>();
+        try {
+            store.scan(fromId, toId, (id, bytes) -> {
+                T record = live(id);
+                records.add(record != null ? record : cache(id, codec.fromBytes(bytes, decoder)));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized List<T> scanAfter(String afterId, int limit) {
+        List<T> records = new ArrayList<>();
+        try {
+            // The range starts at afterId itself, so one extra key may be visited and skipped
+            store.scan(afterId, null, afterId == null ? limit : limit + 1, (id, bytes) -> {
+                if (id.equals(afterId) || records.size() >= limit) {
+                    return;
+                }
+                T record = live(id);
+                records.add(record != null ? record : cache(id, codec.fromBytes(bytes, decoder)));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    /**
+     * Decodes each record in turn. Records that are not already in use are
+     * not cached, so a full pass does not hold on to the repository.
+     */
+    @Override
+    public synchronized void forEach(Consumer<? super T> action) {
+        try {
+            store.scan(null, null, (id, bytes) -> {
+                T record = live(id);
+                action.accept(record != null ? record : codec.fromBytes(bytes, decoder));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void forEachId(Consumer<String> action) {
+        try {
+            store.scan(null, null, (id, bytes) -> action.accept(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Spills the pinned records, then writes the store's memtable to a
+     * segment. The segment is written without holding this repository's
+     * lock, so lookups carry on during the disk I/O.
+     */
+    @Override
+    public void flush() throws IOException {
+        spill();
+        store.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        spill();
+        store.close();
+    }
+
+    private T live(String id) {
+        T record = pinned.get(id);
+        if (record == null) {
+            CachedRecord<T> cached = cache.get(id);
+            if (cached != null) {
+                record = cached.get();
+            }
+        }
+        return record;
+    }
+
+    private T cache(String id, T record) {
+        purgeCollected();
+        cache.put(id, new CachedRecord<>(id, record, collected));
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void purgeCollected() {
+        CachedRecord<T> cached;
+        while ((cached = (CachedRecord<T>) collected.poll()) != null) {
+            cache.remove(cached.id, cached);
+        }
+    }
+
+    private void pin(String id, T record) {
+        pinned.put(id, record);
+        if (pinned.size() >= PIN_LIMIT) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Encodes the pinned records into the store and moves them to the weak cache.
+     * A checkpoint calls this while changes are held back, so the store
+     * captures a consistent state before it is flushed.
+     */
+    synchronized void spill() throws IOException {
+        for (Map.Entry<String, T> entry : pinned.entrySet()) {
+            store.put(entry.getKey(), codec.toBytes(entry.getValue(), encoder));
+            cache(entry.getKey(), entry.getValue());
+        }
+        pinned.clear();
+    }
+}
@@ -0,0 +1,903 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Log-structured merge store mapping string keys to byte values.
+ * <p>
+ * Writes go to an in-memory memtable. Once the memtable grows past its limit
+ * it is frozen and written in the background as an immutable segment file
+ * sorted by key, while a fresh memtable takes new writes. Lookups check the
+ * memtable, the frozen memtable and then the segments from newest to oldest.
+ * Each segment keeps a sparse key index and a bloom filter in memory, so a
+ * point lookup reads at most a handful of records from each segment that may
+ * hold the key. When enough segments of similar size accumulate they are
+ * merged into one by a background compaction, which also drops deleted keys
+ * once the merge reaches the oldest segment.
+ * <p>
+ * The list of live segments is kept in a manifest that is replaced
+ * atomically, so a crash during a flush or compaction leaves the previous
+ * set of segments in use. Segment files missing from the manifest are
+ * deleted when the store is opened. The memtable itself is not logged here;
+ * {@link DataController} replays its journal over the store after a crash.
+ * <p>
+ * Keys are sorted in the order the store is opened with. A segment whose
+ * keys are out of that order, such as one written in string order before
+ * numbered IDs were ordered by value, is rewritten in order when the store
+ * is opened.
+ * <p>
+ * Segment layout:
+ * <pre>
+ *   int      SEGMENT_MAGIC
+ *   int      value header length
+ *   byte[]   value header (the codec header the values were encoded with)
+ *   records, in key order:
+ *     short  key length, byte[] key (UTF-8)
+ *     int    value length, -1 for a deleted key
+ *     byte[] value
+ *   sparse index, every INDEX_INTERVAL-th record:
+ *     short  key length, byte[] key
+ *     int    record offset
+ *   bloom filter:
+ *     int    word count, long[] words
+ *   footer:
+ *     int    record count, int index count, int index offset, int bloom offset
+ *     int    SEGMENT_MAGIC
+ * </pre>
+ */
+class LsmStore implements Closeable {
+
+    /** Magic number identifying segment files ("IPML"). */
+    static final int SEGMENT_MAGIC = 0x49504D4C;
+
+    /** Default size, in bytes, at which the memtable is frozen and flushed. */
+    static final long DEFAULT_MEMTABLE_LIMIT = 4L * 1024 * 1024;
+
+    private static final int COMPACTION_TRIGGER = 4;
+    private static final int INDEX_INTERVAL = 16;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+    private static final int BLOOM_HASHES = 4;
+    private static final String MANIFEST = "MANIFEST";
+
+    /** Marks a deleted key in memtables and segment cursors. Compared by identity. */
+    private static final byte[] TOMBSTONE = new byte[0];
+
+    private static final ExecutorService FLUSHER = daemonExecutor("lsm-flush");
+    private static final ExecutorService COMPACTOR = daemonExecutor("lsm-compaction");
+
+    /**
+     * Converts a value written under an older value header to the current one.
+     */
+    interface Upgrader {
+        byte[] upgrade(byte[] header, byte[] value) throws IOException;
+    }
+
+    /**
+     * Receives the entries of a scan.
+     */
+    interface Visitor {
+        void visit(String key, byte[] value) throws IOException;
+    }
+
+    private final File dir;
+    private final byte[] header;
+    private final Upgrader upgrader;
+    private final long memtableLimit;
+    private final Comparator<String> order;
+
+    private TreeMap<String, byte[]> memtable;
+    private long memtableBytes;
+    private TreeMap<String, byte[]> flushing;
+    private final List<Segment> segments = new ArrayList<>();
+    private long nextSequence = 1;
+    private int size;
+    private boolean compacting;
+    private IOException backgroundFailure;
+
+    /**
+     * Opens the store in a directory, creating it if needed.
+     * @param dir the directory holding the segments and manifest
+     * @param header the header describing the encoding of values written now
+     * @param upgrader converts values from segments written under another header
+     * @param memtableLimit the memtable size in bytes that triggers a flush
+     * @param order the order of the keys
+     */
+    LsmStore(File dir, byte[] header, Upgrader upgrader, long memtableLimit,
+             Comparator<String> order) throws IOException {
+        this.dir = dir;
+        this.header = header;
+        this.upgrader = upgrader;
+        this.memtableLimit = memtableLimit;
+        this.order = order;
+        this.memtable = new TreeMap<>(order);
+
+        dir.mkdirs();
+        Set<String> live = new HashSet<>();
+        File manifest = new File(dir, MANIFEST);
+        if (manifest.exists()) {
+            for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (line.startsWith("next=")) {
+                    nextSequence = Long.parseLong(line.substring("next=".length()));
+                } else if (!line.isEmpty()) {
+                    segments.add(Segment.open(new File(dir, line), order));
+                    live.add(line);
+                }
+            }
+        }
+
+        // Segments written before a crash but never published are discarded
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (!live.contains(name) && !name.equals(MANIFEST)) {
+                    new File(dir, name).delete();
+                }
+            }
+        }
+
+        for (int i = 0; i < segments.size(); i++) {
+            if (!segments.get(i).isSorted()) {
+                segments.set(i, resort(segments.get(i)));
+            }
+        }
+
+        scan(null, null, (key, value) -> size++);
+        requestCompaction();
+    }
+
+    /**
+     * Gets the value of a key.
+     * @param key the key
+     * @return the value, or null if the key is absent
+     */
+    synchronized byte[] get(String key) throws IOException {
+        byte[] value = memtable.get(key);
+        if (value == null && flushing != null) {
+            value = flushing.get(key);
+        }
+        if (value != null) {
+            return value == TOMBSTONE ? null : value;
+        }
+        for (Segment segment : segments) {
+            value = segment.get(key);
+            if (value != null) {
+                return value == TOMBSTONE ? null : upgrade(segment, value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a key is present.
+     * @param key the key
+     * @return true, if the key has a value
+     */
+    synchronized boolean contains(String key) throws IOException {
+        return get(key) != null;
+    }
+
+    /**
+     * Sets the value of a key.
+     * @param key the key
+     * @param value the value
+     */
+    synchronized void put(String key, byte[] value) throws IOException {
+        if (get(key) == null) {
+            size++;
+        }
+        write(key, value);
+    }
+
+    /**
+     * Deletes a key.
+     * @param key the key
+     * @return true, if the key was present
+     */
+    synchronized boolean delete(String key) throws IOException {
+        if (get(key) == null) {
+            return false;
+        }
+        size--;
+        write(key, TOMBSTONE);
+        return true;
+    }
+
+    /**
+     * Gets the number of keys with a value.
+     * @return the key count
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Visits the keys in a range in key order, with their current values.
+     * @param fromKey the first key to include, or null to start at the lowest key
+     * @param toKey the key to stop before, or null to continue to the highest key
+     * @param visitor the visitor receiving each key and value
+     */
+    void scan(String fromKey, String toKey, Visitor visitor) throws IOException {
+        scan(fromKey, toKey, Integer.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Visits the keys in a range in key order, stopping after a number of keys.
+     * @param fromKey the first key to include, or null to start at the lowest key
+     * @param toKey the key to stop before, or null to continue to the highest key
+     * @param limit the maximum number of keys to visit
+     * @param visitor the visitor receiving each key and value
+     */
+    void scan(String fromKey, String toKey, int limit, Visitor visitor) throws IOException {
+        List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>();
+        synchronized (this) {
+            sources.add(new TreeMap<>(range(memtable, fromKey, toKey)).entrySet().iterator());
+            if (flushing != null) {
+                sources.add(range(flushing, fromKey, toKey).entrySet().iterator());
+            }
+            for (Segment segment : segments) {
+                sources.add(cursor(segment, fromKey));
+            }
+        }
+
+        try {
+            MergingIterator entries = new MergingIterator(sources, order);
+            int visited = 0;
+            while (visited < limit && entries.hasNext()) {
+                Map.Entry<String, byte[]> entry = entries.next();
+                if (toKey != null && order.compare(entry.getKey(), toKey) >= 0) {
+                    break;
+                }
+                if (entry.getValue() != TOMBSTONE) {
+                    visitor.visit(entry.getKey(), entry.getValue());
+                    visited++;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the memtable to a segment and waits until it is published.
+     */
+    void flush() throws IOException {
+        TreeMap<String, byte[]> frozen;
+        synchronized (this) {
+            awaitFlushing();
+            if (memtable.isEmpty()) {
+                rethrowBackgroundFailure();
+                return;
+            }
+            frozen = freeze();
+        }
+        writeFrozen(frozen);
+        synchronized (this) {
+            rethrowBackgroundFailure();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Gets the number of live segments.
+     * @return the segment count
+     */
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    private void write(String key, byte[] value) throws IOException {
+        rethrowBackgroundFailure();
+        byte[] old = memtable.put(key, value);
+        memtableBytes += old == null ? key.length() * 2L + 64 + value.length : value.length - old.length;
+        if (memtableBytes >= memtableLimit) {
+            awaitFlushing();
+            TreeMap<String, byte[]> frozen = freeze();
+            FLUSHER.execute(() -> {
+                try {
+                    writeFrozen(frozen);
+                } catch (IOException e) {
+                    synchronized (this) {
+                        backgroundFailure = e;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Makes the memtable the frozen memtable. Must hold the lock with no flush in progress.
+     */
+    private TreeMap<String, byte[]> freeze() {
+        TreeMap<String, byte[]> frozen = memtable;
+        flushing = frozen;
+        memtable = new TreeMap<>(order);
+        memtableBytes = 0;
+        return frozen;
+    }
+
+    private void awaitFlushing() throws IOException {
+        while (flushing != null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a memtable flush");
+            }
+        }
+    }
+
+    /**
+     * Writes a frozen memtable as a new segment and publishes it.
+     * If writing fails, the entries are returned to the memtable.
+     */
+    private void writeFrozen(TreeMap<String, byte[]> frozen) throws IOException {
+        File file;
+        synchronized (this) {
+            file = new File(dir, segmentName(nextSequence++));
+        }
+        try {
+            Segment.write(file, header, frozen.entrySet().iterator(), frozen.size(), false);
+            Segment segment = Segment.open(file, order);
+            synchronized (this) {
+                segments.add(0, segment);
+                writeManifest();
+            }
+        } catch (IOException e) {
+            file.delete();
+            synchronized (this) {
+                for (Map.Entry<String, byte[]> entry : frozen.entrySet()) {
+                    memtable.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+            throw e;
+        } finally {
+            synchronized (this) {
+                flushing = null;
+                notifyAll();
+            }
+        }
+        requestCompaction();
+    }
+
+    private synchronized void requestCompaction() {
+        if (!compacting && pickCompaction() != null) {
+            compacting = true;
+            COMPACTOR.execute(this::compact);
+        }
+    }
+
+    /**
+     * Picks the newest run of segments to merge. Starting from the newest
+     * segment, each older segment joins the run while it is no more than twice
+     * the size of the run so far, which keeps large old segments from being
+     * rewritten on every compaction.
+     * @return the segments to merge, newest first, or null if no run is long enough
+     */
+    private List<Segment> pickCompaction() {
+        if (segments.size() < COMPACTION_TRIGGER) {
+            return null;
+        }
+        long runSize = segments.get(0).file.length();
+        int end = 1;
+        while (end < segments.size() && segments.get(end).file.length() <= runSize * 2) {
+            runSize += segments.get(end).file.length();
+            end++;
+        }
+        return end >= COMPACTION_TRIGGER ? new ArrayList<>(segments.subList(0, end)) : null;
+    }
+
+    /**
+     * Merges a run of segments into one. Deleted keys are dropped when the run
+     * reaches the oldest segment, since nothing older remains for them to shadow.
+     */
+    private void compact() {
+        List<Segment> inputs;
+        boolean dropDeleted;
+        File file;
+        synchronized (this) {
+            inputs = pickCompaction();
+            if (inputs == null) {
+                compacting = false;
+                return;
+            }
+            dropDeleted = inputs.get(inputs.size() - 1) == segments.get(segments.size() - 1);
+            file = new File(dir, segmentName(nextSequence++));
+        }
+
+        boolean merged = false;
+        try {
+            List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>();
+            int expected = 0;
+            for (Segment segment : inputs) {
+                sources.add(cursor(segment, null));
+                expected += segment.count;
+            }
+            Segment.write(file, header, new MergingIterator(sources, order), expected, dropDeleted);
+            Segment output = Segment.open(file, order);
+            synchronized (this) {
+                int position = segments.indexOf(inputs.get(0));
+                segments.removeAll(inputs);
+                segments.add(position, output);
+                writeManifest();
+            }
+            for (Segment segment : inputs) {
+                segment.file.delete();
+            }
+            merged = true;
+        } catch (IOException | UncheckedIOException e) {
+            // The input segments are still published; compaction is retried after the next flush
+            file.delete();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+        if (merged) {
+            requestCompaction();
+        }
+    }
+
+    /**
+     * Rewrites a segment whose keys are out of order as a new segment in key
+     * order, keeping its values and deleted keys as they are, and publishes it
+     * in place of the old one.
+     */
+    private Segment resort(Segment segment) throws IOException {
+        TreeMap<String, byte[]> entries = new TreeMap<>(order);
+        Iterator<Map.Entry<String, byte[]>> records = segment.cursor(null);
+        while (records.hasNext()) {
+            Map.Entry<String, byte[]> record = records.next();
+            entries.put(record.getKey(), record.getValue());
+        }
+
+        File file = new File(dir, segmentName(nextSequence++));
+        Segment.write(file, segment.header, entries.entrySet().iterator(), entries.size(), false);
+        Segment sorted = Segment.open(file, order);
+        segments.set(segments.indexOf(segment), sorted);
+        writeManifest();
+        segment.file.delete();
+        return sorted;
+    }
+
+    private void writeManifest() throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("next=").append(nextSequence).append('\n');
+        for (Segment segment : segments) {
+            manifest.append(segment.file.getName()).append('\n');
+        }
+
+        File temp = new File(dir, MANIFEST + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), new File(dir, MANIFEST).toPath(),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void rethrowBackgroundFailure() throws IOException {
+        if (backgroundFailure != null) {
+            IOException failure = backgroundFailure;
+            backgroundFailure = null;
+            throw failure;
+        }
+    }
+
+    private byte[] upgrade(Segment segment, byte[] value) throws IOException {
+        return segment.current(header) ? value : upgrader.upgrade(segment.header, value);
+    }
+
+    /**
+     * Iterates a segment from a key, converting values to the current header.
+     */
+    private Iterator<Map.Entry<String, byte[]>> cursor(Segment segment, String fromKey) {
+        Iterator<Map.Entry<String, byte[]>> records = segment.cursor(fromKey);
+        if (segment.current(header)) {
+            return records;
+        }
+        return new Iterator<Map.Entry<String, byte[]>>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, byte[]> next() {
+                Map.Entry<String, byte[]> entry = records.next();
+                if (entry.getValue() == TOMBSTONE) {
+                    return entry;
+                }
+                try {
+                    return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), upgrade(segment, entry.getValue()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private SortedMap<String, byte[]> range(TreeMap<String, byte[]> map, String fromKey, String toKey) {
+        if (fromKey != null && toKey != null) {
+            return order.compare(fromKey, toKey) < 0 ? map.subMap(fromKey, toKey) : Collections.emptySortedMap();
+        }
+        if (fromKey != null) {
+            return map.tailMap(fromKey);
+        }
+        return toKey != null ? map.headMap(toKey) : map;
+    }
+
+    private static String segmentName(long sequence) {
+        return String.format("segment-%010d.sst", sequence);
+    }
+
+    private static ExecutorService daemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Merges sorted sources given newest first. For a key present in several
+     * sources only the entry from the newest one is returned.
+     */
+    private static class MergingIterator implements Iterator<Map.Entry<String, byte[]>> {
+        private static class Head {
+            final Iterator<Map.Entry<String, byte[]>> source;
+            final int age;
+            Map.Entry<String, byte[]> entry;
+
+            Head(Iterator<Map.Entry<String, byte[]>> source, int age) {
+                this.source = source;
+                this.age = age;
+            }
+        }
+
+        private final PriorityQueue<Head> heads;
+
+        MergingIterator(List<Iterator<Map.Entry<String, byte[]>>> sources, Comparator<String> keyOrder) {
+            heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+                int order = keyOrder.compare(a.entry.getKey(), b.entry.getKey());
+                return order != 0 ? order : Integer.compare(a.age, b.age);
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                advance(new Head(sources.get(i), i));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<String, byte[]> next() {
+            Head newest = heads.poll();
+            if (newest == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, byte[]> entry = newest.entry;
+            advance(newest);
+            while (!heads.isEmpty() && heads.peek().entry.getKey().equals(entry.getKey())) {
+                advance(heads.poll());
+            }
+            return entry;
+        }
+
+        private void advance(Head head) {
+            if (head.source.hasNext()) {
+                head.entry = head.source.next();
+                heads.add(head);
+            }
+        }
+    }
+
+    /**
+     * An immutable, memory-mapped segment file.
+     */
+    private static class Segment {
+        final File file;
+        final byte[] header;
+        final int count;
+        private final Comparator<String> order;
+        private final MappedByteBuffer buffer;
+        private final int dataStart;
+        private final int indexOffset;
+        private final String[] indexKeys;
+        private final int[] indexOffsets;
+        private final long[] bloom;
+
+        private Segment(File file, byte[] header, int count, Comparator<String> order, MappedByteBuffer buffer,
+                        int dataStart, int indexOffset, String[] indexKeys, int[] indexOffsets, long[] bloom) {
+            this.file = file;
+            this.header = header;
+            this.count = count;
+            this.order = order;
+            this.buffer = buffer;
+            this.dataStart = dataStart;
+            this.indexOffset = indexOffset;
+            this.indexKeys = indexKeys;
+            this.indexOffsets = indexOffsets;
+            this.bloom = bloom;
+        }
+
+        /**
+         * Maps a segment file.
+         * @param order the key order lookups search the segment in
+         */
+        static Segment open(File file, Comparator<String> order) throws IOException {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            int length = buffer.capacity();
+            if (length < 28 || buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(length - 4) != SEGMENT_MAGIC) {
+                throw new IOException("Corrupt segment file " + file);
+            }
+
+            ByteBuffer view = buffer.duplicate();
+            byte[] header = new byte[view.getInt(4)];
+            view.position(8);
+            view.get(header);
+
+            int count = view.getInt(length - 20);
+            int indexCount = view.getInt(length - 16);
+            int indexOffset = view.getInt(length - 12);
+            int bloomOffset = view.getInt(length - 8);
+
+            String[] indexKeys = new String[indexCount];
+            int[] indexOffsets = new int[indexCount];
+            view.position(indexOffset);
+            for (int i = 0; i < indexCount; i++) {
+                indexKeys[i] = readKey(view);
+                indexOffsets[i] = view.getInt();
+            }
+
+            view.position(bloomOffset);
+            long[] bloom = new long[view.getInt()];
+            for (int i = 0; i < bloom.length; i++) {
+                bloom[i] = view.getLong();
+            }
+            return new Segment(file, header, count, order, buffer, 8 + header.length, indexOffset,
+                               indexKeys, indexOffsets, bloom);
+        }
+
+        /**
+         * Writes sorted entries as a segment file and forces it to disk.
+         * @param expectedKeys an upper bound on the number of entries, used to size the bloom filter
+         * @param dropDeleted true, to leave deleted keys out of the segment
+         */
+        static void write(File file, byte[] header, Iterator<Map.Entry<String, byte[]>> entries,
+                          int expectedKeys, boolean dropDeleted) throws IOException {
+            List<String> indexKeys = new ArrayList<>();
+            List<Integer> indexOffsets = new ArrayList<>();
+            long[] bloom = new long[Math.max(1, (int) (((long) expectedKeys * BLOOM_BITS_PER_KEY + 63) / 64))];
+
+            try (FileOutputStream fileOut = new FileOutputStream(file);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+                out.writeInt(SEGMENT_MAGIC);
+                out.writeInt(header.length);
+                out.write(header);
+
+                int count = 0;
+                while (entries.hasNext()) {
+                    Map.Entry<String, byte[]> entry = entries.next();
+                    byte[] value = entry.getValue();
+                    if (value == TOMBSTONE && dropDeleted) {
+                        continue;
+                    }
+                    if (count % INDEX_INTERVAL == 0) {
+                        indexKeys.add(entry.getKey());
+                        indexOffsets.add(out.size());
+                    }
+                    writeKey(out, entry.getKey());
+                    if (value == TOMBSTONE) {
+                        out.writeInt(-1);
+                    } else {
+                        out.writeInt(value.length);
+                        out.write(value);
+                    }
+                    addToBloom(bloom, entry.getKey());
+                    count++;
+                }
+
+                int indexOffset = out.size();
+                for (int i = 0; i < indexKeys.size(); i++) {
+                    writeKey(out, indexKeys.get(i));
+                    out.writeInt(indexOffsets.get(i));
+                }
+                int bloomOffset = out.size();
+                out.writeInt(bloom.length);
+                for (long word : bloom) {
+                    out.writeLong(word);
+                }
+
+                out.writeInt(count);
+                out.writeInt(indexKeys.size());
+                out.writeInt(indexOffset);
+                out.writeInt(bloomOffset);
+                out.writeInt(SEGMENT_MAGIC);
+                out.flush();
+                fileOut.getFD().sync();
+            }
+        }
+
+        /**
+         * Checks if the records are in key order, reading every key.
+         */
+        boolean isSorted() {
+            ByteBuffer view = buffer.duplicate();
+            view.position(dataStart);
+            String previous = null;
+            while (view.position() < indexOffset) {
+                String key = readKey(view);
+                if (previous != null && order.compare(previous, key) >= 0) {
+                    return false;
+                }
+                previous = key;
+                int length = view.getInt();
+                view.position(view.position() + Math.max(length, 0));
+            }
+            return true;
+        }
+
+        boolean current(byte[] currentHeader) {
+            return Arrays.equals(header, currentHeader);
+        }
+
+        /**
+         * Looks up a key.
+         * @return the value, TOMBSTONE if the key was deleted, or null if the segment does not hold it
+         */
+        byte[] get(String key) {
+            if (count == 0 || !mightContain(bloom, key)) {
+                return null;
+            }
+            int block = floorIndex(key);
+            if (block < 0) {
+                return null;
+            }
+
+            ByteBuffer view = buffer.duplicate();
+            view.position(indexOffsets[block]);
+            for (int i = 0; i < INDEX_INTERVAL && view.position() < indexOffset; i++) {
+                int cmp = order.compare(readKey(view), key);
+                int length = view.getInt();
+                if (cmp == 0) {
+                    return length < 0 ? TOMBSTONE : readValue(view, length);
+                }
+                if (cmp > 0) {
+                    return null;
+                }
+                if (length > 0) {
+                    view.position(view.position() + length);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Iterates the records from the first key not before fromKey.
+         */
+        Iterator<Map.Entry<String, byte[]>> cursor(String fromKey) {
+            ByteBuffer view = buffer.duplicate();
+            int block = fromKey == null ? -1 : floorIndex(fromKey);
+            view.position(block < 0 ? dataStart : indexOffsets[block]);
+
+            return new Iterator<Map.Entry<String, byte[]>>() {
+                private Map.Entry<String, byte[]> next = advance();
+
+                private Map.Entry<String, byte[]> advance() {
+                    while (view.position() < indexOffset) {
+                        String key = readKey(view);
+                        int length = view.getInt();
+                        if (fromKey != null && order.compare(key, fromKey) < 0) {
+                            view.position(view.position() + Math.max(length, 0));
+                            continue;
+                        }
+                        byte[] value = length < 0 ? TOMBSTONE : readValue(view, length);
+                        return new AbstractMap.SimpleImmutableEntry<>(key, value);
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Map.Entry<String, byte[]> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Map.Entry<String, byte[]> entry = next;
+                    next = advance();
+                    return entry;
+                }
+            };
+        }
+
+        /**
+         * Finds the last index entry whose key is not after the given key.
+         * @return the index entry, or -1 if the key sorts before the whole segment
+         */
+        private int floorIndex(String key) {
+            int low = 0;
+            int high = indexKeys.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (order.compare(indexKeys[mid], key) <= 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        private static void writeKey(DataOutputStream out, String key) throws IOException {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readKey(ByteBuffer view) {
+            byte[] bytes = new byte[view.getShort() & 0xFFFF];
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static byte[] readValue(ByteBuffer view, int length) {
+            byte[] value = new byte[length];
+            view.get(value);
+            return value;
+        }
+
+        private static void addToBloom(long[] bloom, String key) {
+            long bits = bloom.length * 64L;
+            int h1 = key.hashCode();
+            int h2 = mix(h1);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                bloom[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        private static boolean mightContain(long[] bloom, String key) {
+            long bits = bloom.length * 64L;
+            int h1 = key.hashCode();
+            int h2 = mix(h1);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int mix(int h) {
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Repository holding its records in a map.
+ * Records are persisted through the snapshots written by {@link DataController}.
+ * The backing map must be safe for concurrent use, like a
+ * {@link ConcurrentHashMap} or a {@link MappedInternshipMap}: lookups go
+ * straight to it without a lock. Changes and ordered reads synchronize on
+ * the repository, which guards the ordered ID set, so they do not rely on
+ * the caller's locking either.
+ *
+ * @param <T> the record type
+ */
+class MapRepository<T> implements Repository<T> {
+
+    private final Map<String, T> map;
+    private final Comparator<String> order;
+    /** IDs in order, built on the first ordered read and kept up to date after it. */
+    private NavigableSet<String> sortedIds;
+
+    /**
+     * Constructs a MapRepository backed by a new concurrent hash map,
+     * with IDs in string order.
+     */
+    MapRepository() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Constructs a MapRepository backed by a new concurrent hash map.
+     * @param order the order of the IDs
+     */
+    MapRepository(Comparator<String> order) {
+        this(new ConcurrentHashMap<>(), order);
+    }
+
+    /**
+     * Constructs a MapRepository backed by the given map, with IDs in string order.
+     * @param map the map holding the records
+     */
+    MapRepository(Map<String, T> map) {
+        this(map, Comparator.naturalOrder());
+    }
+
+    /**
+     * Constructs a MapRepository backed by the given map.
+     * @param map the map holding the records
+     * @param order the order of the IDs
+     */
+    MapRepository(Map<String, T> map, Comparator<String> order) {
+        this.map = map;
+        this.order = order;
+    }
+
+    /**
+     * Gets the map backing this repository.
+     * @return the backing map
+     */
+    Map<String, T> asMap() {
+        return map;
+    }
+
+    @Override
+    public T get(String id) {
+        return map.get(id);
+    }
+
+    @Override
+    public synchronized void put(String id, T record) {
+        map.put(id, record);
+        if (sortedIds != null) {
+            sortedIds.add(id);
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(String id) {
+        if (sortedIds != null) {
+            sortedIds.remove(id);
+        }
+        return map.remove(id) != null;
+    }
+
+    @Override
+    public boolean containsKey(String id) {
+        return map.containsKey(id);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public List<T> values() {
+        return new ArrayList<>(map.values());
+    }
+
+    /**
+     * Visits the records of a mapped internship snapshot without
+     * materializing them, see {@link MappedInternshipMap#forEachRecord}.
+     */
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void forEach(Consumer<? super T> action) {
+        if (map instanceof MappedInternshipMap) {
+            ((MappedInternshipMap) map).forEachRecord((Consumer) action);
+        } else {
+            map.values().forEach(action);
+        }
+    }
+
+    @Override
+    public void forEachId(Consumer<String> action) {
+        map.keySet().forEach(action);
+    }
+
+    @Override
+    public List<T> scan(String fromId, String toId) {
+        List<String> ids = new ArrayList<>();
+        for (String id : map.keySet()) {
+            if ((fromId == null || order.compare(id, fromId) >= 0) && (toId == null || order.compare(id, toId) < 0)) {
+                ids.add(id);
+            }
+        }
+        ids.sort(order);
+
+        List<T> records = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T record = map.get(id);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized List<T> scanAfter(String afterId, int limit) {
+        if (sortedIds == null) {
+            sortedIds = new TreeSet<>(order);
+            sortedIds.addAll(map.keySet());
+        }
+        List<T> records = new ArrayList<>(Math.min(limit, sortedIds.size()));
+        for (String id : afterId == null ? sortedIds : sortedIds.tailSet(afterId, false)) {
+            if (records.size() >= limit) {
+                break;
+            }
+            records.add(map.get(id));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,541 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.Internship;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Internship map backed by a memory-mapped snapshot file.
+ * <p>
+ * The snapshot stores its records sorted in {@link IdAllocator#ID_ORDER} behind
+ * a fixed-width offset table, so a lookup is a binary search over the table.
+ * Records are only decoded into {@link Internship} objects the first time they
+ * are accessed, which keeps startup time and heap usage independent of the
+ * number of postings.
+ * Changes made after opening are kept in memory until the next snapshot.
+ * Individual lookups and updates are synchronized, since a lookup may
+ * materialize a record, and every record is materialized at most once, so
+ * lookups from different threads get the same instance. Iterators are
+ * weakly consistent and may be used while other threads change the map.
+ * <p>
+ * File layout:
+ * <pre>
+ *   int      INDEX_MAGIC
+ *   byte[]   codec header (see {@link EntityCodec#writeHeader})
+ *   int      record count
+ *   long[]   record offsets, one per record, in ID order
+ *   byte[]   encoded records
+ * </pre>
+ */
+class MappedInternshipMap extends AbstractMap<String, Internship> {
+
+    /** Magic number identifying indexed snapshot files ("IPMY"). */
+    static final int INDEX_MAGIC = 0x49504D59;
+
+    private final MappedByteBuffer buffer;
+    private final EntityCodec codec;
+    private final byte[] headerBytes;
+    private final int count;
+    private final int tableOffset;
+
+    private final Map<String, Internship> materialized = new HashMap<>();
+    private final Map<String, Internship> overrides = new HashMap<>();
+    private final Set<String> removed = new HashSet<>();
+    private int size;
+
+    private MappedInternshipMap(MappedByteBuffer buffer, EntityCodec codec, byte[] headerBytes,
+                                int count, int tableOffset) {
+        this.buffer = buffer;
+        this.codec = codec;
+        this.headerBytes = headerBytes;
+        this.count = count;
+        this.tableOffset = tableOffset;
+        this.size = count;
+    }
+
+    /**
+     * Checks if a file is an indexed internship snapshot.
+     * @param file the file
+     * @return true, if the file has the indexed layout
+     */
+    static boolean isMappedFile(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == INDEX_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps a snapshot file into memory without decoding any records.
+     * @param file the snapshot file
+     * @return the lazily materialized map
+     */
+    static MappedInternshipMap open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        DataInputStream in = new DataInputStream(new BufferInputStream(buffer, 0));
+        if (in.readInt() != INDEX_MAGIC) {
+            throw new IOException("Not an indexed internship snapshot");
+        }
+        int headerStart = 4;
+        EntityCodec codec = EntityCodec.readHeader(in);
+        int count = in.readInt();
+        int tableOffset = buffer.capacity() - in.available();
+        int headerEnd = tableOffset - 4;
+
+        byte[] headerBytes = new byte[headerEnd - headerStart];
+        ByteBuffer view = buffer.duplicate();
+        view.position(headerStart);
+        view.get(headerBytes);
+
+        return new MappedInternshipMap(buffer, codec, headerBytes, count, tableOffset);
+    }
+
+    /**
+     * Captures the given internships for an indexed snapshot.
+     * Only the keys and the records are captured, so the map may change again
+     * as soon as this returns; changed and added records are encoded when the
+     * snapshot is written, and a change made to one of them in the meantime
+     * may or may not be included. Records of a mapped map that were never
+     * materialized or changed are copied byte for byte when the snapshot is
+     * written, since the mapped file itself never changes.
+     * @param internships the internships to capture
+     * @return the captured snapshot, ready to be written
+     */
+    static Image capture(Map<String, Internship> internships) throws IOException {
+        EntityCodec current = EntityCodec.current();
+        byte[] header = current.headerBytes();
+        MappedInternshipMap source = null;
+        if (internships instanceof MappedInternshipMap
+                && Arrays.equals(((MappedInternshipMap) internships).headerBytes, header)) {
+            source = (MappedInternshipMap) internships;
+        }
+
+        List<String> keys = new ArrayList<>(internships.size());
+        int[] slots;
+        if (source != null) {
+            synchronized (source) {
+                slots = new int[source.size];
+                source.collectKeys(keys, slots);
+            }
+        } else {
+            keys.addAll(internships.keySet());
+            keys.sort(IdAllocator.ID_ORDER);
+            slots = new int[keys.size()];
+            Arrays.fill(slots, -1);
+        }
+
+        Internship[] records = new Internship[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            if (slots[i] < 0) {
+                records[i] = internships.get(keys.get(i));
+            }
+        }
+        return new Image(current, header, source, keys.size(), slots, records);
+    }
+
+    /**
+     * An indexed snapshot captured by {@link #capture}, waiting to be written.
+     */
+    static class Image {
+        private final EntityCodec codec;
+        private final byte[] header;
+        private final MappedInternshipMap source;
+        private final int count;
+        private final int[] slots;
+        private final Internship[] records;
+
+        private Image(EntityCodec codec, byte[] header, MappedInternshipMap source, int count, int[] slots,
+                      Internship[] records) {
+            this.codec = codec;
+            this.header = header;
+            this.source = source;
+            this.count = count;
+            this.slots = slots;
+            this.records = records;
+        }
+
+        /**
+         * Writes the captured records to a file. The file is written in
+         * place; moving it into place and syncing it is up to the caller.
+         * @param file the target file
+         */
+        void write(File file) throws IOException {
+            long tableOffset = 4 + header.length + 4;
+            long[] offsets = new long[count];
+
+            try (FileOutputStream fileOut = new FileOutputStream(file)) {
+                FileChannel channel = fileOut.getChannel();
+                channel.position(tableOffset + 8L * count);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+
+                long position = tableOffset + 8L * count;
+                for (int i = 0; i < count; i++) {
+                    offsets[i] = position;
+                    int before = out.size();
+                    if (slots[i] >= 0) {
+                        source.copyRecord(slots[i], out);
+                    } else {
+                        codec.writeInternship(out, records[i]);
+                    }
+                    position += out.size() - before;
+                }
+                out.flush();
+
+                ByteBuffer head = ByteBuffer.allocate((int) tableOffset + 8 * count);
+                head.putInt(INDEX_MAGIC);
+                head.put(header);
+                head.putInt(count);
+                for (long offset : offsets) {
+                    head.putLong(offset);
+                }
+                head.flip();
+                channel.position(0);
+                while (head.hasRemaining()) {
+                    channel.write(head);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized Internship get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        Internship internship = overrides.get(key);
+        if (internship != null || removed.contains(key)) {
+            return internship;
+        }
+        internship = materialized.get(key);
+        if (internship != null) {
+            return internship;
+        }
+        int slot = findSlot((String) key);
+        return slot < 0 ? null : materialize(slot, (String) key);
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        if (overrides.containsKey(key)) {
+            return true;
+        }
+        return key instanceof String && !removed.contains(key) && findSlot((String) key) >= 0;
+    }
+
+    @Override
+    public synchronized Internship put(String key, Internship value) {
+        Internship old = get(key);
+        overrides.put(key, value);
+        if (old == null) {
+            size++;
+        }
+        return old;
+    }
+
+    @Override
+    public synchronized Internship remove(Object key) {
+        Internship old = get(key);
+        if (old == null) {
+            return null;
+        }
+        overrides.remove(key);
+        if (findSlot((String) key) >= 0) {
+            removed.add((String) key);
+            materialized.remove(key);
+        }
+        size--;
+        return old;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the keys without materializing any records.
+     */
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new KeyIterator();
+            }
+
+            @Override
+            public int size() {
+                return MappedInternshipMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, Internship>> entrySet() {
+        return new AbstractSet<Entry<String, Internship>>() {
+            @Override
+            public Iterator<Entry<String, Internship>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return MappedInternshipMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterates over the mapped keys in ID order, then over the keys added
+     * after opening. Like the iterators of a concurrent map, it is weakly
+     * consistent: each step runs under the map's lock, and the added keys are
+     * copied when the iterator is created, so the map may change while it is
+     * iterated.
+     */
+    private abstract class MapIterator<E> implements Iterator<E> {
+        private int slot;
+        private final Iterator<String> added;
+        private E next;
+
+        MapIterator() {
+            synchronized (MappedInternshipMap.this) {
+                List<String> keys = new ArrayList<>();
+                for (String key : overrides.keySet()) {
+                    if (findSlot(key) < 0) {
+                        keys.add(key);
+                    }
+                }
+                added = keys.iterator();
+                next = advance();
+            }
+        }
+
+        /**
+         * Creates the element for a key that is in the map.
+         * Called under the map's lock.
+         * @param slot the mapped slot of the key, or -1 if it was added after opening
+         * @param key the key
+         */
+        abstract E element(int slot, String key);
+
+        private E advance() {
+            synchronized (MappedInternshipMap.this) {
+                while (slot < count) {
+                    int current = slot++;
+                    String key = keyAt(current);
+                    if (overrides.containsKey(key) || !removed.contains(key)) {
+                        return element(current, key);
+                    }
+                }
+                while (added.hasNext()) {
+                    String key = added.next();
+                    if (overrides.containsKey(key)) {
+                        return element(-1, key);
+                    }
+                }
+                return null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            E result = next;
+            next = advance();
+            return result;
+        }
+    }
+
+    /**
+     * Iterates over the entries, materializing mapped records as they are reached.
+     */
+    private class EntryIterator extends MapIterator<Entry<String, Internship>> {
+        @Override
+        Entry<String, Internship> element(int slot, String key) {
+            Internship internship = overrides.get(key);
+            if (internship == null) {
+                internship = materialize(slot, key);
+            }
+            return new SimpleImmutableEntry<>(key, internship);
+        }
+    }
+
+    /**
+     * Iterates over the keys without materializing any records.
+     */
+    private class KeyIterator extends MapIterator<String> {
+        @Override
+        String element(int slot, String key) {
+            return key;
+        }
+    }
+
+    /**
+     * Passes every internship to an action, in the same order as the iterators.
+     * Records that were never materialized are decoded into copies that are
+     * not kept, so a full pass leaves the map as lazy as it was; such copies
+     * must not be kept or changed.
+     * @param action the action to perform on each internship
+     */
+    synchronized void forEachRecord(Consumer<? super Internship> action) {
+        for (int slot = 0; slot < count; slot++) {
+            String key = keyAt(slot);
+            if (removed.contains(key) || overrides.containsKey(key)) {
+                continue;
+            }
+            Internship internship = materialized.get(key);
+            action.accept(internship != null ? internship : decode(slot, key));
+        }
+        overrides.values().forEach(action);
+    }
+
+    /**
+     * Gets the number of records decoded so far.
+     * @return the number of materialized records
+     */
+    int getMaterializedCount() {
+        return materialized.size();
+    }
+
+    /**
+     * Collects all keys in ID order by merging the mapped keys with the sorted
+     * keys added after opening. For each key, records the mapped slot whose bytes
+     * can be copied unchanged, or -1 if the record has to be re-encoded.
+     */
+    private void collectKeys(List<String> keys, int[] slots) {
+        List<String> added = new ArrayList<>(overrides.keySet());
+        added.sort(IdAllocator.ID_ORDER);
+        int next = 0;
+        for (int slot = 0; slot < count; slot++) {
+            String key = keyAt(slot);
+            if (removed.contains(key) || overrides.containsKey(key)) {
+                continue;
+            }
+            while (next < added.size() && IdAllocator.ID_ORDER.compare(added.get(next), key) < 0) {
+                slots[keys.size()] = -1;
+                keys.add(added.get(next++));
+            }
+            slots[keys.size()] = materialized.containsKey(key) ? -1 : slot;
+            keys.add(key);
+        }
+        while (next < added.size()) {
+            slots[keys.size()] = -1;
+            keys.add(added.get(next++));
+        }
+    }
+
+    private void copyRecord(int slot, DataOutputStream out) throws IOException {
+        int start = (int) offsetAt(slot);
+        int end = slot + 1 < count ? (int) offsetAt(slot + 1) : buffer.capacity();
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        byte[] bytes = new byte[end - start];
+        view.get(bytes);
+        out.write(bytes);
+    }
+
+    /**
+     * Gets the materialized instance of a mapped record, decoding it on first use.
+     * The check and the decoding happen under the lock, so every record has
+     * exactly one instance.
+     */
+    private synchronized Internship materialize(int slot, String key) {
+        Internship internship = materialized.get(key);
+        if (internship == null) {
+            internship = decode(slot, key);
+            materialized.put(key, internship);
+        }
+        return internship;
+    }
+
+    private Internship decode(int slot, String key) {
+        try {
+            return codec.readInternship(new DataInputStream(new BufferInputStream(buffer, (int) offsetAt(slot))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt internship record: " + key, e);
+        }
+    }
+
+    private int findSlot(String key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = IdAllocator.ID_ORDER.compare(keyAt(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private long offsetAt(int slot) {
+        return buffer.getLong(tableOffset + slot * 8);
+    }
+
+    private String keyAt(int slot) {
+        try {
+            return EntityCodec.readString(new DataInputStream(new BufferInputStream(buffer, (int) offsetAt(slot))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt internship record at slot " + slot, e);
+        }
+    }
+
+    /**
+     * Input stream reading from an independent view of a byte buffer.
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer view;
+
+        BufferInputStream(ByteBuffer buffer, int position) {
+            this.view = buffer.duplicate();
+            this.view.position(position);
+        }
+
+        @Override
+        public int read() {
+            return view.hasRemaining() ? view.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!view.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, view.remaining());
+            view.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return view.remaining();
+        }
+    }
+}
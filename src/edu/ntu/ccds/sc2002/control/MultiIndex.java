@@ -0,0 +1,83 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.util.*;
+
+/**
+ * Secondary index from a key to the IDs of the records that have it.
+ * IDs under each key are kept in ID order.
+ * Callers are responsible for synchronization.
+ *
+ * @param <K> the key type
+ */
+class MultiIndex<K> {
+
+    private final Map<K, NavigableSet<String>> entries = new HashMap<>();
+    private final Comparator<String> order;
+
+    /**
+     * Creates an index that keeps IDs in string order.
+     */
+    MultiIndex() {
+        this(Comparator.naturalOrder());
+    }
+
+    /**
+     * Creates an index.
+     * @param order the order of the IDs under each key
+     */
+    MultiIndex(Comparator<String> order) {
+        this.order = order;
+    }
+
+    /**
+     * Adds a record ID under a key.
+     * @param key the key
+     * @param id the record ID
+     */
+    void add(K key, String id) {
+        entries.computeIfAbsent(key, k -> new TreeSet<>(order)).add(id);
+    }
+
+    /**
+     * Removes a record ID from a key.
+     * @param key the key
+     * @param id the record ID
+     */
+    void remove(K key, String id) {
+        NavigableSet<String> ids = entries.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Gets the IDs of the records under a key.
+     * @param key the key
+     * @return a read-only view of the IDs, empty if there are none
+     */
+    Set<String> get(K key) {
+        NavigableSet<String> ids = entries.get(key);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Gets the IDs under a key that follow an ID.
+     * @param key the key
+     * @param afterId the ID to start after, or null to start at the lowest ID
+     * @return a read-only view of the IDs, in ID order
+     */
+    Set<String> getAfter(K key, String afterId) {
+        NavigableSet<String> ids = entries.get(key);
+        if (ids == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(afterId == null ? ids : ids.tailSet(afterId, false));
+    }
+
+    /**
+     * Removes every entry.
+     */
+    void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,110 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * One page of a listing, with a cursor for the page that follows it.
+ * <p>
+ * Listings are returned in a stable order, and the cursor records the sort
+ * key of the last item on the page. The next page starts after that key, so
+ * records added or removed elsewhere in the listing do not shift the pages
+ * already seen. Cursors are opaque to callers and are only valid for the
+ * listing that produced them.
+ *
+ * @param <T> the item type
+ */
+public class Page<T> {
+
+    private static final char SEPARATOR = '\0';
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the items on this page.
+     * @return a read-only list of the items
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the cursor of the next page.
+     * @return the cursor, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks if there is a page after this one.
+     * @return true, if there is a next page
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Builds a page from up to one item more than the page size.
+     * The extra item only shows that a next page exists and is dropped.
+     * @param items the items read, at most size + 1
+     * @param size the page size
+     * @param key the sort key of an item, as the parts encoded in the cursor
+     * @return the page
+     */
+    static <T> Page<T> of(List<T> items, int size, Function<T, String[]> key) {
+        if (items.size() <= size) {
+            return new Page<>(items, null);
+        }
+        List<T> page = new ArrayList<>(items.subList(0, size));
+        return new Page<>(page, encode(key.apply(page.get(size - 1))));
+    }
+
+    /**
+     * Encodes a sort key as a cursor.
+     */
+    static String encode(String... parts) {
+        String joined = String.join(String.valueOf(SEPARATOR), parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor into its sort key.
+     * @param cursor the cursor, or null for the first page
+     * @param parts the number of parts in the sort key
+     * @return the parts, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static String[] decode(String cursor, int parts) {
+        if (cursor == null) {
+            return null;
+        }
+        String[] key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                .split(String.valueOf(SEPARATOR), -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("malformed cursor", e);
+        }
+        if (key.length != parts) {
+            throw new IllegalArgumentException("malformed cursor");
+        }
+        return key;
+    }
+
+    /**
+     * Checks that a page size is positive.
+     */
+    static void checkSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("page size must be positive");
+        }
+    }
+}
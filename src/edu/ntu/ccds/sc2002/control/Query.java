@@ -0,0 +1,250 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A query over one type of record held by {@link DataController}.
+ * <p>
+ * A query is a conjunction of conditions, with an optional sort order and
+ * limit. Some conditions can be answered from an index. When the query is
+ * run, a planner asks each of those conditions how many candidates its
+ * index would produce and reads the records of the smallest candidate set,
+ * or scans every record if no index is smaller. The remaining conditions
+ * are checked on each candidate. The limit is pushed into the execution:
+ * without a sort order the query stops at the limit, and with one only
+ * the best records up to the limit are kept while the candidates are read.
+ *
+ * @param <T> the record type
+ * @param <Q> the concrete query type
+ */
+public abstract class Query<T, Q extends Query<T, Q>> {
+
+    /**
+     * A way to find candidates for a condition through an index.
+     */
+    static class Access {
+        final String description;
+        final int estimate;
+        final Supplier<Collection<String>> ids;
+
+        Access(String description, int estimate, Supplier<Collection<String>> ids) {
+            this.description = description;
+            this.estimate = estimate;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * A condition on a record, with an optional index access path.
+     */
+    private static class Condition<T> {
+        final String description;
+        final Predicate<? super T> test;
+        final Supplier<Access> index;
+
+        Condition(String description, Predicate<? super T> test, Supplier<Access> index) {
+            this.description = description;
+            this.test = test;
+            this.index = index;
+        }
+    }
+
+    final DataController dataController;
+    private final List<Condition<T>> conditions = new ArrayList<>();
+    private Comparator<? super T> order;
+    private int limit = Integer.MAX_VALUE;
+
+    Query(DataController dataController) {
+        this.dataController = dataController;
+    }
+
+    /**
+     * Gets the repository the query reads from.
+     */
+    abstract Repository<T> repository();
+
+    /**
+     * Gets the ID of a record.
+     */
+    abstract String idOf(T record);
+
+    abstract Q self();
+
+    /**
+     * Adds a condition that is checked on every candidate record.
+     * @param description a short description of the condition
+     * @param test the condition
+     * @return this query
+     */
+    public Q where(String description, Predicate<? super T> test) {
+        return where(description, test, null);
+    }
+
+    Q where(String description, Predicate<? super T> test, Supplier<Access> index) {
+        conditions.add(new Condition<>(description, test, index));
+        return self();
+    }
+
+    /**
+     * Sorts the results.
+     * @param order the sort order
+     * @return this query
+     */
+    public Q orderBy(Comparator<? super T> order) {
+        this.order = order;
+        return self();
+    }
+
+    /**
+     * Limits the number of results.
+     * @param limit the maximum number of results
+     * @return this query
+     */
+    public Q limit(int limit) {
+        this.limit = Math.max(0, limit);
+        return self();
+    }
+
+    /**
+     * Checks if a record meets every condition of the query.
+     * @param record the record
+     * @return true, if the record matches
+     */
+    public boolean matches(T record) {
+        for (Condition<T> condition : conditions) {
+            if (!condition.test.test(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the query.
+     * @return the matching records
+     */
+    public List<T> list() {
+        synchronized (dataController) {
+            return execute(chooseAccess());
+        }
+    }
+
+    /**
+     * Describes how the query would be run.
+     * @return the query plan
+     */
+    public String explain() {
+        synchronized (dataController) {
+            Access access = chooseAccess();
+            StringBuilder plan = new StringBuilder();
+            if (access == null) {
+                plan.append("full scan (").append(repository().size()).append(" records)");
+            } else {
+                plan.append("index on ").append(access.description)
+                    .append(" (").append(access.estimate).append(" candidates)");
+            }
+            List<String> filters = new ArrayList<>();
+            for (Condition<T> condition : conditions) {
+                if (access == null || !condition.description.equals(access.description)) {
+                    filters.add(condition.description);
+                }
+            }
+            if (!filters.isEmpty()) {
+                plan.append(", filter ").append(String.join(" and ", filters));
+            }
+            if (order != null) {
+                plan.append(", sorted");
+            }
+            if (limit != Integer.MAX_VALUE) {
+                plan.append(order != null ? ", top " : ", first ").append(limit);
+            }
+            return plan.toString();
+        }
+    }
+
+    /**
+     * Picks the index access with the fewest candidates, or null for a full scan.
+     */
+    private Access chooseAccess() {
+        Access best = null;
+        for (Condition<T> condition : conditions) {
+            if (condition.index == null) {
+                continue;
+            }
+            Access access = condition.index.get();
+            if (best == null || access.estimate < best.estimate) {
+                best = access;
+            }
+        }
+        return best != null && best.estimate < repository().size() ? best : null;
+    }
+
+    private List<T> execute(Access access) {
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+        Repository<T> repository = repository();
+        Collector collector = new Collector();
+        if (access == null) {
+            repository.forEach(collector::offer);
+            // A scan may pass copies of records that are not in use, so the
+            // kept records are swapped for the instances the repository hands out
+            List<T> results = collector.results();
+            results.replaceAll(record -> repository.get(idOf(record)));
+            return results;
+        }
+        for (String id : access.ids.get()) {
+            if (collector.isFull()) {
+                break;
+            }
+            T record = repository.get(id);
+            if (record != null) {
+                collector.offer(record);
+            }
+        }
+        return collector.results();
+    }
+
+    /**
+     * Collects matching records, keeping at most the limit.
+     */
+    private class Collector {
+        private final List<T> matches = new ArrayList<>();
+        private final PriorityQueue<T> best;
+
+        @SuppressWarnings("unchecked")
+        Collector() {
+            // The heap holds the worst kept record at its head, so it can be evicted
+            best = order == null ? null : new PriorityQueue<>(((Comparator<T>) order).reversed());
+        }
+
+        boolean isFull() {
+            return best == null && matches.size() >= limit;
+        }
+
+        void offer(T record) {
+            if (isFull() || !matches(record)) {
+                return;
+            }
+            if (best == null) {
+                matches.add(record);
+            } else {
+                best.add(record);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<T> results() {
+            if (best == null) {
+                return matches;
+            }
+            List<T> sorted = new ArrayList<>(best);
+            sorted.sort(order);
+            return sorted;
+        }
+    }
+}
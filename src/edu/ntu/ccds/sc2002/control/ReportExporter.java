@@ -0,0 +1,379 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Exports internships, applications and withdrawal requests to CSV or JSON files.
+ * <p>
+ * Records are streamed from {@link DataController} one at a time and written
+ * through a buffered writer as they are visited, so memory use does not grow
+ * with the number of records exported. Each export takes the same internship
+ * filters as the staff reports; applications and withdrawal requests are
+ * filtered by the internship they belong to.
+ * <p>
+ * Files ending in {@code .json} are written as a JSON array with one object
+ * per line, anything else as CSV with a header row. Columns can be selected
+ * by name and are written in the order given.
+ */
+public class ReportExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Internship filters matching those of the staff reports.
+     * Filters that are not set match every internship.
+     */
+    public static class Filter {
+        private InternshipStatus status;
+        private String major;
+        private InternshipLevel level;
+        private String company;
+
+        /**
+         * Sets the status filter.
+         * @param status the status to match, or null for any status
+         */
+        public void setStatus(InternshipStatus status) {
+            this.status = status;
+        }
+
+        /**
+         * Sets the major filter.
+         * @param major the preferred major to match, ignoring case, or null for any major
+         */
+        public void setMajor(String major) {
+            this.major = major;
+        }
+
+        /**
+         * Sets the level filter.
+         * @param level the level to match, or null for any level
+         */
+        public void setLevel(InternshipLevel level) {
+            this.level = level;
+        }
+
+        /**
+         * Sets the company filter.
+         * @param company text the company name must contain, ignoring case, or null for any company
+         */
+        public void setCompany(String company) {
+            this.company = company == null ? null : company.toLowerCase();
+        }
+
+        /**
+         * Checks if no filter is set.
+         * @return true, if every internship matches
+         */
+        public boolean isEmpty() {
+            return status == null && major == null && level == null && company == null;
+        }
+
+        /**
+         * Checks if an internship matches every filter that is set.
+         * @param internship the internship
+         * @return true, if the internship matches
+         */
+        public boolean matches(Internship internship) {
+            return (status == null || internship.getStatus() == status)
+                && (major == null || internship.getPreferredMajor().equalsIgnoreCase(major))
+                && (level == null || internship.getLevel() == level)
+                && (company == null || internship.getCompanyName().toLowerCase().contains(company));
+        }
+    }
+
+    /**
+     * A named column and the function reading its value from a record.
+     */
+    private static class Column<T> {
+        final String name;
+        final Function<T, Object> value;
+
+        Column(String name, Function<T, Object> value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private static final List<Column<Internship>> INTERNSHIP_COLUMNS = Arrays.asList(
+        new Column<>("internshipId", Internship::getInternshipId),
+        new Column<>("title", Internship::getTitle),
+        new Column<>("description", Internship::getDescription),
+        new Column<>("level", Internship::getLevel),
+        new Column<>("preferredMajor", Internship::getPreferredMajor),
+        new Column<>("openingDate", Internship::getOpeningDate),
+        new Column<>("closingDate", Internship::getClosingDate),
+        new Column<>("status", Internship::getStatus),
+        new Column<>("companyName", Internship::getCompanyName),
+        new Column<>("companyRepId", Internship::getCompanyRepId),
+        new Column<>("totalSlots", Internship::getTotalSlots),
+        new Column<>("availableSlots", Internship::getAvailableSlots),
+        new Column<>("visible", Internship::isVisible),
+        new Column<>("applications", i -> i.getApplicationIds().size()));
+
+    private static final List<Column<Application>> APPLICATION_COLUMNS = Arrays.asList(
+        new Column<>("applicationId", Application::getApplicationId),
+        new Column<>("studentId", Application::getStudentId),
+        new Column<>("internshipId", Application::getInternshipId),
+        new Column<>("status", Application::getStatus),
+        new Column<>("applicationDate", Application::getApplicationDate),
+        new Column<>("placementConfirmed", Application::isPlacementConfirmed));
+
+    private static final List<Column<WithdrawalRequest>> WITHDRAWAL_COLUMNS = Arrays.asList(
+        new Column<>("requestId", WithdrawalRequest::getRequestId),
+        new Column<>("applicationId", WithdrawalRequest::getApplicationId),
+        new Column<>("studentId", WithdrawalRequest::getStudentId),
+        new Column<>("reason", WithdrawalRequest::getReason),
+        new Column<>("status", WithdrawalRequest::getStatus),
+        new Column<>("requestDate", WithdrawalRequest::getRequestDate),
+        new Column<>("afterConfirmation", WithdrawalRequest::isAfterConfirmation));
+
+    private final DataController dataController;
+
+    /**
+     * Constructs a ReportExporter.
+     * @param dataController the data controller supplying the records
+     */
+    public ReportExporter(DataController dataController) {
+        this.dataController = dataController;
+    }
+
+    /**
+     * Gets the names of the internship columns.
+     * @return the column names
+     */
+    public static List<String> getInternshipColumns() {
+        return namesOf(INTERNSHIP_COLUMNS);
+    }
+
+    /**
+     * Gets the names of the application columns.
+     * @return the column names
+     */
+    public static List<String> getApplicationColumns() {
+        return namesOf(APPLICATION_COLUMNS);
+    }
+
+    /**
+     * Gets the names of the withdrawal request columns.
+     * @return the column names
+     */
+    public static List<String> getWithdrawalColumns() {
+        return namesOf(WITHDRAWAL_COLUMNS);
+    }
+
+    /**
+     * Exports the internships matching a filter.
+     * @param file the output file
+     * @param filter the internship filter
+     * @param columns the columns to write, or an empty list for every column
+     * @return the number of internships exported
+     * @throws IllegalArgumentException if a column name is unknown
+     */
+    public int exportInternships(File file, Filter filter, List<String> columns) throws IOException {
+        return export(file, select(INTERNSHIP_COLUMNS, columns),
+                      dataController::forEachInternship, filter::matches);
+    }
+
+    /**
+     * Exports the applications to internships matching a filter.
+     * @param file the output file
+     * @param filter the internship filter
+     * @param columns the columns to write, or an empty list for every column
+     * @return the number of applications exported
+     * @throws IllegalArgumentException if a column name is unknown
+     */
+    public int exportApplications(File file, Filter filter, List<String> columns) throws IOException {
+        return export(file, select(APPLICATION_COLUMNS, columns),
+                      dataController::forEachApplication,
+                      application -> filter.isEmpty() || matchesInternship(application, filter));
+    }
+
+    /**
+     * Exports the withdrawal requests for applications to internships matching a filter.
+     * @param file the output file
+     * @param filter the internship filter
+     * @param columns the columns to write, or an empty list for every column
+     * @return the number of withdrawal requests exported
+     * @throws IllegalArgumentException if a column name is unknown
+     */
+    public int exportWithdrawalRequests(File file, Filter filter, List<String> columns) throws IOException {
+        return export(file, select(WITHDRAWAL_COLUMNS, columns),
+                      dataController::forEachWithdrawalRequest,
+                      request -> filter.isEmpty()
+                          || matchesInternship(dataController.getApplicationById(request.getApplicationId()), filter));
+    }
+
+    private boolean matchesInternship(Application application, Filter filter) {
+        if (application == null) {
+            return false;
+        }
+        Internship internship = dataController.getInternshipById(application.getInternshipId());
+        return internship != null && filter.matches(internship);
+    }
+
+    private static <T> List<String> namesOf(List<Column<T>> columns) {
+        List<String> names = new ArrayList<>(columns.size());
+        for (Column<T> column : columns) {
+            names.add(column.name);
+        }
+        return names;
+    }
+
+    private static <T> List<Column<T>> select(List<Column<T>> available, List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return available;
+        }
+        List<Column<T>> selected = new ArrayList<>(names.size());
+        for (String name : names) {
+            Column<T> match = null;
+            for (Column<T> column : available) {
+                if (column.name.equalsIgnoreCase(name.trim())) {
+                    match = column;
+                    break;
+                }
+            }
+            if (match == null) {
+                throw new IllegalArgumentException("Unknown column: " + name.trim());
+            }
+            selected.add(match);
+        }
+        return selected;
+    }
+
+    /**
+     * Streams every included record from a source into a file.
+     */
+    private <T> int export(File file, List<Column<T>> columns, Consumer<Consumer<T>> source,
+                           Predicate<T> include) throws IOException {
+        boolean json = file.getName().toLowerCase().endsWith(".json");
+        int[] count = {0};
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            if (json) {
+                out.write("[");
+            } else {
+                writeCsvHeader(out, columns);
+            }
+            try {
+                source.accept(record -> {
+                    if (!include.test(record)) {
+                        return;
+                    }
+                    try {
+                        if (json) {
+                            out.write(count[0] == 0 ? "\n" : ",\n");
+                            writeJsonRecord(out, columns, record);
+                        } else {
+                            writeCsvRecord(out, columns, record);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (json) {
+                out.write("\n]\n");
+            }
+        }
+        return count[0];
+    }
+
+    // CSV
+    private static <T> void writeCsvHeader(Writer out, List<Column<T>> columns) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeCsvField(out, columns.get(i).name);
+        }
+        out.write('\n');
+    }
+
+    private static <T> void writeCsvRecord(Writer out, List<Column<T>> columns, T record) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = columns.get(i).value.apply(record);
+            if (value != null) {
+                writeCsvField(out, value.toString());
+            }
+        }
+        out.write('\n');
+    }
+
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    // JSON
+    private static <T> void writeJsonRecord(Writer out, List<Column<T>> columns, T record) throws IOException {
+        out.write('{');
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            Column<T> column = columns.get(i);
+            writeJsonString(out, column.name);
+            out.write(": ");
+            Object value = column.value.apply(record);
+            if (value == null) {
+                out.write("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.write(value.toString());
+            } else {
+                writeJsonString(out, value.toString());
+            }
+        }
+        out.write('}');
+    }
+
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,118 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage for one type of record, keyed by record ID.
+ * <p>
+ * {@link DataController} keeps each entity type in a repository so that the
+ * storage engine can be swapped: {@link MapRepository} holds every record in
+ * memory, while {@link LsmRepository} keeps records on disk and only holds
+ * the ones in use.
+ * <p>
+ * Ordered reads return records in the repository's ID order: string order
+ * for user IDs, and {@link IdAllocator#ID_ORDER} for the numbered IDs of
+ * internships, applications and withdrawal requests.
+ *
+ * @param <T> the record type
+ */
+public interface Repository<T> {
+
+    /**
+     * Gets a record.
+     * Repeated calls return the same instance for as long as it is in use.
+     * @param id the record ID
+     * @return the record, or null if there is none
+     */
+    T get(String id);
+
+    /**
+     * Inserts or replaces a record.
+     * @param id the record ID
+     * @param record the record
+     */
+    void put(String id, T record);
+
+    /**
+     * Records that a stored record was modified in place through its setters.
+     * @param id the record ID
+     * @param record the modified record
+     */
+    default void update(String id, T record) {
+    }
+
+    /**
+     * Removes a record.
+     * @param id the record ID
+     * @return true, if a record was removed
+     */
+    boolean remove(String id);
+
+    /**
+     * Checks if a record exists.
+     * @param id the record ID
+     * @return true, if the record exists
+     */
+    boolean containsKey(String id);
+
+    /**
+     * Gets the number of records.
+     * @return the record count
+     */
+    int size();
+
+    /**
+     * Gets all records.
+     * @return a new list of the records
+     */
+    List<T> values();
+
+    /**
+     * Passes every record to an action without collecting them into a list.
+     * Records that are not in use may be passed as decoded copies that the
+     * repository does not keep, so the action must not keep or change them.
+     * @param action the action to perform on each record
+     */
+    default void forEach(Consumer<? super T> action) {
+        for (T record : values()) {
+            action.accept(record);
+        }
+    }
+
+    /**
+     * Passes the ID of every record to an action without reading the records.
+     * @param action the action to perform on each ID
+     */
+    void forEachId(Consumer<String> action);
+
+    /**
+     * Gets the records whose IDs fall in a range, in ID order.
+     * @param fromId the first ID to include, or null to start at the lowest ID
+     * @param toId the ID to stop before, or null to continue to the highest ID
+     * @return the records in the range
+     */
+    List<T> scan(String fromId, String toId);
+
+    /**
+     * Gets the records that follow an ID, in ID order.
+     * @param afterId the ID to start after, or null to start at the lowest ID
+     * @param limit the maximum number of records
+     * @return at most limit records
+     */
+    List<T> scanAfter(String afterId, int limit);
+
+    /**
+     * Writes buffered records to stable storage.
+     * Repositories that are persisted by snapshots do nothing here.
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Releases files held by the repository.
+     */
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,173 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.Internship;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Inverted index over internship titles, descriptions and company names,
+ * ranked with BM25.
+ * <p>
+ * Text is split into lower-case runs of letters and digits. Each term maps
+ * to a posting list of the internships containing it and the term's
+ * weighted frequency there: a title occurrence counts three times, a company
+ * name occurrence twice and a description occurrence once. A search only
+ * reads the posting lists of its own terms. Callers are responsible for
+ * synchronization.
+ */
+class SearchIndex {
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int COMPANY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    /** BM25 term frequency saturation. */
+    private static final double K1 = 1.2;
+    /** BM25 document length normalization. */
+    private static final double B = 0.75;
+
+    /**
+     * The indexed terms of one internship.
+     */
+    private static class Document {
+        final Map<String, Integer> frequencies;
+        final int length;
+
+        Document(Map<String, Integer> frequencies, int length) {
+            this.frequencies = frequencies;
+            this.length = length;
+        }
+    }
+
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    private final Map<String, Document> documents = new HashMap<>();
+    private long totalLength;
+
+    /**
+     * Indexes an internship, replacing its previous terms.
+     * @param internship the internship
+     */
+    void update(Internship internship) {
+        String internshipId = internship.getInternshipId();
+        remove(internshipId);
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTerms(frequencies, internship.getTitle(), TITLE_WEIGHT)
+                   + addTerms(frequencies, internship.getCompanyName(), COMPANY_WEIGHT)
+                   + addTerms(frequencies, internship.getDescription(), DESCRIPTION_WEIGHT);
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(internshipId, term.getValue());
+        }
+        documents.put(internshipId, new Document(frequencies, length));
+        totalLength += length;
+    }
+
+    /**
+     * Removes an internship.
+     * @param internshipId the internship ID
+     */
+    void remove(String internshipId) {
+        Document document = documents.remove(internshipId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.frequencies.keySet()) {
+            Map<String, Integer> list = postings.get(term);
+            list.remove(internshipId);
+            if (list.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= document.length;
+    }
+
+    /**
+     * Removes every internship.
+     */
+    void clear() {
+        postings.clear();
+        documents.clear();
+        totalLength = 0;
+    }
+
+    /**
+     * Finds the internships best matching a query.
+     * @param query the search text
+     * @param limit the maximum number of results
+     * @param include the internship IDs that may be returned
+     * @return the matching internship IDs, best match first
+     */
+    List<String> search(String query, int limit, Predicate<String> include) {
+        if (limit <= 0 || documents.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int count = documents.size();
+        double averageLength = Math.max(1.0, (double) totalLength / count);
+        Map<String, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Map<String, Integer> list = postings.get(term);
+            if (list == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (count - list.size() + 0.5) / (list.size() + 0.5));
+            for (Map.Entry<String, Integer> posting : list.entrySet()) {
+                int frequency = posting.getValue();
+                int length = documents.get(posting.getKey()).length;
+                double score = idf * frequency * (K1 + 1)
+                             / (frequency + K1 * (1 - B + B * length / averageLength));
+                scores.merge(posting.getKey(), score, Double::sum);
+            }
+        }
+
+        // Keep the best matches in a min-heap bounded by the limit
+        Comparator<Map.Entry<String, Double>> ranking =
+            Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey(IdAllocator.ID_ORDER.reversed()));
+        PriorityQueue<Map.Entry<String, Double>> best = new PriorityQueue<>(limit + 1, ranking);
+        for (Map.Entry<String, Double> score : scores.entrySet()) {
+            if (!include.test(score.getKey())) {
+                continue;
+            }
+            best.add(score);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<String> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static int addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> terms = tokenize(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    /**
+     * Splits text into lower-case terms made of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,337 @@
+package edu.ntu.ccds.sc2002.control;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes and locates generations of the data snapshot.
+ * <p>
+ * A checkpoint serializes every store in parallel into temporary files,
+ * fsyncs them and renames them to their generation-numbered names. Once every
+ * store is on disk, the caller gets a last chance to make the generation
+ * valid, such as journaling changes made while it was written. Only then
+ * is a manifest for the generation written and atomically moved into place,
+ * so a generation either has a complete, valid manifest or is ignored. The
+ * new generation is read back before it is reported as written, so the
+ * caller never drops data that only an unreadable generation holds.
+ * Loading always picks the newest generation whose manifest and files are
+ * intact. Older generations are deleted, except the one still in use, whose
+ * files may be memory-mapped.
+ */
+class SnapshotStore {
+
+    /**
+     * Writes one store of the snapshot to a file.
+     */
+    interface StoreWriter {
+        void write(File target) throws IOException;
+    }
+
+    /**
+     * Runs once every store of a generation is on disk, before the
+     * generation is published.
+     */
+    interface PublishStep {
+        void run() throws IOException;
+    }
+
+    /**
+     * A published snapshot generation.
+     */
+    static class Generation {
+        private final File dir;
+        private final long number;
+        private final Properties manifest;
+
+        Generation(File dir, long number, Properties manifest) {
+            this.dir = dir;
+            this.number = number;
+            this.manifest = manifest;
+        }
+
+        /**
+         * Gets the generation number.
+         * @return the generation number
+         */
+        long getNumber() {
+            return number;
+        }
+
+        /**
+         * Gets the file holding a store in this generation.
+         * @param store the store name
+         * @return the file, or null if the store is not part of this generation
+         */
+        File file(String store) {
+            String name = manifest.getProperty(store + ".file");
+            return name == null ? null : new File(dir, name);
+        }
+    }
+
+    private static final String MANIFEST_PREFIX = "manifest.";
+    private static final int GENERATIONS_KEPT = 2;
+
+    private final File dir;
+    private ExecutorService executor;
+    private volatile long inUse = -1;
+
+    /**
+     * Constructs a SnapshotStore in the given directory.
+     * @param dir the data directory
+     */
+    SnapshotStore(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Finds the newest generation with a complete manifest and intact files.
+     * @return the generation, or null if none has been published
+     */
+    Generation findLatest() {
+        List<Long> numbers = listGenerations();
+        for (int i = 0; i < numbers.size(); i++) {
+            Generation generation = readManifest(numbers.get(i));
+            if (generation != null) {
+                if (i > 0) {
+                    System.out.println("Warning: Snapshot generation " + numbers.get(0)
+                                       + " is damaged; loading generation " + generation.getNumber() + ".");
+                }
+                return generation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number the next generation written will have.
+     * @return the generation number
+     */
+    long nextGeneration() {
+        List<Long> existing = listGenerations();
+        return existing.isEmpty() ? 1 : existing.get(0) + 1;
+    }
+
+    /**
+     * Marks the generation whose files are still in use, such as a
+     * memory-mapped internship snapshot. It is kept when older generations
+     * are deleted, until another generation is marked in its place.
+     * @param generation the generation in use, or null if none is
+     */
+    void setInUse(Generation generation) {
+        inUse = generation == null ? -1 : generation.getNumber();
+    }
+
+    /**
+     * Writes all stores in parallel and publishes them as a new generation.
+     * If any store or the publish step fails, nothing is published and the
+     * previous generation stays current. The published generation is read
+     * back, and an exception is thrown if it cannot be loaded.
+     * @param writers the writer for each store, keyed by store name
+     * @param beforePublish the step to run once every store is on disk
+     * @return the published generation
+     */
+    Generation write(Map<String, StoreWriter> writers, PublishStep beforePublish) throws IOException {
+        dir.mkdirs();
+        long number = nextGeneration();
+
+        Map<String, File> temps = new LinkedHashMap<>();
+        Map<String, Future<?>> tasks = new LinkedHashMap<>();
+        for (Map.Entry<String, StoreWriter> entry : writers.entrySet()) {
+            File temp = new File(dir, fileName(entry.getKey(), number) + ".tmp");
+            StoreWriter writer = entry.getValue();
+            temps.put(entry.getKey(), temp);
+            tasks.put(entry.getKey(), executor().submit(() -> {
+                writer.write(temp);
+                fsync(temp.toPath());
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> task : tasks.values()) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deleteAll(temps.values());
+            throw new InterruptedIOException("Snapshot interrupted");
+        } catch (ExecutionException e) {
+            for (Future<?> task : tasks.values()) {
+                try {
+                    task.get();
+                } catch (Exception ignored) {
+                    // Wait for every writer before cleaning up
+                }
+            }
+            deleteAll(temps.values());
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+
+        try {
+            beforePublish.run();
+        } catch (IOException | RuntimeException e) {
+            deleteAll(temps.values());
+            throw e;
+        }
+
+        Properties manifest = new Properties();
+        manifest.setProperty("generation", Long.toString(number));
+        for (Map.Entry<String, File> entry : temps.entrySet()) {
+            String store = entry.getKey();
+            File target = new File(dir, fileName(store, number));
+            Files.move(entry.getValue().toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            manifest.setProperty(store + ".file", target.getName());
+            manifest.setProperty(store + ".size", Long.toString(target.length()));
+        }
+        fsyncDirectory();
+
+        File manifestTemp = new File(dir, MANIFEST_PREFIX + number + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(manifestTemp)) {
+            manifest.store(out, "Snapshot generation " + number);
+            out.getFD().sync();
+        }
+        Files.move(manifestTemp.toPath(), new File(dir, MANIFEST_PREFIX + number).toPath(),
+                   StandardCopyOption.ATOMIC_MOVE);
+        fsyncDirectory();
+
+        Generation published = readManifest(number);
+        if (published == null) {
+            throw new IOException("Snapshot generation " + number + " could not be read back");
+        }
+        deleteOldGenerations(number);
+        return published;
+    }
+
+    private Generation readManifest(long number) {
+        Properties manifest = new Properties();
+        try (FileInputStream in = new FileInputStream(new File(dir, MANIFEST_PREFIX + number))) {
+            manifest.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+
+        for (String key : manifest.stringPropertyNames()) {
+            if (!key.endsWith(".file")) {
+                continue;
+            }
+            String store = key.substring(0, key.length() - ".file".length());
+            File file = new File(dir, manifest.getProperty(key));
+            String size = manifest.getProperty(store + ".size");
+            if (!file.isFile() || size == null || file.length() != Long.parseLong(size)) {
+                return null;
+            }
+        }
+        return new Generation(dir, number, manifest);
+    }
+
+    /**
+     * Lists the generation numbers that have a manifest, newest first.
+     */
+    private List<Long> listGenerations() {
+        List<Long> numbers = new ArrayList<>();
+        String[] names = dir.list();
+        if (names == null) {
+            return numbers;
+        }
+        for (String name : names) {
+            if (name.startsWith(MANIFEST_PREFIX) && !name.endsWith(".tmp")) {
+                try {
+                    numbers.add(Long.parseLong(name.substring(MANIFEST_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a manifest
+                }
+            }
+        }
+        numbers.sort(Collections.reverseOrder());
+        return numbers;
+    }
+
+    /**
+     * Deletes generations older than the ones kept, along with leftover
+     * temporary files. The generation in use is skipped; once another takes
+     * its place, a later checkpoint deletes it.
+     */
+    private void deleteOldGenerations(long current) {
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        long kept = inUse;
+        for (String name : names) {
+            long generation = generationOf(name);
+            if (generation == kept && !name.endsWith(".tmp")) {
+                continue;
+            }
+            if (name.endsWith(".tmp") && generation != current
+                    || generation >= 0 && generation <= current - GENERATIONS_KEPT) {
+                new File(dir, name).delete();
+            }
+        }
+    }
+
+    /**
+     * Extracts the generation number from a snapshot or manifest file name.
+     * @return the generation, or -1 if the name is not part of a generation
+     */
+    private static long generationOf(String name) {
+        String base = name;
+        while (base.endsWith(".tmp")) {
+            base = base.substring(0, base.length() - 4);
+        }
+        if (base.startsWith(MANIFEST_PREFIX)) {
+            base = base.substring(MANIFEST_PREFIX.length());
+        } else if (base.endsWith(".dat") && base.indexOf('.') < base.length() - 4) {
+            base = base.substring(base.indexOf('.') + 1, base.length() - 4);
+        } else {
+            return -1;
+        }
+        try {
+            return Long.parseLong(base);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String fileName(String store, long number) {
+        return store + "." + number + ".dat";
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(4, r -> {
+                Thread thread = new Thread(r, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static void fsync(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Forces directory entries to disk so renames survive a crash.
+     * Not every platform allows opening a directory; there the rename is left to the OS.
+     */
+    private void fsyncDirectory() {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory sync is not supported on this platform
+        }
+    }
+
+    private static void deleteAll(Collection<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+}
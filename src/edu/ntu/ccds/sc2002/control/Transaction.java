@@ -0,0 +1,197 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A unit of work that changes several records together.
+ * <p>
+ * Transactions are run by {@link DataController#inTransaction}. Changes are
+ * made through the transaction, which records how to undo each one. If the
+ * work fails, or calls {@link #rollback()}, the changes made so far are
+ * undone in reverse order. Readers using {@link DataController#readSnapshot}
+ * see either none or all of a transaction's changes, and the journal
+ * records them together.
+ * <p>
+ * Transactions do not lock each other out. Changes that must not race with
+ * other transactions rely on the records' own atomic operations, such as
+ * {@link #confirmStudent} taking a slot with a compare-and-set.
+ */
+public class Transaction {
+
+    private final Deque<Runnable> undoLog = new ArrayDeque<>();
+
+    Transaction() {
+    }
+
+    /**
+     * Sets the status of an application.
+     * @param application the application
+     * @param status the new status
+     */
+    public void setStatus(Application application, ApplicationStatus status) {
+        ApplicationStatus oldStatus = application.getStatus();
+        application.setStatus(status);
+        undoLog.push(() -> application.setStatus(oldStatus));
+    }
+
+    /**
+     * Sets the status of a withdrawal request.
+     * @param request the withdrawal request
+     * @param status the new status
+     */
+    public void setStatus(WithdrawalRequest request, WithdrawalStatus status) {
+        WithdrawalStatus oldStatus = request.getStatus();
+        request.setStatus(status);
+        undoLog.push(() -> request.setStatus(oldStatus));
+    }
+
+    /**
+     * Changes the status of a withdrawal request, unless it no longer has
+     * the expected status.
+     * @param request the withdrawal request
+     * @param expected the status the request must have
+     * @param status the new status
+     * @return true, if the status was changed
+     */
+    public boolean changeStatus(WithdrawalRequest request, WithdrawalStatus expected, WithdrawalStatus status) {
+        if (!request.changeStatus(expected, status)) {
+            return false;
+        }
+        undoLog.push(() -> request.setStatus(expected));
+        return true;
+    }
+
+    /**
+     * Marks whether an application's placement is confirmed.
+     * @param application the application
+     * @param confirmed true, if the placement is confirmed
+     */
+    public void setPlacementConfirmed(Application application, boolean confirmed) {
+        boolean oldConfirmed = application.isPlacementConfirmed();
+        application.setPlacementConfirmed(confirmed);
+        undoLog.push(() -> application.setPlacementConfirmed(oldConfirmed));
+    }
+
+    /**
+     * Confirms a student for an internship, taking one of its slots.
+     * @param internship the internship
+     * @param studentId the student ID
+     * @return true, if a slot was taken
+     */
+    public boolean confirmStudent(Internship internship, String studentId) {
+        if (!internship.confirmStudent(studentId)) {
+            return false;
+        }
+        undoLog.push(() -> internship.removeConfirmedStudent(studentId));
+        return true;
+    }
+
+    /**
+     * Removes a confirmed student from an internship, freeing a slot.
+     * Undoing this takes a slot again whatever the internship's status is
+     * by then, which only fails if another student has taken the freed slot
+     * in the meantime.
+     * @param internship the internship
+     * @param studentId the student ID
+     * @return true, if the student was confirmed
+     */
+    public boolean removeConfirmedStudent(Internship internship, String studentId) {
+        if (!internship.removeConfirmedStudent(studentId)) {
+            return false;
+        }
+        undoLog.push(() -> internship.restoreConfirmedStudent(studentId));
+        return true;
+    }
+
+    /**
+     * Confirms an internship for a student, unless one is already confirmed.
+     * @param student the student
+     * @param internshipId the internship ID
+     * @return true, if the internship was confirmed
+     */
+    public boolean confirmInternship(Student student, String internshipId) {
+        if (!student.confirmInternship(internshipId)) {
+            return false;
+        }
+        undoLog.push(() -> student.setConfirmedInternshipId(null));
+        return true;
+    }
+
+    /**
+     * Clears a student's confirmed internship.
+     * @param student the student
+     */
+    public void clearConfirmedInternship(Student student) {
+        String oldInternshipId = student.getConfirmedInternshipId();
+        student.setConfirmedInternshipId(null);
+        undoLog.push(() -> student.setConfirmedInternshipId(oldInternshipId));
+    }
+
+    /**
+     * Adds an application to a student, within the student's application limit.
+     * @param student the student
+     * @param applicationId the application ID
+     * @return true, if the application was added
+     */
+    public boolean addApplication(Student student, String applicationId) {
+        if (!student.addApplication(applicationId)) {
+            return false;
+        }
+        undoLog.push(() -> student.removeApplication(applicationId));
+        return true;
+    }
+
+    /**
+     * Adds applications to a student in order, until the student's
+     * application limit is reached.
+     * @param student the student
+     * @param applicationIds the new application IDs
+     * @return the number of applications added, from the start of the list
+     */
+    public int addApplications(Student student, List<String> applicationIds) {
+        int added = student.addApplications(applicationIds);
+        if (added > 0) {
+            List<String> reserved = new ArrayList<>(applicationIds.subList(0, added));
+            undoLog.push(() -> reserved.forEach(student::removeApplication));
+        }
+        return added;
+    }
+
+    /**
+     * Removes an application from a student.
+     * Undoing this puts the application back even if the student has since
+     * reached the application limit.
+     * @param student the student
+     * @param applicationId the application ID
+     * @return true, if the student had the application
+     */
+    public boolean removeApplication(Student student, String applicationId) {
+        if (!student.removeApplication(applicationId)) {
+            return false;
+        }
+        undoLog.push(() -> student.restoreApplication(applicationId));
+        return true;
+    }
+
+    /**
+     * Runs an undo action for a change made outside the methods above.
+     * @param undo the action that reverses the change
+     */
+    public void onRollback(Runnable undo) {
+        undoLog.push(undo);
+    }
+
+    /**
+     * Undoes every change made so far, most recent first.
+     * The transaction may go on to make new changes.
+     */
+    public void rollback() {
+        while (!undoLog.isEmpty()) {
+            undoLog.pop().run();
+        }
+    }
+}
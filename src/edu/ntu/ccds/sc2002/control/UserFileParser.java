@@ -0,0 +1,362 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parses pipe-delimited user files such as users.txt.
+ * <p>
+ * The file is memory-mapped one bounded window at a time. Each window ends at
+ * a line boundary and is split into chunks that are parsed in parallel.
+ * Fields are scanned directly in the mapped bytes, so only the strings stored
+ * in the resulting users are allocated.
+ * <p>
+ * Rows are accepted exactly as the original line-splitting loader accepted
+ * them: trailing empty fields are ignored, the year of study may be any
+ * integer, and a later row with the same user ID replaces an earlier one.
+ * Rows that were skipped silently before, and rows with a non-numeric year
+ * that used to abort the whole load, are now collected with their line
+ * numbers instead.
+ * <p>
+ * Line format: {@code userId|name|password|type|...} where type is one of
+ * {@code STUDENT|year|major}, {@code COMPANY_REP|company|department|position}
+ * or {@code CAREER_STAFF|department}.
+ */
+class UserFileParser {
+
+    /**
+     * Files smaller than this are parsed on the calling thread.
+     */
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    /**
+     * Size of the part of the file that is mapped at a time.
+     */
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_FIELDS = 7;
+
+    private static final byte[] STUDENT = ascii("STUDENT");
+    private static final byte[] COMPANY_REP = ascii("COMPANY_REP");
+    private static final byte[] CAREER_STAFF = ascii("CAREER_STAFF");
+
+    /**
+     * Outcome of parsing a user file.
+     */
+    static class Result {
+        private final List<User> users;
+        private final List<String> rejected;
+
+        Result(List<User> users, List<String> rejected) {
+            this.users = users;
+            this.rejected = rejected;
+        }
+
+        /**
+         * Gets the parsed users, in file order.
+         * @return the users
+         */
+        List<User> getUsers() {
+            return users;
+        }
+
+        /**
+         * Gets a description of every rejected row, prefixed with its line number.
+         * @return the rejected rows
+         */
+        List<String> getRejected() {
+            return rejected;
+        }
+    }
+
+    /**
+     * Parses the given user file.
+     * @param file the file to parse
+     * @return the parsed users and rejected rows
+     */
+    static Result parse(File file) throws IOException {
+        Merger merger = new Merger();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            int window = WINDOW_SIZE;
+            while (position < size) {
+                boolean last = size - position <= window;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                                      last ? size - position : window);
+                int end = last ? buffer.limit() : lastLineEnd(buffer);
+                if (end == 0) {
+                    // A single line longer than the window
+                    if (window == Integer.MAX_VALUE) {
+                        throw new IOException("Line too long in " + file);
+                    }
+                    window = (int) Math.min(Integer.MAX_VALUE, 2L * window);
+                    continue;
+                }
+
+                int[] bounds = chunkBounds(buffer, end);
+                List<Chunk> chunks = IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .mapToObj(i -> new Chunk(buffer, bounds[i], bounds[i + 1]).parse())
+                    .collect(Collectors.toList());
+                for (Chunk chunk : chunks) {
+                    merger.add(chunk);
+                }
+                position += end;
+            }
+        }
+        return merger.result();
+    }
+
+    /**
+     * Gets the position just past the last newline in the buffer.
+     * @return the position, or 0 if the buffer holds no newline
+     */
+    private static int lastLineEnd(MappedByteBuffer buffer) {
+        for (int position = buffer.limit(); position > 0; position--) {
+            if (buffer.get(position - 1) == '\n') {
+                return position;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Splits the first {@code size} bytes of the buffer into roughly equal
+     * chunks that each end after a newline.
+     */
+    private static int[] chunkBounds(MappedByteBuffer buffer, int size) {
+        int count = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), size / MIN_CHUNK_SIZE));
+        int[] bounds = new int[count + 1];
+        int previous = 0;
+        for (int i = 1; i < count; i++) {
+            int position = Math.max(previous, (int) ((long) size * i / count));
+            while (position < size && buffer.get(position) != '\n') {
+                position++;
+            }
+            previous = Math.min(size, position + 1);
+            bounds[i] = previous;
+        }
+        bounds[count] = size;
+        return bounds;
+    }
+
+    /**
+     * Combines parsed chunks in file order, turning chunk-relative line
+     * numbers into file line numbers.
+     */
+    private static class Merger {
+        private final Map<String, User> users = new LinkedHashMap<>();
+        private final Map<String, Integer> userLines = new HashMap<>();
+        private final List<String> rejected = new ArrayList<>();
+        private int firstLine = 1;
+
+        void add(Chunk chunk) {
+            int r = 0;
+            for (int i = 0; i < chunk.users.size(); i++) {
+                int line = chunk.userLines.get(i);
+                for (; r < chunk.rejected.size() && chunk.rejectedLines.get(r) < line; r++) {
+                    rejected.add("line " + (firstLine + chunk.rejectedLines.get(r)) + ": " + chunk.rejected.get(r));
+                }
+                User user = chunk.users.get(i);
+                Integer replaced = userLines.put(user.getUserId(), firstLine + line);
+                if (replaced != null) {
+                    users.remove(user.getUserId());
+                    rejected.add("line " + replaced + ": user ID " + user.getUserId()
+                                 + " is redefined on line " + (firstLine + line));
+                }
+                users.put(user.getUserId(), user);
+            }
+            for (; r < chunk.rejected.size(); r++) {
+                rejected.add("line " + (firstLine + chunk.rejectedLines.get(r)) + ": " + chunk.rejected.get(r));
+            }
+            firstLine += chunk.lineCount;
+        }
+
+        Result result() {
+            return new Result(new ArrayList<>(users.values()), rejected);
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A range of lines parsed by one worker. Line numbers are relative to the
+     * start of the chunk until the chunks are merged.
+     */
+    private static class Chunk {
+        private final MappedByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        private final List<User> users = new ArrayList<>();
+        private final List<Integer> userLines = new ArrayList<>();
+        private final List<String> rejected = new ArrayList<>();
+        private final List<Integer> rejectedLines = new ArrayList<>();
+        private int lineCount;
+
+        private final int[] fieldStart = new int[MAX_FIELDS];
+        private final int[] fieldEnd = new int[MAX_FIELDS];
+        private byte[] scratch = new byte[64];
+
+        Chunk(MappedByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        Chunk parse() {
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = lineStart;
+                while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                parseLine(lineStart, lineEnd, lineCount);
+                lineCount++;
+                lineStart = lineEnd + 1;
+            }
+            return this;
+        }
+
+        private void parseLine(int from, int to, int line) {
+            if (to > from && buffer.get(to - 1) == '\r') {
+                to--;
+            }
+            if (from == to) {
+                return;
+            }
+            // Trailing empty fields are not counted, as with String.split
+            int fields = 0;
+            int counted = 0;
+            int fieldFrom = from;
+            for (int i = from; i <= to; i++) {
+                if (i == to || buffer.get(i) == '|') {
+                    if (fields < MAX_FIELDS) {
+                        trim(fields, fieldFrom, i);
+                    }
+                    fields++;
+                    if (i > fieldFrom) {
+                        counted = fields;
+                    }
+                    fieldFrom = i + 1;
+                }
+            }
+            fields = counted;
+
+            if (fields == 1 && fieldStart[0] == fieldEnd[0]) {
+                return;
+            }
+            if (fields < 4) {
+                reject(line, "expected at least 4 fields but found " + fields);
+                return;
+            }
+
+            if (fieldEquals(3, STUDENT)) {
+                if (fields < 6) {
+                    reject(line, "student rows need year of study and major");
+                    return;
+                }
+                int year = parseInt(4);
+                if (year < 0) {
+                    try {
+                        year = Integer.parseInt(string(4));
+                    } catch (NumberFormatException e) {
+                        reject(line, "invalid year of study '" + string(4) + "'");
+                        return;
+                    }
+                }
+                accept(line, new Student(string(0), string(1), string(2), year, string(5)));
+            } else if (fieldEquals(3, COMPANY_REP)) {
+                if (fields < 7) {
+                    reject(line, "company representative rows need company, department and position");
+                    return;
+                }
+                accept(line, new CompanyRepresentative(string(0), string(1), string(2),
+                                                       string(4), string(5), string(6)));
+            } else if (fieldEquals(3, CAREER_STAFF)) {
+                if (fields < 5) {
+                    reject(line, "career staff rows need a department");
+                    return;
+                }
+                accept(line, new CareerCenterStaff(string(0), string(1), string(2), string(4)));
+            } else {
+                reject(line, "unknown user type '" + string(3) + "'");
+            }
+        }
+
+        private void trim(int field, int from, int to) {
+            while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+                from++;
+            }
+            while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+                to--;
+            }
+            fieldStart[field] = from;
+            fieldEnd[field] = to;
+        }
+
+        private boolean fieldEquals(int field, byte[] expected) {
+            int from = fieldStart[field];
+            if (fieldEnd[field] - from != expected.length) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (buffer.get(from + i) != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Parses a field made up of decimal digits only.
+         * @return the value, or -1 if the field has any other form
+         */
+        private int parseInt(int field) {
+            int from = fieldStart[field];
+            int to = fieldEnd[field];
+            if (from == to || to - from > 9) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private String string(int field) {
+            int from = fieldStart[field];
+            int length = fieldEnd[field] - from;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                scratch[i] = buffer.get(from + i);
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void accept(int line, User user) {
+            users.add(user);
+            userLines.add(line);
+        }
+
+        private void reject(int line, String reason) {
+            rejected.add(reason);
+            rejectedLines.add(line);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package edu.ntu.ccds.sc2002.control;
+
+import edu.ntu.ccds.sc2002.entity.*;
+import java.util.*;
+
+/**
+ * Query over withdrawal requests.
+ * Status conditions are answered from the controller's index when that is
+ * the cheapest plan.
+ */
+public class WithdrawalQuery extends Query<WithdrawalRequest, WithdrawalQuery> {
+
+    /** Orders withdrawal requests by request date, oldest first. */
+    public static final Comparator<WithdrawalRequest> BY_DATE =
+        Comparator.comparing(WithdrawalRequest::getRequestDate).thenComparing(WithdrawalRequest::getRequestId, IdAllocator.ID_ORDER);
+
+    WithdrawalQuery(DataController dataController) {
+        super(dataController);
+    }
+
+    @Override
+    Repository<WithdrawalRequest> repository() {
+        return dataController.withdrawalRepository();
+    }
+
+    @Override
+    String idOf(WithdrawalRequest record) {
+        return record.getRequestId();
+    }
+
+    @Override
+    WithdrawalQuery self() {
+        return this;
+    }
+
+    /**
+     * Matches withdrawal requests with a status.
+     * @param status the status
+     * @return this query
+     */
+    public WithdrawalQuery status(WithdrawalStatus status) {
+        String description = "status = " + status;
+        return where(description, r -> r.getStatus() == status, () -> {
+            Set<String> ids = dataController.withdrawalsByStatus.get(status);
+            return new Access(description, ids.size(), () -> ids);
+        });
+    }
+
+    /**
+     * Matches withdrawal requests by a student.
+     * @param studentId the student ID
+     * @return this query
+     */
+    public WithdrawalQuery student(String studentId) {
+        return where("student = " + studentId, r -> r.getStudentId().equals(studentId));
+    }
+
+    /**
+     * Matches withdrawal requests for applications that match another query.
+     * @param applications the application query
+     * @return this query
+     */
+    public WithdrawalQuery applications(ApplicationQuery applications) {
+        return where("application matches (" + applications.explain() + ")", r -> {
+            Application application = dataController.getApplicationById(r.getApplicationId());
+            return application != null && applications.matches(application);
+        });
+    }
+}
@@ -13,9 +13,9 @@ public class Application implements Serializable {
     private String applicationId;
     private String studentId;
     private String internshipId;
-    private ApplicationStatus status;
+    private volatile ApplicationStatus status;
     private LocalDateTime applicationDate;
-    private boolean placementConfirmed;
+    private volatile boolean placementConfirmed;
     
     /**
      * Constructs an Application with specified details.
@@ -29,6 +29,19 @@ public class Application implements Serializable {
         this.placementConfirmed = false;
     }
     
+    /**
+     * Constructs an Application restored from persistent storage.
+     */
+    public Application(String applicationId, String studentId, String internshipId,
+                       ApplicationStatus status, LocalDateTime applicationDate, boolean placementConfirmed) {
+        this.applicationId = applicationId;
+        this.studentId = studentId;
+        this.internshipId = internshipId;
+        this.status = status;
+        this.applicationDate = applicationDate;
+        this.placementConfirmed = placementConfirmed;
+    }
+    
     // Getters
     /**
      * Gets the application id.
@@ -66,12 +79,20 @@ public class Application implements Serializable {
      * Sets the status.
      * @param status the new status
      */
-    public void setStatus(ApplicationStatus status) { this.status = status; }
+    public void setStatus(ApplicationStatus status) {
+        ApplicationStatus oldStatus = this.status;
+        this.status = status;
+        EntityEvents.fire(this, "status", oldStatus, status);
+    }
     /**
      * Sets the placement confirmed.
      * @param confirmed the new placement confirmed
      */
-    public void setPlacementConfirmed(boolean confirmed) { this.placementConfirmed = confirmed; }
+    public void setPlacementConfirmed(boolean confirmed) {
+        boolean oldConfirmed = this.placementConfirmed;
+        this.placementConfirmed = confirmed;
+        EntityEvents.fire(this, "placementConfirmed", oldConfirmed, confirmed);
+    }
     
     @Override
     public String toString() {
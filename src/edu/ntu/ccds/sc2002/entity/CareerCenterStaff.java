@@ -1,5 +1,7 @@
 package edu.ntu.ccds.sc2002.entity;
 
+import java.io.PrintStream;
+
 /**
  * Represents a career center staff user in the system.
  * Extends User class demonstrating inheritance.
@@ -7,7 +9,7 @@ package edu.ntu.ccds.sc2002.entity;
 public class CareerCenterStaff extends User {
     private static final long serialVersionUID = 1L;
     
-    private String staffDepartment;
+    private volatile String staffDepartment;
     
     /**
      * Constructs a CareerCenterStaff with specified details.
@@ -30,20 +32,24 @@ public class CareerCenterStaff extends User {
      * @param staffDepartment the new staff department
      */
     public void setStaffDepartment(String staffDepartment) {
+        String oldDepartment = this.staffDepartment;
         this.staffDepartment = staffDepartment;
+        EntityEvents.fire(this, "staffDepartment", oldDepartment, staffDepartment);
     }
     
     @Override
-    public void displayMenu() {
-        System.out.println("\n=== Career Center Staff Menu ===");
-        System.out.println("1. Authorize Company Representatives");
-        System.out.println("2. Approve/Reject Internship Opportunities");
-        System.out.println("3. Process Withdrawal Requests");
-        System.out.println("4. Generate Statistical Report");
-        System.out.println("5. Generate Reports");
-        System.out.println("6. View All Internships");
-        System.out.println("7. Change Password");
-        System.out.println("8. Logout");
+    public void displayMenu(PrintStream out) {
+        out.println("\n=== Career Center Staff Menu ===");
+        out.println("1. Authorize Company Representatives");
+        out.println("2. Approve/Reject Internship Opportunities");
+        out.println("3. Process Withdrawal Requests");
+        out.println("4. Generate Statistical Report");
+        out.println("5. Generate Reports");
+        out.println("6. View All Internships");
+        out.println("7. Change Password");
+        out.println("8. Bulk Import from File");
+        out.println("9. Archive Closed Internships");
+        out.println("10. Logout");
     }
     
     @Override
@@ -1,7 +1,10 @@
 package edu.ntu.ccds.sc2002.entity;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Collections;
 
 /**
  * Represents a company representative user in the system.
@@ -10,11 +13,13 @@ import java.util.List;
 public class CompanyRepresentative extends User {
     private static final long serialVersionUID = 1L;
     
-    private String companyName;
-    private String department;
-    private String position;
-    private boolean isApproved;
-    private List<String> internshipIds;
+    private volatile String companyName;
+    private volatile String department;
+    private volatile String position;
+    private volatile boolean isApproved;
+    // An insertion-ordered ID set, declared as a collection so that the list
+    // serialized by earlier versions can still be read
+    private Collection<String> internshipIds;
     
     /**
      * Constructs a CompanyRepresentative with specified details.
@@ -26,7 +31,7 @@ public class CompanyRepresentative extends User {
         this.department = department;
         this.position = position;
         this.isApproved = false;
-        this.internshipIds = new ArrayList<>();
+        this.internshipIds = new IdSet();
     }
     
     /**
@@ -42,7 +47,9 @@ public class CompanyRepresentative extends User {
      * @param companyName the new company name
      */
     public void setCompanyName(String companyName) {
+        String oldCompanyName = this.companyName;
         this.companyName = companyName;
+        EntityEvents.fire(this, "companyName", oldCompanyName, companyName);
     }
     
     /**
@@ -58,7 +65,9 @@ public class CompanyRepresentative extends User {
      * @param department the new department
      */
     public void setDepartment(String department) {
+        String oldDepartment = this.department;
         this.department = department;
+        EntityEvents.fire(this, "department", oldDepartment, department);
     }
     
     /**
@@ -74,7 +83,9 @@ public class CompanyRepresentative extends User {
      * @param position the new position
      */
     public void setPosition(String position) {
+        String oldPosition = this.position;
         this.position = position;
+        EntityEvents.fire(this, "position", oldPosition, position);
     }
     
     /**
@@ -90,15 +101,17 @@ public class CompanyRepresentative extends User {
      * @param approved the new approved
      */
     public void setApproved(boolean approved) {
+        boolean oldApproved = this.isApproved;
         this.isApproved = approved;
+        EntityEvents.fire(this, "approved", oldApproved, approved);
     }
     
     /**
-     * Gets the list of internship IDs created by this representative.
-     * @return the internship ids
+     * Gets the internship IDs created by this representative, in the order they were added.
+     * @return a read-only view of the internship ids
      */
-    public List<String> getInternshipIds() {
-        return new ArrayList<>(internshipIds);
+    public Collection<String> getInternshipIds() {
+        return Collections.unmodifiableCollection(internshipIds);
     }
     
     /**
@@ -107,14 +120,30 @@ public class CompanyRepresentative extends User {
      * @return true, if successful
      */
     public boolean addInternship(String internshipId) {
-        if (internshipIds.size() >= 5) {
-            return false;
+        synchronized (this) {
+            if (internshipIds.size() >= 5 || !internshipIds.add(internshipId)) {
+                return false;
+            }
         }
-        if (!internshipIds.contains(internshipId)) {
-            internshipIds.add(internshipId);
-            return true;
+        EntityEvents.fire(this, "internshipIds", null, internshipId);
+        return true;
+    }
+    
+    /**
+     * Puts back an internship ID that was removed, without checking the
+     * internship limit, since another internship may have taken its place
+     * in the meantime. Used to undo a removal and to decode a stored
+     * representative.
+     * @param internshipId the internship id
+     */
+    public void restoreInternship(String internshipId) {
+        boolean added;
+        synchronized (this) {
+            added = internshipIds.add(internshipId);
+        }
+        if (added) {
+            EntityEvents.fire(this, "internshipIds", null, internshipId);
         }
-        return false;
     }
     
     /**
@@ -123,7 +152,11 @@ public class CompanyRepresentative extends User {
      * @return true, if successful
      */
     public boolean removeInternship(String internshipId) {
-        return internshipIds.remove(internshipId);
+        if (internshipIds.remove(internshipId)) {
+            EntityEvents.fire(this, "internshipIds", internshipId, null);
+            return true;
+        }
+        return false;
     }
     
     /**
@@ -133,18 +166,23 @@ public class CompanyRepresentative extends User {
         return internshipIds.size() >= 5;
     }
     
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        internshipIds = new IdSet(internshipIds);
+    }
+    
     @Override
-    public void displayMenu() {
-        System.out.println("\n=== Company Representative Menu ===");
-        System.out.println("1. Create Internship Opportunity");
-        System.out.println("2. View My Internship Opportunities");
-        System.out.println("3. Edit Internship Opportunity");
-        System.out.println("4. Delete Internship Opportunity");
-        System.out.println("5. View Applications");
-        System.out.println("6. Process Application (Approve/Reject)");
-        System.out.println("7. Toggle Internship Visibility");
-        System.out.println("8. Change Password");
-        System.out.println("9. Logout");
+    public void displayMenu(PrintStream out) {
+        out.println("\n=== Company Representative Menu ===");
+        out.println("1. Create Internship Opportunity");
+        out.println("2. View My Internship Opportunities");
+        out.println("3. Edit Internship Opportunity");
+        out.println("4. Delete Internship Opportunity");
+        out.println("5. View Applications");
+        out.println("6. Process Application (Approve/Reject)");
+        out.println("7. Toggle Internship Visibility");
+        out.println("8. Change Password");
+        out.println("9. Logout");
     }
     
     @Override
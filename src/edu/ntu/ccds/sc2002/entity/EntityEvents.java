@@ -0,0 +1,66 @@
+package edu.ntu.ccds.sc2002.entity;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Central registry of entity listeners.
+ * Entities publish their changes here so that registered listeners
+ * (such as the data controller) can react to them.
+ */
+public final class EntityEvents {
+    
+    private static final List<EntityListener> listeners = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<int[]> suspended = ThreadLocal.withInitial(() -> new int[1]);
+    
+    private EntityEvents() {
+    }
+    
+    /**
+     * Registers a listener for entity changes.
+     * @param listener the listener
+     */
+    public static void addListener(EntityListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Unregisters a listener for entity changes.
+     * @param listener the listener
+     */
+    public static void removeListener(EntityListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Suspends notifications on the current thread, for example while
+     * entities are being restored from storage. Calls may be nested and
+     * must be paired with {@link #resume()}.
+     */
+    public static void suspend() {
+        suspended.get()[0]++;
+    }
+    
+    /**
+     * Resumes notifications on the current thread.
+     */
+    public static void resume() {
+        suspended.get()[0]--;
+    }
+    
+    /**
+     * Notifies all registered listeners of a change.
+     * @param entity the entity that changed
+     * @param property the name of the changed property
+     * @param oldValue the previous value
+     * @param newValue the new value
+     */
+    static void fire(Object entity, String property, Object oldValue, Object newValue) {
+        if (suspended.get()[0] > 0) {
+            return;
+        }
+        for (EntityListener listener : listeners) {
+            listener.entityChanged(entity, property, oldValue, newValue);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package edu.ntu.ccds.sc2002.entity;
+
+/**
+ * Listener notified whenever an entity's state is modified.
+ * Lets the control layer observe entity changes without the entities
+ * depending on any controller.
+ */
+public interface EntityListener {
+    
+    /**
+     * Called after a property of an entity has changed.
+     * @param entity the entity that changed
+     * @param property the name of the changed property
+     * @param oldValue the previous value, or null if not applicable
+     * @param newValue the new value, or null if not applicable
+     */
+    void entityChanged(Object entity, String property, Object oldValue, Object newValue);
+}
@@ -0,0 +1,89 @@
+package edu.ntu.ccds.sc2002.entity;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Insertion-ordered set of IDs that is safe for concurrent use.
+ * <p>
+ * Changes and lookups are made under the set's lock. Iteration works on an
+ * immutable snapshot of the set, which is only copied again after the set
+ * has changed, so repeated reads of an unchanged set do not copy it and
+ * never see a change half made.
+ */
+class IdSet extends AbstractCollection<String> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final LinkedHashSet<String> ids;
+    private transient volatile List<String> snapshot;
+
+    /**
+     * Constructs an empty IdSet.
+     */
+    IdSet() {
+        this.ids = new LinkedHashSet<>();
+    }
+
+    /**
+     * Constructs an IdSet holding the given IDs, in their iteration order.
+     * @param ids the IDs
+     */
+    IdSet(Collection<String> ids) {
+        this.ids = new LinkedHashSet<>(ids);
+    }
+
+    @Override
+    public synchronized boolean add(String id) {
+        if (!ids.add(id)) {
+            return false;
+        }
+        snapshot = null;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(Object id) {
+        if (!ids.remove(id)) {
+            return false;
+        }
+        snapshot = null;
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        ids.clear();
+        snapshot = null;
+    }
+
+    @Override
+    public synchronized boolean contains(Object id) {
+        return ids.contains(id);
+    }
+
+    @Override
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        List<String> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = Collections.unmodifiableList(new ArrayList<>(ids));
+                    snapshot = current;
+                }
+            }
+        }
+        return current.iterator();
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+}
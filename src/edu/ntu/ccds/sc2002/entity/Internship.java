@@ -1,32 +1,56 @@
 package edu.ntu.ccds.sc2002.entity;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Represents an internship opportunity in the system.
  * Implements Serializable for data persistence.
+ * <p>
+ * Internships are safe for concurrent use without locking. The status and
+ * the number of available slots are packed into one int that is changed
+ * with compare-and-set, so a slot is taken and the status becomes FILLED in
+ * one step, and the slots can never be oversubscribed. Change events are
+ * fired after the change is made, so a listener may take its own locks
+ * without risking a deadlock.
  */
 public class Internship implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    private static final AtomicIntegerFieldUpdater<Internship> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Internship.class, "state");
+    private static final InternshipStatus[] STATUSES = InternshipStatus.values();
+    private static final int SLOT_BITS = 16;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    
     private String internshipId;
-    private String title;
-    private String description;
-    private InternshipLevel level;
-    private String preferredMajor;
-    private LocalDate openingDate;
-    private LocalDate closingDate;
+    private volatile String title;
+    private volatile String description;
+    private volatile InternshipLevel level;
+    private volatile String preferredMajor;
+    private volatile LocalDate openingDate;
+    private volatile LocalDate closingDate;
+    // Serialized form of the state; only read and written with it
     private InternshipStatus status;
     private String companyName;
     private String companyRepId;
     private int totalSlots;
     private int availableSlots;
-    private boolean isVisible;
-    private List<String> applicationIds;
-    private List<String> confirmedStudentIds;
+    // Status ordinal in the high bits, available slots in the low bits
+    private transient volatile int state;
+    private volatile boolean isVisible;
+    // Insertion-ordered ID sets, declared as collections so that the lists
+    // serialized by earlier versions can still be read
+    private Collection<String> applicationIds;
+    private Collection<String> confirmedStudentIds;
     
     /**
      * Constructs an Internship with specified details.
@@ -42,14 +66,13 @@ public class Internship implements Serializable {
         this.preferredMajor = preferredMajor;
         this.openingDate = openingDate;
         this.closingDate = closingDate;
-        this.status = InternshipStatus.PENDING;
         this.companyName = companyName;
         this.companyRepId = companyRepId;
         this.totalSlots = Math.min(totalSlots, 10);
-        this.availableSlots = this.totalSlots;
+        this.state = pack(InternshipStatus.PENDING, this.totalSlots);
         this.isVisible = true;
-        this.applicationIds = new ArrayList<>();
-        this.confirmedStudentIds = new ArrayList<>();
+        this.applicationIds = new IdSet();
+        this.confirmedStudentIds = new IdSet();
     }
     
     // Getters
@@ -92,7 +115,7 @@ public class Internship implements Serializable {
      * Gets the status.
      * @return the status
      */
-    public InternshipStatus getStatus() { return status; }
+    public InternshipStatus getStatus() { return statusOf(state); }
     /**
      * Gets the company name.
      * @return the company name
@@ -112,7 +135,7 @@ public class Internship implements Serializable {
      * Gets the available slots.
      * @return the available slots
      */
-    public int getAvailableSlots() { return availableSlots; }
+    public int getAvailableSlots() { return slotsOf(state); }
     /**
      * Checks if is visible.
      * @return true, if is visible
@@ -120,63 +143,113 @@ public class Internship implements Serializable {
     public boolean isVisible() { return isVisible; }
     /**
      * Gets the application ids.
-     * @return the application ids
+     * @return a read-only view of the application ids, in the order they were added
      */
-    public List<String> getApplicationIds() { return new ArrayList<>(applicationIds); }
+    public Collection<String> getApplicationIds() { return Collections.unmodifiableCollection(applicationIds); }
     /**
      * Gets the confirmed student ids.
-     * @return the confirmed student ids
+     * @return a read-only view of the confirmed student ids, in the order they were confirmed
      */
-    public List<String> getConfirmedStudentIds() { return new ArrayList<>(confirmedStudentIds); }
+    public Collection<String> getConfirmedStudentIds() { return Collections.unmodifiableCollection(confirmedStudentIds); }
     
     // Setters
     /**
      * Sets the title.
      * @param title the new title
      */
-    public void setTitle(String title) { this.title = title; }
+    public void setTitle(String title) {
+        String oldTitle = this.title;
+        this.title = title;
+        EntityEvents.fire(this, "title", oldTitle, title);
+    }
     /**
      * Sets the description.
      * @param description the new description
      */
-    public void setDescription(String description) { this.description = description; }
+    public void setDescription(String description) {
+        String oldDescription = this.description;
+        this.description = description;
+        EntityEvents.fire(this, "description", oldDescription, description);
+    }
     /**
      * Sets the level.
      * @param level the new level
      */
-    public void setLevel(InternshipLevel level) { this.level = level; }
+    public void setLevel(InternshipLevel level) {
+        InternshipLevel oldLevel = this.level;
+        this.level = level;
+        EntityEvents.fire(this, "level", oldLevel, level);
+    }
     /**
      * Sets the preferred major.
      * @param preferredMajor the new preferred major
      */
-    public void setPreferredMajor(String preferredMajor) { this.preferredMajor = preferredMajor; }
+    public void setPreferredMajor(String preferredMajor) {
+        String oldMajor = this.preferredMajor;
+        this.preferredMajor = preferredMajor;
+        EntityEvents.fire(this, "preferredMajor", oldMajor, preferredMajor);
+    }
     /**
      * Sets the opening date.
      * @param openingDate the new opening date
      */
-    public void setOpeningDate(LocalDate openingDate) { this.openingDate = openingDate; }
+    public void setOpeningDate(LocalDate openingDate) {
+        LocalDate oldDate = this.openingDate;
+        this.openingDate = openingDate;
+        EntityEvents.fire(this, "openingDate", oldDate, openingDate);
+    }
     /**
      * Sets the closing date.
      * @param closingDate the new closing date
      */
-    public void setClosingDate(LocalDate closingDate) { this.closingDate = closingDate; }
+    public void setClosingDate(LocalDate closingDate) {
+        LocalDate oldDate = this.closingDate;
+        this.closingDate = closingDate;
+        EntityEvents.fire(this, "closingDate", oldDate, closingDate);
+    }
     /**
      * Sets the status.
      * @param status the new status
      */
-    public void setStatus(InternshipStatus status) { this.status = status; }
+    public void setStatus(InternshipStatus status) {
+        int current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, pack(status, slotsOf(current))));
+        EntityEvents.fire(this, "status", statusOf(current), status);
+    }
     /**
      * Sets the visible.
      * @param visible the new visible
      */
-    public void setVisible(boolean visible) { this.isVisible = visible; }
+    public void setVisible(boolean visible) {
+        boolean oldVisible = this.isVisible;
+        this.isVisible = visible;
+        EntityEvents.fire(this, "visible", oldVisible, visible);
+    }
     
     /**
      * Adds an application ID to this internship.
      */
     public void addApplication(String applicationId) {
-        if (!applicationIds.contains(applicationId)) {
-            applicationIds.add(applicationId);
+        if (applicationIds.add(applicationId)) {
+            EntityEvents.fire(this, "applicationIds", null, applicationId);
+        }
+    }
+    
+    /**
+     * Adds several application IDs at once.
+     * A single change event is fired for the IDs that were added.
+     */
+    public void addApplications(Collection<String> ids) {
+        List<String> added = new ArrayList<>();
+        for (String applicationId : ids) {
+            if (applicationIds.add(applicationId)) {
+                added.add(applicationId);
+            }
+        }
+        if (!added.isEmpty()) {
+            EntityEvents.fire(this, "applicationIds", null, added);
         }
     }
     
@@ -184,36 +257,112 @@ public class Internship implements Serializable {
      * Removes an application ID from this internship.
      */
     public void removeApplication(String applicationId) {
-        applicationIds.remove(applicationId);
+        if (applicationIds.remove(applicationId)) {
+            EntityEvents.fire(this, "applicationIds", applicationId, null);
+        }
     }
     
     /**
      * Confirms a student for this internship and decreases available slots.
+     * The slot is taken first, so the confirmed students never outnumber the
+     * slots; it is given back if the student was already confirmed. Only an
+     * APPROVED internship takes students.
      */
     public boolean confirmStudent(String studentId) {
-        if (availableSlots > 0 && !confirmedStudentIds.contains(studentId)) {
-            confirmedStudentIds.add(studentId);
-            availableSlots--;
-            if (availableSlots == 0) {
-                status = InternshipStatus.FILLED;
-            }
-            return true;
+        return confirm(studentId, true);
+    }
+    
+    /**
+     * Puts back a confirmed student that was removed, taking a slot again
+     * whatever the status is now. Used to undo a removal; it only fails if
+     * another student has taken the freed slot in the meantime.
+     */
+    public boolean restoreConfirmedStudent(String studentId) {
+        return confirm(studentId, false);
+    }
+    
+    private boolean confirm(String studentId, boolean approvedOnly) {
+        int current = reserveSlot(approvedOnly);
+        if (current < 0) {
+            return false;
         }
-        return false;
+        if (!confirmedStudentIds.add(studentId)) {
+            releaseSlot(statusOf(current));
+            return false;
+        }
+        EntityEvents.fire(this, "confirmedStudentIds", null, studentId);
+        if (slotsOf(current) == 1 && statusOf(current) == InternshipStatus.APPROVED) {
+            EntityEvents.fire(this, "status", InternshipStatus.APPROVED, InternshipStatus.FILLED);
+        }
+        return true;
     }
     
     /**
      * Removes a confirmed student and increases available slots.
      */
     public boolean removeConfirmedStudent(String studentId) {
-        if (confirmedStudentIds.remove(studentId)) {
-            availableSlots++;
-            if (status == InternshipStatus.FILLED) {
-                status = InternshipStatus.APPROVED;
+        if (!confirmedStudentIds.remove(studentId)) {
+            return false;
+        }
+        int previous = releaseSlot(InternshipStatus.APPROVED);
+        EntityEvents.fire(this, "confirmedStudentIds", studentId, null);
+        if (statusOf(previous) == InternshipStatus.FILLED) {
+            EntityEvents.fire(this, "status", InternshipStatus.FILLED, InternshipStatus.APPROVED);
+        }
+        return true;
+    }
+    
+    /**
+     * Takes one available slot, marking an APPROVED internship FILLED if it
+     * was the last. The status is checked in the same compare-and-set as the
+     * slots, so a status change cannot slip in between.
+     * @param approvedOnly true, to fail unless the internship is APPROVED
+     * @return the state before the slot was taken, or -1 if the status did
+     *         not allow it or no slot was left
+     */
+    private int reserveSlot(boolean approvedOnly) {
+        while (true) {
+            int current = state;
+            int slots = slotsOf(current);
+            InternshipStatus status = statusOf(current);
+            if (slots == 0 || (approvedOnly && status != InternshipStatus.APPROVED)) {
+                return -1;
+            }
+            if (slots == 1 && status == InternshipStatus.APPROVED) {
+                status = InternshipStatus.FILLED;
+            }
+            if (STATE.compareAndSet(this, current, pack(status, slots - 1))) {
+                return current;
+            }
+        }
+    }
+    
+    /**
+     * Gives back one slot, reopening a FILLED internship.
+     * @param reopened the status a FILLED internship goes back to
+     * @return the state before the slot was given back
+     */
+    private int releaseSlot(InternshipStatus reopened) {
+        while (true) {
+            int current = state;
+            InternshipStatus status = statusOf(current) == InternshipStatus.FILLED
+                ? reopened : statusOf(current);
+            if (STATE.compareAndSet(this, current, pack(status, slotsOf(current) + 1))) {
+                return current;
             }
-            return true;
         }
-        return false;
+    }
+    
+    private static int pack(InternshipStatus status, int slots) {
+        return status.ordinal() << SLOT_BITS | slots;
+    }
+    
+    private static InternshipStatus statusOf(int state) {
+        return STATUSES[state >>> SLOT_BITS];
+    }
+    
+    private static int slotsOf(int state) {
+        return state & SLOT_MASK;
     }
     
     /**
@@ -221,11 +370,12 @@ public class Internship implements Serializable {
      */
     public boolean isAcceptingApplications() {
         LocalDate today = LocalDate.now();
-        return status == InternshipStatus.APPROVED 
+        int current = state;
+        return statusOf(current) == InternshipStatus.APPROVED 
                && isVisible
                && !today.isBefore(openingDate)
                && !today.isAfter(closingDate)
-               && availableSlots > 0;
+               && slotsOf(current) > 0;
     }
     
     /**
@@ -245,9 +395,24 @@ public class Internship implements Serializable {
         return true;
     }
     
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        applicationIds = new IdSet(applicationIds);
+        confirmedStudentIds = new IdSet(confirmedStudentIds);
+        state = pack(status, availableSlots);
+    }
+    
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        int current = state;
+        status = statusOf(current);
+        availableSlots = slotsOf(current);
+        out.defaultWriteObject();
+    }
+    
     @Override
     public String toString() {
         return String.format("Internship[ID=%s, Title=%s, Company=%s, Level=%s, Status=%s, Slots=%d/%d]",
-                           internshipId, title, companyName, level, status, availableSlots, totalSlots);
+                           internshipId, title, companyName, level, getStatus(), getAvailableSlots(), totalSlots);
     }
-}
\ No newline at end of file
+
+}
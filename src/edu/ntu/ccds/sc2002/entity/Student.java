@@ -1,6 +1,11 @@
 package edu.ntu.ccds.sc2002.entity;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -10,10 +15,12 @@ import java.util.List;
 public class Student extends User {
     private static final long serialVersionUID = 1L;
     
-    private int yearOfStudy;
-    private String major;
-    private List<String> applicationIds;
-    private String confirmedInternshipId;
+    private volatile int yearOfStudy;
+    private volatile String major;
+    // An insertion-ordered ID set, declared as a collection so that the list
+    // serialized by earlier versions can still be read
+    private Collection<String> applicationIds;
+    private volatile String confirmedInternshipId;
     
     /**
      * Constructs a Student with specified details.
@@ -22,7 +29,7 @@ public class Student extends User {
         super(userId, name, password, UserRole.STUDENT);
         this.yearOfStudy = yearOfStudy;
         this.major = major;
-        this.applicationIds = new ArrayList<>();
+        this.applicationIds = new IdSet();
         this.confirmedInternshipId = null;
     }
     
@@ -37,7 +44,9 @@ public class Student extends User {
      * Sets the student's year of study.
      */
     public void setYearOfStudy(int yearOfStudy) {
+        int oldYear = this.yearOfStudy;
         this.yearOfStudy = yearOfStudy;
+        EntityEvents.fire(this, "yearOfStudy", oldYear, yearOfStudy);
     }
     
     /**
@@ -51,35 +60,80 @@ public class Student extends User {
      * Sets the student's major.
      */
     public void setMajor(String major) {
+        String oldMajor = this.major;
         this.major = major;
+        EntityEvents.fire(this, "major", oldMajor, major);
     }
     
     /**
-     * Gets the list of application IDs.
+     * Gets the application IDs, in the order they were added.
+     * @return a read-only view of the application IDs
      */
-    public List<String> getApplicationIds() {
-        return new ArrayList<>(applicationIds);
+    public Collection<String> getApplicationIds() {
+        return Collections.unmodifiableCollection(applicationIds);
     }
     
     /**
      * Adds an application ID to the student's applications.
      */
     public boolean addApplication(String applicationId) {
-        if (applicationIds.size() >= 3) {
-            return false;
+        synchronized (this) {
+            if (applicationIds.size() >= 3 || !applicationIds.add(applicationId)) {
+                return false;
+            }
         }
-        if (!applicationIds.contains(applicationId)) {
-            applicationIds.add(applicationId);
-            return true;
+        EntityEvents.fire(this, "applicationIds", null, applicationId);
+        return true;
+    }
+    
+    /**
+     * Adds several application IDs at once, up to the application limit.
+     * A single change event is fired for the IDs that were added.
+     * @return the number of applications added
+     */
+    public int addApplications(Collection<String> ids) {
+        List<String> added = new ArrayList<>();
+        synchronized (this) {
+            for (String applicationId : ids) {
+                if (applicationIds.size() >= 3) {
+                    break;
+                }
+                if (applicationIds.add(applicationId)) {
+                    added.add(applicationId);
+                }
+            }
+        }
+        if (!added.isEmpty()) {
+            EntityEvents.fire(this, "applicationIds", null, added);
+        }
+        return added.size();
+    }
+    
+    /**
+     * Puts back an application ID that was removed, without checking the
+     * application limit, since another application may have taken its
+     * place in the meantime. Used to undo a removal and to decode a stored
+     * student.
+     */
+    public void restoreApplication(String applicationId) {
+        boolean added;
+        synchronized (this) {
+            added = applicationIds.add(applicationId);
+        }
+        if (added) {
+            EntityEvents.fire(this, "applicationIds", null, applicationId);
         }
-        return false;
     }
     
     /**
      * Removes an application from the student's applications.
      */
     public boolean removeApplication(String applicationId) {
-        return applicationIds.remove(applicationId);
+        if (applicationIds.remove(applicationId)) {
+            EntityEvents.fire(this, "applicationIds", applicationId, null);
+            return true;
+        }
+        return false;
     }
     
     /**
@@ -100,7 +154,27 @@ public class Student extends User {
      * Sets the confirmed internship ID.
      */
     public void setConfirmedInternshipId(String confirmedInternshipId) {
+        String oldInternshipId = this.confirmedInternshipId;
         this.confirmedInternshipId = confirmedInternshipId;
+        EntityEvents.fire(this, "confirmedInternshipId", oldInternshipId, confirmedInternshipId);
+    }
+    
+    /**
+     * Confirms an internship for the student, unless one is already confirmed.
+     * The check and the change are made together, so only one of several
+     * concurrent confirmations succeeds.
+     * @param internshipId the internship ID
+     * @return true, if the internship was confirmed
+     */
+    public boolean confirmInternship(String internshipId) {
+        synchronized (this) {
+            if (confirmedInternshipId != null) {
+                return false;
+            }
+            confirmedInternshipId = internshipId;
+        }
+        EntityEvents.fire(this, "confirmedInternshipId", null, internshipId);
+        return true;
     }
     
     /**
@@ -115,18 +189,25 @@ public class Student extends User {
      */
     public void clearApplications() {
         applicationIds.clear();
+        EntityEvents.fire(this, "applicationIds", null, null);
     }
     
     @Override
-    public void displayMenu() {
-        System.out.println("\n=== Student Menu ===");
-        System.out.println("1. View Available Internships");
-        System.out.println("2. Apply for Internship");
-        System.out.println("3. View My Applications");
-        System.out.println("4. Accept Internship Placement");
-        System.out.println("5. Request Withdrawal");
-        System.out.println("6. Change Password");
-        System.out.println("7. Logout");
+    public void displayMenu(PrintStream out) {
+        out.println("\n=== Student Menu ===");
+        out.println("1. View Available Internships");
+        out.println("2. Apply for Internship");
+        out.println("3. View My Applications");
+        out.println("4. Accept Internship Placement");
+        out.println("5. Request Withdrawal");
+        out.println("6. Change Password");
+        out.println("7. Search Internships");
+        out.println("8. Logout");
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        applicationIds = new IdSet(applicationIds);
     }
     
     @Override
@@ -1,5 +1,6 @@
 package edu.ntu.ccds.sc2002.entity;
 
+import java.io.PrintStream;
 import java.io.Serializable;
 
 /**
@@ -11,8 +12,8 @@ public abstract class User implements Serializable {
     private static final long serialVersionUID = 1L;
     
     private String userId;
-    private String name;
-    private String password;
+    private volatile String name;
+    private volatile String password;
     private UserRole role;
     
     /**
@@ -43,7 +44,9 @@ public abstract class User implements Serializable {
      * Sets the user's name.
      */
     public void setName(String name) {
+        String oldName = this.name;
         this.name = name;
+        EntityEvents.fire(this, "name", oldName, name);
     }
     
     /**
@@ -58,6 +61,7 @@ public abstract class User implements Serializable {
      */
     public void changePassword(String newPassword) {
         this.password = newPassword;
+        EntityEvents.fire(this, "password", null, null);
     }
     
     /**
@@ -67,11 +71,19 @@ public abstract class User implements Serializable {
         return role;
     }
     
+    /**
+     * Displays the user-specific menu on standard output.
+     */
+    public void displayMenu() {
+        displayMenu(System.out);
+    }
+    
     /**
      * Abstract method to display user-specific menu.
      * To be implemented by concrete user classes.
+     * @param out the stream the menu is printed to
      */
-    public abstract void displayMenu();
+    public abstract void displayMenu(PrintStream out);
     
     @Override
     public String toString() {
@@ -2,6 +2,7 @@ package edu.ntu.ccds.sc2002.entity;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Represents a withdrawal request for an internship application.
@@ -9,12 +10,14 @@ import java.time.LocalDateTime;
  */
 public class WithdrawalRequest implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final AtomicReferenceFieldUpdater<WithdrawalRequest, WithdrawalStatus> STATUS =
+        AtomicReferenceFieldUpdater.newUpdater(WithdrawalRequest.class, WithdrawalStatus.class, "status");
     
     private String requestId;
     private String applicationId;
     private String studentId;
     private String reason;
-    private WithdrawalStatus status;
+    private volatile WithdrawalStatus status;
     private LocalDateTime requestDate;
     private boolean isAfterConfirmation;
     
@@ -32,6 +35,20 @@ public class WithdrawalRequest implements Serializable {
         this.isAfterConfirmation = isAfterConfirmation;
     }
     
+    /**
+     * Constructs a WithdrawalRequest restored from persistent storage.
+     */
+    public WithdrawalRequest(String requestId, String applicationId, String studentId, String reason,
+                            WithdrawalStatus status, LocalDateTime requestDate, boolean isAfterConfirmation) {
+        this.requestId = requestId;
+        this.applicationId = applicationId;
+        this.studentId = studentId;
+        this.reason = reason;
+        this.status = status;
+        this.requestDate = requestDate;
+        this.isAfterConfirmation = isAfterConfirmation;
+    }
+    
     // Getters
     public String getRequestId() { return requestId; }
     public String getApplicationId() { return applicationId; }
@@ -42,7 +59,26 @@ public class WithdrawalRequest implements Serializable {
     public boolean isAfterConfirmation() { return isAfterConfirmation; }
     
     // Setters
-    public void setStatus(WithdrawalStatus status) { this.status = status; }
+    public void setStatus(WithdrawalStatus status) {
+        WithdrawalStatus oldStatus = this.status;
+        this.status = status;
+        EntityEvents.fire(this, "status", oldStatus, status);
+    }
+    
+    /**
+     * Changes the status only if it is still the expected one, so a request
+     * cannot be processed twice by staff acting on it at the same time.
+     * @param expected the status the request must have
+     * @param status the new status
+     * @return true, if the status was changed
+     */
+    public boolean changeStatus(WithdrawalStatus expected, WithdrawalStatus status) {
+        if (!STATUS.compareAndSet(this, expected, status)) {
+            return false;
+        }
+        EntityEvents.fire(this, "status", expected, status);
+        return true;
+    }
     
     @Override
     public String toString() {